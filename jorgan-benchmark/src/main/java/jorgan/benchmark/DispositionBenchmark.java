@@ -0,0 +1,73 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import jorgan.disposition.Organ;
+import jorgan.io.DispositionStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark of loading a disposition, including conversion, in XML and in
+ * binary format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DispositionBenchmark {
+
+	@Param( { "100", "1000", "10000" })
+	private int size;
+
+	private File file;
+
+	private File binary;
+
+	@Setup
+	public void setUp() throws IOException {
+		Organ organ = Organs.create(size);
+
+		file = Organs.write(organ);
+
+		binary = File.createTempFile("benchmark", DispositionStream.BINARY_SUFFIX);
+		binary.deleteOnExit();
+		new DispositionStream().write(organ, binary);
+	}
+
+	@Benchmark
+	public Organ read() throws IOException {
+		return new DispositionStream().read(file);
+	}
+
+	@Benchmark
+	public Organ readBinary() throws IOException {
+		return new DispositionStream().read(binary);
+	}
+}
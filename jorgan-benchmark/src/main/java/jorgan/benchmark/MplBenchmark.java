@@ -0,0 +1,113 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import jorgan.midi.mpl.Command;
+import jorgan.midi.mpl.ContextImpl;
+import jorgan.midi.mpl.ProcessingException;
+import jorgan.midi.mpl.Program;
+import jorgan.midi.mpl.Tuple;
+import jorgan.midi.mpl.Variables;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark of MPL processing, i.e. matching a received note on and creating
+ * a note on to send. Processing with a compiled {@link Program} and slots of
+ * a {@link ContextImpl} should not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MplBenchmark {
+
+	private Tuple input;
+
+	private Tuple output;
+
+	private Program inputProgram;
+
+	private Program outputProgram;
+
+	private ContextImpl context = new ContextImpl();
+
+	private int pitch;
+
+	@Setup
+	public void setUp() throws ProcessingException {
+		input = Tuple.fromString("equal 144, get pitch, greater 0 | get velocity");
+		output = Tuple.fromString("set 144, set pitch, set velocity");
+
+		inputProgram = Program.compile(input);
+		outputProgram = Program.compile(output);
+	}
+
+	/**
+	 * Processing with commands, looking up variables by name.
+	 */
+	@Benchmark
+	public float commands() {
+		context.clear();
+
+		pitch = (pitch + 1) % 128;
+
+		float sum = 0;
+		sum += process(input, 0, 144);
+		sum += process(input, 1, pitch);
+		sum += process(input, 2, 100);
+
+		for (int d = 0; d < output.getLength(); d++) {
+			sum += output.get(d).process(0, context);
+		}
+		return sum;
+	}
+
+	private float process(Tuple tuple, int index, float value) {
+		Command command = tuple.get(index);
+		return command.process(value, context);
+	}
+
+	/**
+	 * Processing with programs, accessing variables by slot.
+	 */
+	@Benchmark
+	public float programs() {
+		context.clear();
+
+		pitch = (pitch + 1) % 128;
+
+		float sum = 0;
+		sum += inputProgram.process(0, 144, context);
+		sum += inputProgram.process(1, pitch, context);
+		sum += inputProgram.process(2, 100, context);
+
+		for (int d = 0; d < outputProgram.getLength(); d++) {
+			sum += outputProgram.process(d, 0, context);
+		}
+		return sum + context.get(Variables.PITCH);
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.benchmark;
+
+import java.io.File;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Transmitter;
+
+import jorgan.disposition.Organ;
+import jorgan.play.OrganPlay;
+import jorgan.problem.ElementProblems;
+import jorgan.time.Clock;
+
+/**
+ * A play of an organ against null devices, i.e. all sent messages are
+ * counted only.
+ */
+public class NullPlay extends OrganPlay {
+
+	private int sent;
+
+	public NullPlay(Organ organ) {
+		super(organ, new ElementProblems(), new Clock(organ));
+	}
+
+	@Override
+	public File resolve(String name) {
+		return new File(name);
+	}
+
+	/**
+	 * Messages are played directly on players instead, thus transmitters
+	 * never transmit.
+	 */
+	@Override
+	public Transmitter createTransmitter(String deviceName) {
+		return new Transmitter() {
+			private Receiver receiver;
+
+			public void setReceiver(Receiver receiver) {
+				this.receiver = receiver;
+			}
+
+			public Receiver getReceiver() {
+				return receiver;
+			}
+
+			public void close() {
+			}
+		};
+	}
+
+	@Override
+	public Receiver createReceiver(String deviceName) {
+		return new Receiver() {
+			public void send(MidiMessage message, long timeStamp) {
+				sent++;
+			}
+
+			public void close() {
+			}
+		};
+	}
+
+	/**
+	 * Get the count of messages sent to devices.
+	 */
+	public int getSent() {
+		return sent;
+	}
+}
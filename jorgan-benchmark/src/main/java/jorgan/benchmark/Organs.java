@@ -0,0 +1,178 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import jorgan.disposition.Combination;
+import jorgan.disposition.Combination.SwitchReference;
+import jorgan.disposition.Coupler;
+import jorgan.disposition.Element;
+import jorgan.disposition.GenericSound;
+import jorgan.disposition.Keyboard;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Rank;
+import jorgan.disposition.Stop;
+import jorgan.io.DispositionStream;
+
+/**
+ * Generator of synthetic organs.
+ * <p>
+ * An organ consists of divisions, each with a keyboard playing stops of its
+ * own and a coupler to the stops of the next division:
+ * 
+ * <pre>
+ * Keyboard -> Stop -> Rank -> GenericSound
+ *          -> Coupler -> Stop (next division)
+ * Combination -> Stop
+ * </pre>
+ * 
+ * The first combination of each division recalls all its stops, the second
+ * one cancels them.
+ */
+public class Organs {
+
+	/**
+	 * The output of all sounds.
+	 */
+	public static final String OUTPUT = "benchmark";
+
+	/**
+	 * Elements of each division.
+	 */
+	public static final int DIVISION = 21;
+
+	private static final int STOPS = 8;
+
+	/**
+	 * Create an organ.
+	 * 
+	 * @param size
+	 *            the approximate count of elements, at least one division is
+	 *            created
+	 * @return organ with all stops and couplers active
+	 */
+	public static Organ create(int size) {
+		Organ organ = new Organ();
+
+		int divisions = Math.max(1, size / DIVISION);
+
+		Stop[][] stops = new Stop[divisions][];
+		Coupler[] couplers = new Coupler[divisions];
+		for (int d = 0; d < divisions; d++) {
+			Keyboard keyboard = add(organ, new Keyboard(), "Keyboard", d);
+
+			GenericSound sound = add(organ, new GenericSound(), "Sound", d);
+			sound.setOutput(OUTPUT);
+
+			Combination tutti = add(organ, new Combination(), "Tutti", d);
+			Combination cancel = add(organ, new Combination(), "Cancel", d);
+
+			stops[d] = new Stop[STOPS];
+			for (int s = 0; s < STOPS; s++) {
+				Rank rank = add(organ, new Rank(), "Rank " + s, d);
+				rank.reference(sound);
+
+				Stop stop = add(organ, new Stop(), "Stop " + s, d);
+				stop.reference(rank);
+				stop.setActive(true);
+
+				keyboard.reference(stop);
+
+				tutti.reference(stop);
+				cancel.reference(stop);
+				((SwitchReference) cancel.getReference(stop)).setActive(false);
+
+				stops[d][s] = stop;
+			}
+
+			couplers[d] = add(organ, new Coupler(), "Coupler", d);
+			couplers[d].setActive(true);
+			keyboard.reference(couplers[d]);
+		}
+
+		for (int d = 0; d < divisions; d++) {
+			for (Stop stop : stops[(d + 1) % divisions]) {
+				couplers[d].reference(stop);
+			}
+		}
+
+		return organ;
+	}
+
+	private static <E extends Element> E add(Organ organ, E element,
+			String name, int division) {
+		element.setName(name + " " + division);
+
+		organ.addElement(element);
+
+		return element;
+	}
+
+	/**
+	 * Write an organ to a temporary file.
+	 */
+	public static File write(Organ organ) throws IOException {
+		File file = File.createTempFile("benchmark", ".disposition");
+		file.deleteOnExit();
+
+		new DispositionStream().write(organ, file);
+
+		return file;
+	}
+
+	/**
+	 * Write a disposition in the oldest supported format, i.e. version
+	 * <code>2.0-beta</code>, with stops referenced from sound sources.
+	 * 
+	 * @param size
+	 *            count of elements
+	 * @return temporary file
+	 */
+	public static File writeLegacy(int size) throws IOException {
+		File file = File.createTempFile("benchmark", ".disposition");
+		file.deleteOnExit();
+
+		PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+				new FileOutputStream(file), "UTF-8"));
+		try {
+			writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+			writer.println("<organ version=\"2.0-beta\">");
+			for (int e = 0; e < size / 2; e++) {
+				writer.println("  <stop id=\"stop" + e + "\">");
+				writer.println("    <name>Stop " + e + "</name>");
+				writer.println("    <on>false</on>");
+				writer.println("  </stop>");
+				writer.println("  <soundSource id=\"source" + e + "\">");
+				writer.println("    <name>Source " + e + "</name>");
+				writer.println("    <reference id=\"stop" + e + "\"/>");
+				writer.println("  </soundSource>");
+			}
+			writer.println("</organ>");
+		} finally {
+			writer.close();
+		}
+
+		return file;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import jorgan.disposition.Combination;
+import jorgan.disposition.Keyboard;
+import jorgan.disposition.Organ;
+import jorgan.play.KeyboardPlayer;
+import jorgan.play.OrganPlay.Playing;
+import jorgan.play.Player;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmark of playing an organ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayBenchmark {
+
+	@Param( { "100", "1000", "10000" })
+	private int size;
+
+	private NullPlay play;
+
+	private Keyboard keyboard;
+
+	private Combination tutti;
+
+	private Combination cancel;
+
+	private int keys;
+
+	private int pitch;
+
+	private Playing press = new Playing() {
+		public void play(Player<?> player) {
+			((KeyboardPlayer) player).press(pitch, 100);
+		}
+	};
+
+	private Playing release = new Playing() {
+		public void play(Player<?> player) {
+			((KeyboardPlayer) player).release(pitch);
+		}
+	};
+
+	@Setup
+	public void setUp() {
+		Organ organ = Organs.create(size);
+
+		play = new NullPlay(organ);
+		play.open();
+
+		keyboard = organ.getElements(Keyboard.class).iterator().next();
+		for (Combination combination : organ.getElements(Combination.class)) {
+			if (combination.getName().equals("Tutti 0")) {
+				tutti = combination;
+			} else if (combination.getName().equals("Cancel 0")) {
+				cancel = combination;
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		play.destroy();
+	}
+
+	/**
+	 * Key down and up, i.e. keyboard to couplers, stops, ranks and sounds.
+	 */
+	@Benchmark
+	public int key() {
+		pitch = 36 + (keys++ % 61);
+
+		play.play(keyboard, press);
+		play.play(keyboard, release);
+
+		return play.getSent();
+	}
+
+	/**
+	 * Recall of combinations, toggling all referenced stops on and off.
+	 */
+	@Benchmark
+	public int recall() {
+		tutti.setActive(true);
+		tutti.setActive(false);
+
+		cancel.setActive(true);
+		cancel.setActive(false);
+
+		return play.getSent();
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jorgan.disposition.Element;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Stop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark of {@link Organ#getReferrer(Element, Class)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReferrerBenchmark {
+
+	@Param( { "100", "1000", "10000" })
+	private int size;
+
+	private Organ organ;
+
+	private Element[] elements;
+
+	private int index;
+
+	@Setup
+	public void setUp() {
+		organ = Organs.create(size);
+
+		List<Element> elements = new ArrayList<Element>();
+		for (Element element : organ.elements()) {
+			elements.add(element);
+		}
+		this.elements = elements.toArray(new Element[elements.size()]);
+	}
+
+	@Benchmark
+	public int getReferrer() {
+		index = (index + 1) % elements.length;
+
+		return organ.getReferrer(elements[index]).size();
+	}
+
+	@Benchmark
+	public int getReferrerClass() {
+		index = (index + 1) % elements.length;
+
+		return organ.getReferrer(elements[index], Stop.class).size();
+	}
+}
@@ -177,6 +177,10 @@ public abstract class Element implements Cloneable {
 
 		references.add(index, reference);
 
+		if (organ != null) {
+			organ.referenceAdded(this, reference.getElement());
+		}
+
 		fireChange(new AbstractChange() {
 			public void notify(OrganListener listener) {
 				listener.indexedPropertyAdded(Element.this, REFERENCE,
@@ -289,6 +293,10 @@ public abstract class Element implements Cloneable {
 
 		final int index = references.indexOf(reference);
 
+		if (organ != null) {
+			organ.referenceRemoved(this, reference.getElement());
+		}
+
 		references.remove(reference);
 
 		fireChange(new AbstractChange() {
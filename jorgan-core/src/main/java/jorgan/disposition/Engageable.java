@@ -23,6 +23,18 @@ package jorgan.disposition;
  */
 public class Engageable extends Displayable {
 
+	/**
+	 * The maintained count of engagements from referencing {@link Engaging}s.
+	 * 
+	 * @see #countEngagings()
+	 */
+	private transient int engagedCount;
+
+	/**
+	 * Is {@link #engagedCount} initialized.
+	 */
+	private transient boolean engagedCountValid;
+
 	/**
 	 * Is this element engaged from referencing {@link Engaging}.
 	 * 
@@ -48,6 +60,20 @@ public class Engageable extends Displayable {
 	 */
 	public final void engagingChanged(boolean engaged) {
 
+		if (engagedCountValid) {
+			engagedCount += engaged ? 1 : -1;
+		}
+
+		engagedChanged(engaged);
+	}
+
+	/**
+	 * Notification of a change in engagement, either from a referencing
+	 * {@link Engaging} or from this element itself.
+	 * 
+	 * @param engaged
+	 */
+	final void engagedChanged(boolean engaged) {
 		int engagedCount = getEngagedCount();
 
 		if ((engaged && engagedCount == 1) || (!engaged && engagedCount == 0)) {
@@ -57,7 +83,53 @@ public class Engageable extends Displayable {
 		}
 	}
 
+	/**
+	 * Notification from the organ of an {@link Engaging} starting or stopping
+	 * to reference this element.
+	 * 
+	 * @param engaging
+	 *            the referencing engaging
+	 * @param referenced
+	 *            <code>true</code> if referencing
+	 */
+	void engagingReferenced(Engaging engaging, boolean referenced) {
+		if (engagedCountValid && engaging.engages(this)) {
+			engagedCount += referenced ? 1 : -1;
+		}
+	}
+
+	@Override
+	void setOrgan(Organ organ) {
+		super.setOrgan(organ);
+
+		engagedCountValid = false;
+	}
+
+	/**
+	 * Get the count of engagements of this element.
+	 * 
+	 * @return count of engagements
+	 */
 	protected int getEngagedCount() {
+		if (!engagedCountValid) {
+			engagedCount = countEngagings();
+			engagedCountValid = true;
+		}
+
+		// validate with assertions enabled only
+		assert engagedCount == countEngagings() : "engaged count of '"
+				+ getName() + "' out of sync";
+
+		return engagedCount;
+	}
+
+	/**
+	 * Count the engagements from referencing {@link Engaging}s, used to
+	 * initialize the maintained count only.
+	 * 
+	 * @return count of engagements
+	 */
+	private int countEngagings() {
 		int count = 0;
 		for (Engaging engaging : getOrgan().getReferrer(this, Engaging.class)) {
 			if (engaging.engages(this)) {
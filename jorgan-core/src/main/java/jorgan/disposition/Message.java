@@ -6,6 +6,7 @@ package jorgan.disposition;
 import jorgan.midi.mpl.Command;
 import jorgan.midi.mpl.Context;
 import jorgan.midi.mpl.NoOp;
+import jorgan.midi.mpl.Program;
 import jorgan.midi.mpl.Tuple;
 
 public abstract class Message implements Cloneable {
@@ -16,14 +17,21 @@ public abstract class Message implements Cloneable {
 
 	private Tuple tuple = new Tuple(new NoOp());
 
+	/**
+	 * The compiled tuple, dropped on change.
+	 */
+	private transient Program program;
+
 	public Message change(Tuple tuple) {
 		this.tuple = tuple;
+		this.program = null;
 
 		return this;
 	}
 
 	public Message change(Command... commands) {
 		this.tuple = new Tuple(commands);
+		this.program = null;
 
 		return this;
 	}
@@ -42,7 +50,21 @@ public abstract class Message implements Cloneable {
 
 	public float process(float value, Context context, int index) {
 
-		return tuple.get(index).process(value, context);
+		return getProgram().process(index, value, context);
+	}
+
+	/**
+	 * Get the compiled tuple.
+	 * 
+	 * @return program
+	 */
+	public Program getProgram() {
+		Program program = this.program;
+		if (program == null) {
+			program = Program.compile(tuple);
+			this.program = program;
+		}
+		return program;
 	}
 
 	/**
@@ -20,10 +20,13 @@ package jorgan.disposition;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jorgan.disposition.event.AbstractChange;
 import jorgan.disposition.event.Change;
@@ -47,6 +50,15 @@ public class Organ {
 	 */
 	private transient List<OrganObserver> observers;
 
+	/**
+	 * Referrers of elements, maintained on each change of references. Lookups
+	 * happen concurrently from the play thread, thus they never change the
+	 * index.
+	 * 
+	 * @see #getReferrer(Element, Class)
+	 */
+	private transient volatile Map<Element, Referrers> referrers = new ConcurrentHashMap<Element, Referrers>();
+
 	private String version = "";
 
 	private List<Element> elements = new ArrayList<Element>();
@@ -162,6 +174,24 @@ public class Organ {
 	public void bind(Element element) {
 		element.id = createId(element);
 		element.organ = this;
+
+		// references are not yet resolved
+		referrers = null;
+	}
+
+	/**
+	 * This method is not part of this class' public API!
+	 */
+	public void resolved() {
+		Map<Element, Referrers> referrers = new ConcurrentHashMap<Element, Referrers>();
+
+		for (Element referrer : elements) {
+			for (Reference<? extends Element> reference : referrer.references) {
+				addReferrer(referrers, referrer, reference.getElement());
+			}
+		}
+
+		this.referrers = referrers;
 	}
 
 	public void addElements(Collection<Element> elements) {
@@ -193,6 +223,10 @@ public class Organ {
 
 		element.setOrgan(this);
 
+		for (Reference<? extends Element> reference : element.references) {
+			referenceAdded(element, reference.getElement());
+		}
+
 		fireChange(new AbstractChange() {
 			public void notify(OrganListener listener) {
 				listener.elementAdded(element);
@@ -219,6 +253,11 @@ public class Organ {
 			referrer.unreference(element);
 		}
 
+		// element keeps its references, but these are no longer indexed
+		for (Reference<? extends Element> reference : element.references) {
+			referenceRemoved(element, reference.getElement());
+		}
+
 		elements.remove(element);
 		element.setOrgan(null);
 
@@ -255,17 +294,74 @@ public class Organ {
 		}
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Get the referrers of the given element.
+	 * 
+	 * @param element
+	 *            element to get referrers for
+	 * @param clazz
+	 *            class of referrers
+	 * @return immutable set of referrers
+	 */
 	public <E> Set<E> getReferrer(Element element, Class<E> clazz) {
-		Set<E> set = new HashSet<E>();
+		Map<Element, Referrers> referrers = this.referrers;
+		if (referrers == null) {
+			// references are not yet resolved
+			return Collections.emptySet();
+		}
 
-		for (Element candidate : elements) {
-			if (clazz.isAssignableFrom(candidate.getClass())
-					&& candidate.references(element)) {
-				set.add((E) candidate);
+		Referrers elementReferrers = referrers.get(element);
+		if (elementReferrers == null) {
+			return Collections.emptySet();
+		}
+		return elementReferrers.get(clazz);
+	}
+
+	private static void addReferrer(Map<Element, Referrers> referrers,
+			Element referrer, Element element) {
+		Referrers elementReferrers = referrers.get(element);
+		if (elementReferrers == null) {
+			elementReferrers = new Referrers();
+			elementReferrers.add(referrer);
+
+			// publish complete referrers only
+			referrers.put(element, elementReferrers);
+		} else {
+			elementReferrers.add(referrer);
+		}
+	}
+
+	/**
+	 * Notification from an element of an added reference.
+	 */
+	void referenceAdded(Element referrer, Element element) {
+		Map<Element, Referrers> referrers = this.referrers;
+		if (referrers != null) {
+			addReferrer(referrers, referrer, element);
+		}
+
+		if (referrer instanceof Engaging && element instanceof Engageable) {
+			((Engageable) element).engagingReferenced((Engaging) referrer,
+					true);
+		}
+	}
+
+	/**
+	 * Notification from an element of a reference about to be removed.
+	 */
+	void referenceRemoved(Element referrer, Element element) {
+		Map<Element, Referrers> referrers = this.referrers;
+		if (referrers != null) {
+			Referrers elementReferrers = referrers.get(element);
+			if (elementReferrers != null && elementReferrers.remove(referrer)) {
+				referrers.remove(element);
 			}
 		}
-		return set;
+
+		if (referrer instanceof Engaging && element instanceof Engageable) {
+			((Engageable) element).engagingReferenced((Engaging) referrer,
+					false);
+		}
 	}
 
 	public Set<Element> getReferrer(Element element) {
@@ -0,0 +1,137 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.disposition;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The referrers of a single element, maintained by {@link Organ}.
+ * <p>
+ * Views filtered by class are prepared on each change, so lookups from other
+ * threads neither allocate nor alter any state.
+ */
+class Referrers {
+
+	/**
+	 * Count of references for each referrer - an element might reference
+	 * another element more than once.
+	 */
+	private Map<Element, Integer> counts = new LinkedHashMap<Element, Integer>();
+
+	/**
+	 * Immutable views by class of referrers.
+	 */
+	private volatile Map<Class<?>, Set<?>> views = Collections.emptyMap();
+
+	public void add(Element referrer) {
+		Integer count = counts.get(referrer);
+		if (count == null) {
+			counts.put(referrer, 1);
+
+			prepareViews();
+		} else {
+			counts.put(referrer, count + 1);
+		}
+	}
+
+	/**
+	 * Remove a reference from the given referrer.
+	 *
+	 * @param referrer
+	 *            the referrer
+	 * @return <code>true</code> if no referrers are left
+	 */
+	public boolean remove(Element referrer) {
+		Integer count = counts.get(referrer);
+		if (count != null) {
+			if (count == 1) {
+				counts.remove(referrer);
+
+				prepareViews();
+			} else {
+				counts.put(referrer, count - 1);
+			}
+		}
+
+		return counts.isEmpty();
+	}
+
+	/**
+	 * Get the referrers of the given class. The returned set is an immutable
+	 * snapshot, thus callers are free to change references while iterating
+	 * over it.
+	 *
+	 * @param clazz
+	 *            class of referrers
+	 * @return referrers
+	 */
+	@SuppressWarnings("unchecked")
+	public <E> Set<E> get(Class<E> clazz) {
+		Set<E> view = (Set<E>) views.get(clazz);
+		if (view == null) {
+			return Collections.emptySet();
+		}
+		return view;
+	}
+
+	/**
+	 * Prepare a view for each class and interface of the referrers.
+	 */
+	private void prepareViews() {
+		Map<Class<?>, Set<Element>> sets = new HashMap<Class<?>, Set<Element>>();
+		for (Element referrer : counts.keySet()) {
+			for (Class<?> clazz : getTypes(referrer.getClass())) {
+				Set<Element> set = sets.get(clazz);
+				if (set == null) {
+					set = new LinkedHashSet<Element>();
+					sets.put(clazz, set);
+				}
+				set.add(referrer);
+			}
+		}
+
+		Map<Class<?>, Set<?>> views = new HashMap<Class<?>, Set<?>>();
+		for (Map.Entry<Class<?>, Set<Element>> entry : sets.entrySet()) {
+			views.put(entry.getKey(), Collections.unmodifiableSet(entry
+					.getValue()));
+		}
+		this.views = views;
+	}
+
+	private static Set<Class<?>> getTypes(Class<?> clazz) {
+		Set<Class<?>> types = new HashSet<Class<?>>();
+		addTypes(clazz, types);
+		return types;
+	}
+
+	private static void addTypes(Class<?> clazz, Set<Class<?>> types) {
+		if (clazz != null && types.add(clazz)) {
+			addTypes(clazz.getSuperclass(), types);
+			for (Class<?> type : clazz.getInterfaces()) {
+				addTypes(type, types);
+			}
+		}
+	}
+}
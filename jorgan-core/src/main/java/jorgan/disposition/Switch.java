@@ -100,7 +100,7 @@ public class Switch extends Engageable {
 
 			onActivated(active);
 
-			engagingChanged(active);
+			engagedChanged(active);
 
 			for (Observer observer : getOrgan().getReferrer(this,
 					Observer.class)) {
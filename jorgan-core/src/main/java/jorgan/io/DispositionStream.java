@@ -20,6 +20,10 @@ package jorgan.io;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -30,17 +34,23 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Arrays;
 
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.converters.ConversionException;
 import com.thoughtworks.xstream.core.TreeMarshallingStrategy;
 import com.thoughtworks.xstream.io.AbstractDriver;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+import com.thoughtworks.xstream.io.binary.BinaryStreamDriver;
+import com.thoughtworks.xstream.io.copy.HierarchicalStreamCopier;
 import com.thoughtworks.xstream.io.naming.NameCoder;
 import com.thoughtworks.xstream.io.xml.KXml2Driver;
 import com.thoughtworks.xstream.io.xml.XmlFriendlyNameCoder;
 import com.thoughtworks.xstream.mapper.MapperWrapper;
 
 import bias.Configuration;
+import jorgan.Version;
 import jorgan.disposition.Element;
 import jorgan.disposition.Organ;
 import jorgan.io.disposition.ClassMapper;
@@ -58,11 +68,38 @@ import jorgan.util.IOUtils;
 
 /**
  * A {@link jorgan.disposition.Organ} streamer.
+ * <p>
+ * Dispositions are written as XML, or in a compact binary format if the file
+ * name ends with {@link #BINARY_SUFFIX}. On reading, the format is detected
+ * from the header of the file. Both formats hold the same content, so a
+ * disposition can be converted losslessly by reading it in one format and
+ * writing it in the other.
+ * <p>
+ * A binary disposition written by another version of jOrgan is read through
+ * XML, so it is converted like any XML disposition.
  */
 public class DispositionStream {
 
+	/**
+	 * The file suffix of binary dispositions.
+	 */
+	public static final String BINARY_SUFFIX = ".bdisposition";
+
 	private static final String ENCODING = "UTF-8";
 
+	/**
+	 * Header of binary dispositions, followed by the format version and the
+	 * version of jOrgan which wrote it.
+	 */
+	private static final byte[] BINARY_MAGIC = { 'j', 'O', 'r', 'g', 'a', 'n',
+			'B', 'D' };
+
+	/**
+	 * The version of the binary format, i.e. of the header and encoding - a
+	 * change of the disposition classes is covered by the version of jOrgan.
+	 */
+	private static final int BINARY_VERSION = 2;
+
 	private static Configuration config = Configuration.getRoot().get(DispositionStream.class);
 
 	private XStream xstream = new XStream(createDriver()) {
@@ -112,6 +149,10 @@ public class DispositionStream {
 	 * @throws Exception
 	 */
 	public Organ read(File file) throws IOException {
+		if (isBinary(file)) {
+			return readBinary(file);
+		}
+
 		InputStream input = new Conversion().convert(new FileInputStream(file));
 
 		try {
@@ -131,6 +172,110 @@ public class DispositionStream {
 		}
 	}
 
+	/**
+	 * Read a binary disposition.
+	 * 
+	 * @param file
+	 *            the file to read from
+	 * @return the read organ
+	 */
+	private Organ readBinary(File file) throws IOException {
+		InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return readBinary(input);
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+	}
+
+	/**
+	 * Read a binary disposition.
+	 * 
+	 * @param in
+	 *            the stream to read from
+	 * @return the read organ
+	 */
+	public Organ readBinary(InputStream in) throws IOException,
+			FormatException {
+		DataInputStream data = new DataInputStream(in);
+
+		byte[] magic = new byte[BINARY_MAGIC.length];
+		data.readFully(magic);
+		if (!Arrays.equals(magic, BINARY_MAGIC)) {
+			throw new IOException("not a binary disposition");
+		}
+
+		int version = data.readInt();
+		if (version > BINARY_VERSION) {
+			throw new IOException("unsupported binary version " + version);
+		}
+
+		// version 1 did not record the version of jOrgan
+		String written = version > 1 ? data.readUTF() : null;
+
+		HierarchicalStreamReader reader = new BinaryStreamDriver()
+				.createReader(data);
+		if (!new Version().get().equals(written)) {
+			return readConverted(reader);
+		}
+
+		try {
+			return (Organ) xstream.unmarshal(reader);
+		} catch (Exception ex) {
+			throw findFormatException(ex);
+		}
+	}
+
+	/**
+	 * Read a binary disposition written by another version of jOrgan, by
+	 * copying it into XML to be converted.
+	 */
+	private Organ readConverted(HierarchicalStreamReader reader)
+			throws IOException {
+		ByteArrayOutputStream xml = new ByteArrayOutputStream();
+		Writer writer = new OutputStreamWriter(xml, ENCODING);
+		try {
+			new HierarchicalStreamCopier().copy(reader, createDriver()
+					.createWriter(writer));
+			writer.flush();
+		} catch (Exception ex) {
+			throw findFormatException(ex);
+		}
+
+		InputStream input = new Conversion().convert(new ByteArrayInputStream(
+				xml.toByteArray()));
+		try {
+			return read(input);
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+	}
+
+	/**
+	 * Is the given file a binary disposition.
+	 * 
+	 * @param file
+	 *            file to test
+	 * @return <code>true</code> if binary
+	 */
+	public static boolean isBinary(File file) throws IOException {
+		InputStream input = new FileInputStream(file);
+		try {
+			byte[] magic = new byte[BINARY_MAGIC.length];
+			int length = 0;
+			while (length < magic.length) {
+				int count = input.read(magic, length, magic.length - length);
+				if (count == -1) {
+					return false;
+				}
+				length += count;
+			}
+			return Arrays.equals(magic, BINARY_MAGIC);
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+	}
+
 	private FormatException findFormatException(Throwable ex) throws FormatException {
 		if (ex instanceof ConversionException) {
 			// skip conversion wrapper exception
@@ -153,7 +298,11 @@ public class DispositionStream {
 
 		FileOutputStream output = new FileOutputStream(temp);
 		try {
-			write(organ, output);
+			if (file.getName().endsWith(BINARY_SUFFIX)) {
+				writeBinary(organ, output);
+			} else {
+				write(organ, output);
+			}
 		} finally {
 			IOUtils.closeQuietly(output);
 		}
@@ -174,6 +323,44 @@ public class DispositionStream {
 		xstream.toXML(organ, writer);
 	}
 
+	/**
+	 * Write a single element as an XML fragment, as it is contained in the
+	 * elements of a written organ.
+	 * 
+	 * @param element
+	 *            the element to write
+	 * @param out
+	 *            the stream to write to
+	 */
+	public void writeElement(Element element, OutputStream out)
+			throws IOException {
+
+		Writer writer = new OutputStreamWriter(new BufferedOutputStream(out),
+				ENCODING);
+		xstream.toXML(element, writer);
+	}
+
+	/**
+	 * Write a binary disposition.
+	 * 
+	 * @param organ
+	 *            the organ to write
+	 * @param out
+	 *            the stream to write to
+	 */
+	public void writeBinary(Organ organ, OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+				out));
+		data.write(BINARY_MAGIC);
+		data.writeInt(BINARY_VERSION);
+		data.writeUTF(new Version().get());
+
+		HierarchicalStreamWriter writer = new BinaryStreamDriver()
+				.createWriter(data);
+		xstream.marshal(organ, writer);
+		writer.flush();
+	}
+
 	private AbstractDriver createDriver() {
 		return new KXml2Driver(createNameCoder());
 	}
@@ -182,4 +369,4 @@ public class DispositionStream {
 		// replaced "$" and "_"
 		return new XmlFriendlyNameCoder("-", "_");
 	}
-}
\ No newline at end of file
+}
@@ -20,11 +20,23 @@ package jorgan.io.disposition;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Result;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
 import org.kxml2.io.KXmlParser;
 import org.xmlpull.v1.XmlPullParserException;
 
@@ -63,6 +75,16 @@ public class Conversion {
 			new Convert("3\\.(14|15-beta).*", "convert-3.15.xsl"),
 			new Convert("3\\.(15|16|17|18|19|20-beta1).*", "convert-3.20.xsl") };
 
+	/**
+	 * Convert the given stream to the current format.
+	 * <p>
+	 * All applicable {@link Convert}s are chained in memory, so the stream is
+	 * parsed once and serialized once only.
+	 * 
+	 * @param in
+	 *            stream to convert
+	 * @return converted stream
+	 */
 	public BufferedInputStream convert(InputStream in)
 			throws ConversionException, IOException {
 
@@ -70,6 +92,7 @@ public class Conversion {
 
 		String version = getVersion(buffered);
 
+		List<Convert> converts = new ArrayList<Convert>();
 		boolean apply = false;
 		for (Convert convert : list) {
 			if (apply || convert.isApplicable(version)) {
@@ -77,11 +100,48 @@ public class Conversion {
 
 				logger.log(Level.INFO, "applying '" + convert + "'");
 
-				buffered = new BufferedInputStream(convert.convert(buffered));
+				converts.add(convert);
+			}
+		}
+
+		if (converts.isEmpty()) {
+			return buffered;
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			Result result = new StreamResult(out);
+			boolean indent = true;
+			for (int c = converts.size() - 1; c > 0; c--) {
+				TransformerHandler handler = converts.get(c)
+						.newTransformerHandler();
+				if (indent) {
+					handler.getTransformer().setOutputProperty(
+							OutputKeys.INDENT, "yes");
+					indent = false;
+				}
+				handler.setResult(result);
+
+				SAXResult saxResult = new SAXResult(handler);
+				saxResult.setLexicalHandler(handler);
+				result = saxResult;
+			}
+
+			Transformer transformer = converts.get(0).newTransformer();
+			if (indent) {
+				transformer.setOutputProperty(OutputKeys.INDENT, "yes");
 			}
+			transformer.transform(new StreamSource(buffered), result);
+		} catch (TransformerException e) {
+			IOException ex = new IOException();
+			ex.initCause(e);
+			throw ex;
+		} finally {
+			buffered.close();
 		}
 
-		return buffered;
+		return new BufferedInputStream(new ByteArrayInputStream(out
+				.toByteArray()));
 	}
 
 	private String getVersion(InputStream in) throws IOException {
@@ -18,25 +18,38 @@
  */
 package jorgan.io.disposition;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.regex.Pattern;
 
 import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
+import jorgan.util.IOUtils;
+
 public class Convert {
 
+	private static SAXTransformerFactory factory;
+
 	private Pattern pattern;
 
 	private String xsl;
 
+	/**
+	 * The compiled stylesheet, lazily created on first conversion.
+	 */
+	private Templates templates;
+
 	public Convert(String pattern, String xsl) {
 		this.pattern = Pattern.compile(pattern);
 		this.xsl = xsl;
@@ -61,33 +74,95 @@ public class Convert {
 		}
 	}
 
+	/**
+	 * Convert the given stream.
+	 * 
+	 * @param in
+	 *            stream to convert, will be closed
+	 * @return converted stream
+	 * @see Conversion#convert(InputStream) for converting in a single pass
+	 *      over several {@link Convert}s
+	 */
 	public InputStream convert(InputStream in) throws IOException {
-		TransformerFactory factory = TransformerFactory.newInstance();
-		factory.setAttribute("indent-number", new Integer(4));
-
-		Transformer transform;
 		try {
-			InputStream stream = getSource();
-
-			transform = factory.newTransformer(new StreamSource(stream));
+			Transformer transform = newTransformer();
 
 			transform.setOutputProperty(OutputKeys.INDENT, "yes");
 
-			File temp = File.createTempFile(xsl + ".", ".xml");
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
 
-			transform.transform(new StreamSource(in), new StreamResult(temp));
+			transform.transform(new StreamSource(in), new StreamResult(out));
 
-			in.close();
-
-			return new FileInputStream(temp);
+			return new ByteArrayInputStream(out.toByteArray());
 		} catch (TransformerException e) {
 			IOException ex = new IOException();
 			ex.initCause(e);
 			throw ex;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Create a transformer for this conversion.
+	 */
+	Transformer newTransformer() throws TransformerException {
+		return getTemplates().newTransformer();
+	}
+
+	/**
+	 * Create a handler for this conversion, to be chained with the handlers
+	 * of other conversions.
+	 */
+	TransformerHandler newTransformerHandler() throws TransformerException {
+		Templates templates = getTemplates();
+
+		synchronized (Convert.class) {
+			return getFactory().newTransformerHandler(templates);
 		}
 	}
 
+	/**
+	 * Get the compiled stylesheet - it is compiled once only and shared by
+	 * all following conversions.
+	 */
+	private synchronized Templates getTemplates()
+			throws TransformerConfigurationException {
+		if (templates == null) {
+			InputStream stream = getSource();
+			if (stream == null) {
+				throw new TransformerConfigurationException("unknown '" + xsl
+						+ "'");
+			}
+
+			try {
+				synchronized (Convert.class) {
+					templates = getFactory().newTemplates(
+							new StreamSource(stream));
+				}
+			} finally {
+				IOUtils.closeQuietly(stream);
+			}
+		}
+		return templates;
+	}
+
 	private InputStream getSource() {
 		return Convert.class.getResourceAsStream("conversion/" + xsl);
 	}
+
+	private static SAXTransformerFactory getFactory()
+			throws TransformerConfigurationException {
+		if (factory == null) {
+			TransformerFactory factory = TransformerFactory.newInstance();
+			if (!factory.getFeature(SAXTransformerFactory.FEATURE)) {
+				throw new TransformerConfigurationException(
+						"SAX transformations not supported");
+			}
+			factory.setAttribute("indent-number", new Integer(4));
+
+			Convert.factory = (SAXTransformerFactory) factory;
+		}
+		return factory;
+	}
 }
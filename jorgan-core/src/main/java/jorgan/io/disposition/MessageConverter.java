@@ -18,6 +18,9 @@
  */
 package jorgan.io.disposition;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import jorgan.disposition.Message;
 import jorgan.disposition.Organ;
 import jorgan.midi.mpl.ProcessingException;
@@ -72,11 +75,33 @@ public class MessageConverter implements Converter {
 		String string = reader.getValue();
 
 		try {
-			message.change(Tuple.fromString(string));
+			message.change(getTuple(string, context));
 		} catch (ProcessingException ex) {
 			throw new ConversionException(ex);
 		}
 
 		return message;
 	}
+
+	/**
+	 * Get the tuple for the given string - identical strings are parsed once
+	 * only and share their immutable tuple.
+	 */
+	@SuppressWarnings("unchecked")
+	private Tuple getTuple(String string, UnmarshallingContext context)
+			throws ProcessingException {
+		Map<String, Tuple> tuples = (Map<String, Tuple>) context
+				.get(Tuple.class);
+		if (tuples == null) {
+			tuples = new HashMap<String, Tuple>();
+			context.put(Tuple.class, tuples);
+		}
+
+		Tuple tuple = tuples.get(string);
+		if (tuple == null) {
+			tuple = Tuple.fromString(string);
+			tuples.put(string, tuple);
+		}
+		return tuple;
+	}
 }
\ No newline at end of file
@@ -70,7 +70,7 @@ public class OrganConverter implements Converter {
 	public Object unmarshal(HierarchicalStreamReader reader,
 			UnmarshallingContext context) {
 
-		Organ organ = (Organ) nested.unmarshal(reader, context);
+		final Organ organ = (Organ) nested.unmarshal(reader, context);
 
 		for (Element element : organ.getElements()) {
 			organ.bind(element);
@@ -78,6 +78,13 @@ public class OrganConverter implements Converter {
 
 		context.put(Organ.class, organ);
 
+		// after resolving of references
+		context.addCompletionCallback(new Runnable() {
+			public void run() {
+				organ.resolved();
+			}
+		}, -1);
+
 		return organ;
 	}
 }
\ No newline at end of file
@@ -19,6 +19,7 @@
 package jorgan.midi;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -30,6 +31,9 @@ import javax.sound.midi.Transmitter;
 
 /**
  * A <code>MidiDevice</code> serving as a loopback.
+ * <p>
+ * Messages are looped out without locking, transmitters are kept in a
+ * copy-on-write array, so multiple threads can loop out concurrently.
  */
 public class Loopback implements MidiDevice {
 
@@ -41,16 +45,16 @@ public class Loopback implements MidiDevice {
 	/**
 	 * Is this device open.
 	 */
-	private boolean open;
+	private volatile boolean open;
 
 	private boolean allowReceivers;
 
 	private boolean allowTransmitters;
 
 	/**
-	 * The created transmitters.
+	 * The created transmitters, replaced on each change.
 	 */
-	private List<LoopbackTransmitter> transmitters = new ArrayList<LoopbackTransmitter>();
+	private volatile LoopbackTransmitter[] transmitters = new LoopbackTransmitter[0];
 
 	/**
 	 * The created receivers.
@@ -113,7 +117,7 @@ public class Loopback implements MidiDevice {
 	 * @since 1.5
 	 */
 	public List<Transmitter> getTransmitters() {
-		return new ArrayList<Transmitter>(transmitters);
+		return new ArrayList<Transmitter>(Arrays.asList(transmitters));
 	}
 
 	public long getMicrosecondPosition() {
@@ -190,12 +194,11 @@ public class Loopback implements MidiDevice {
 		loopOut(message);
 	}
 
-	protected synchronized void loopOut(MidiMessage message) {
+	protected void loopOut(MidiMessage message) {
 		if (isOpen()) {
-			for (int r = 0; r < transmitters.size(); r++) {
-				LoopbackTransmitter transmitter = transmitters.get(r);
-
-				transmitter.transmit(message);
+			LoopbackTransmitter[] transmitters = this.transmitters;
+			for (int t = 0; t < transmitters.length; t++) {
+				transmitters[t].transmit(message);
 			}
 		}
 	}
@@ -238,10 +241,13 @@ public class Loopback implements MidiDevice {
 		/**
 		 * The receiver to transmit messages to.
 		 */
-		private Receiver receiver;
+		private volatile Receiver receiver;
 
 		private LoopbackTransmitter() {
-			transmitters.add(this);
+			LoopbackTransmitter[] temp = Arrays.copyOf(transmitters,
+					transmitters.length + 1);
+			temp[temp.length - 1] = this;
+			transmitters = temp;
 		}
 
 		/**
@@ -270,6 +276,7 @@ public class Loopback implements MidiDevice {
 		 *            message to transmit
 		 */
 		protected void transmit(MidiMessage message) {
+			Receiver receiver = this.receiver;
 			if (receiver != null) {
 				receiver.send(message, -1);
 			}
@@ -285,7 +292,10 @@ public class Loopback implements MidiDevice {
 				}
 				closed = true;
 
-				transmitters.remove(this);
+				List<LoopbackTransmitter> temp = new ArrayList<LoopbackTransmitter>(
+						Arrays.asList(transmitters));
+				temp.remove(this);
+				transmitters = temp.toArray(new LoopbackTransmitter[temp.size()]);
 			}
 		}
 	}
@@ -0,0 +1,148 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.midi;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.SysexMessage;
+
+import jorgan.util.Ring;
+
+/**
+ * A bounded lock-free queue of {@link MidiMessage}s for multiple producers
+ * and a single consumer.
+ * <p>
+ * Short messages are kept as packed data, so offering does not allocate. Each
+ * poll creates a message of its own on the consumer's thread, which the
+ * consumer may pass on to receivers holding on to it.
+ */
+public class MessageQueue {
+
+	private final Ring ring;
+
+	/**
+	 * Packed status and data of short messages.
+	 */
+	private final int[] shortMessages;
+
+	private final MidiMessage[] messages;
+
+	/**
+	 * Create a queue.
+	 * 
+	 * @param capacity
+	 *            capacity, see {@link Ring#Ring(int)}
+	 */
+	public MessageQueue(int capacity) {
+		ring = new Ring(capacity);
+
+		shortMessages = new int[ring.getCapacity()];
+		messages = new MidiMessage[ring.getCapacity()];
+	}
+
+	public int getCapacity() {
+		return ring.getCapacity();
+	}
+
+	/**
+	 * Offer the given message - short messages are copied.
+	 * 
+	 * @return <code>false</code> if the queue is full
+	 */
+	public boolean offer(MidiMessage message) {
+		if (message instanceof ShortMessage) {
+			ShortMessage shortMessage = (ShortMessage) message;
+			return offer(shortMessage.getStatus(), shortMessage.getData1(),
+					shortMessage.getData2());
+		}
+
+		long position = ring.claim();
+		if (position == -1) {
+			return false;
+		}
+
+		messages[ring.index(position)] = message;
+		ring.publish(position);
+
+		return true;
+	}
+
+	/**
+	 * Offer a short message.
+	 * 
+	 * @return <code>false</code> if the queue is full
+	 */
+	public boolean offer(int status, int data1, int data2) {
+		if (status < 0x80 || status > 0xff
+				|| status == SysexMessage.SYSTEM_EXCLUSIVE
+				|| status == ShortMessage.END_OF_EXCLUSIVE) {
+			throw new IllegalArgumentException("invalid status " + status);
+		}
+
+		long position = ring.claim();
+		if (position == -1) {
+			return false;
+		}
+
+		int index = ring.index(position);
+		shortMessages[index] = status | (data1 & 0x7f) << 8
+				| (data2 & 0x7f) << 16;
+		messages[index] = null;
+		ring.publish(position);
+
+		return true;
+	}
+
+	/**
+	 * Poll the next message - to be called by the single consumer only.
+	 * 
+	 * @return message or <code>null</code>
+	 */
+	public MidiMessage poll() {
+		if (ring.isEmpty()) {
+			return null;
+		}
+
+		int index = ring.head();
+		MidiMessage message = messages[index];
+		if (message == null) {
+			int data = shortMessages[index];
+			try {
+				message = MessageUtils.createMessage(data & 0xff,
+						(data >> 8) & 0xff, (data >> 16) & 0xff);
+			} catch (InvalidMidiDataException ex) {
+				throw new Error(ex);
+			}
+		} else {
+			messages[index] = null;
+		}
+
+		ring.release();
+
+		return message;
+	}
+
+	/**
+	 * Is this queue empty - to be called by the single consumer only.
+	 */
+	public boolean isEmpty() {
+		return ring.isEmpty();
+	}
+}
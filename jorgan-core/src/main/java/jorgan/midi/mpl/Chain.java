@@ -36,6 +36,10 @@ public class Chain extends Command {
 		return this.commands.length;
 	}
 
+	public Command get(int index) {
+		return this.commands[index];
+	}
+
 	@Override
 	public final float process(float value, Context context) {
 		// don't use iterator for performance
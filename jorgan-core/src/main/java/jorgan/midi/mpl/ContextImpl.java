@@ -18,29 +18,62 @@
  */
 package jorgan.midi.mpl;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
- * A context implementation.
+ * A context implementation, storing variables in an array indexed by their
+ * slot.
+ * 
+ * @see Variables
  */
-public class ContextImpl implements Context {
-	private Map<String, Float> map = new HashMap<String, Float>();
+public class ContextImpl implements SlotContext {
+
+	private float[] values;
+
+	public ContextImpl() {
+		values = new float[Variables.getCount()];
+		Arrays.fill(values, Float.NaN);
+	}
 
 	public float get(String name) {
-		Float temp = map.get(name);
-		if (temp == null) {
+		if (name == null) {
 			return Float.NaN;
-		} else {
-			return temp;
 		}
+		int slot = Variables.lookup(name);
+		if (slot == -1) {
+			// never set
+			return Float.NaN;
+		}
+		return get(slot);
 	}
 
 	public void set(String name, float value) {
-		map.put(name, value);
+		if (name != null) {
+			set(Variables.slot(name), value);
+		}
+	}
+
+	public float get(int slot) {
+		if (slot < values.length) {
+			return values[slot];
+		} else {
+			return Float.NaN;
+		}
+	}
+
+	public void set(int slot, float value) {
+		if (slot >= values.length) {
+			int length = values.length;
+
+			// variable registered after creation of this context
+			values = Arrays.copyOf(values, Variables.getCount());
+			Arrays.fill(values, length, values.length, Float.NaN);
+		}
+
+		values[slot] = value;
 	}
 
 	public void clear() {
-		map.clear();
+		Arrays.fill(values, Float.NaN);
 	}
-}
\ No newline at end of file
+}
@@ -26,6 +26,10 @@ public class Get extends AbstractCommand {
 		this.name = name;
 	}
 
+	public String getName() {
+		return name;
+	}
+
 	@Override
 	public float process(float value, Context context) {
 		context.set(name, value);
@@ -0,0 +1,297 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.midi.mpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link Tuple} compiled into a flat program of instructions, sparing the
+ * virtual dispatch over the tree of {@link Command}s. Variables are resolved
+ * to slots at compile time.
+ * 
+ * @see #compile(Tuple)
+ */
+public class Program {
+
+	private static final int EQUAL = 0;
+	private static final int NOT_EQUAL = 1;
+	private static final int GREATER = 2;
+	private static final int GREATER_EQUAL = 3;
+	private static final int LESS = 4;
+	private static final int LESS_EQUAL = 5;
+	private static final int SET = 6;
+	private static final int ADD = 7;
+	private static final int SUB = 8;
+	private static final int MULT = 9;
+	private static final int DIV = 10;
+	private static final int MOD = 11;
+	private static final int GET = 12;
+	private static final int ROUND = 13;
+	private static final int COMMAND = 14;
+
+	/**
+	 * Index of first instruction for each element of the tuple, terminated
+	 * with the total count of instructions.
+	 */
+	private int[] starts;
+
+	private int[] codes;
+
+	/**
+	 * Slot of variable for each instruction or <code>-1</code>.
+	 */
+	private int[] slots;
+
+	/**
+	 * Name of variable for each instruction, used for contexts not supporting
+	 * slots.
+	 */
+	private String[] names;
+
+	private float[] values;
+
+	/**
+	 * Commands which could not be compiled.
+	 */
+	private Command[] commands;
+
+	private Program(int[] starts, List<Command> commands) {
+		this.starts = starts;
+
+		int count = commands.size();
+		this.codes = new int[count];
+		this.slots = new int[count];
+		this.names = new String[count];
+		this.values = new float[count];
+		this.commands = new Command[count];
+
+		for (int i = 0; i < count; i++) {
+			compile(i, commands.get(i));
+		}
+	}
+
+	private void compile(int i, Command command) {
+		slots[i] = -1;
+
+		Class<?> clazz = command.getClass();
+		if (clazz == Equal.class) {
+			condition(i, EQUAL, (Condition) command);
+		} else if (clazz == NotEqual.class) {
+			condition(i, NOT_EQUAL, (Condition) command);
+		} else if (clazz == Greater.class) {
+			condition(i, GREATER, (Condition) command);
+		} else if (clazz == GreaterEqual.class) {
+			condition(i, GREATER_EQUAL, (Condition) command);
+		} else if (clazz == Less.class) {
+			condition(i, LESS, (Condition) command);
+		} else if (clazz == LessEqual.class) {
+			condition(i, LESS_EQUAL, (Condition) command);
+		} else if (clazz == Set.class) {
+			value(i, SET, (ValueCommand) command);
+		} else if (clazz == Add.class) {
+			value(i, ADD, (ValueCommand) command);
+		} else if (clazz == Sub.class) {
+			value(i, SUB, (ValueCommand) command);
+		} else if (clazz == Mult.class) {
+			value(i, MULT, (ValueCommand) command);
+		} else if (clazz == Div.class) {
+			value(i, DIV, (ValueCommand) command);
+		} else if (clazz == Mod.class) {
+			value(i, MOD, (ValueCommand) command);
+		} else if (clazz == Get.class && ((Get) command).getName() != null) {
+			codes[i] = GET;
+			variable(i, ((Get) command).getName());
+		} else if (clazz == Round.class) {
+			codes[i] = ROUND;
+		} else {
+			codes[i] = COMMAND;
+			commands[i] = command;
+		}
+	}
+
+	private void condition(int i, int code, Condition condition) {
+		codes[i] = code;
+		values[i] = condition.getValue();
+	}
+
+	private void value(int i, int code, ValueCommand command) {
+		codes[i] = code;
+		values[i] = command.getValue();
+		if (command.getName() != null) {
+			variable(i, command.getName());
+		}
+	}
+
+	private void variable(int i, String name) {
+		slots[i] = Variables.slot(name);
+		names[i] = name;
+	}
+
+	/**
+	 * Get the length of the compiled tuple.
+	 * 
+	 * @return length
+	 */
+	public int getLength() {
+		return starts.length - 1;
+	}
+
+	/**
+	 * Process the given value with the commands at the given index of the
+	 * compiled tuple.
+	 * 
+	 * @param index
+	 *            index in tuple
+	 * @param value
+	 *            value to process
+	 * @param context
+	 *            context of processing
+	 * @return processed value, {@link Float#NaN} if not matching
+	 * @see Command#process(float, Context)
+	 */
+	public float process(int index, float value, Context context) {
+		// don't use sub-methods for performance
+		int end = starts[index + 1];
+		for (int i = starts[index]; i < end; i++) {
+			switch (codes[i]) {
+			case EQUAL:
+				if (!(value == values[i])) {
+					return Float.NaN;
+				}
+				break;
+			case NOT_EQUAL:
+				if (!(value != values[i])) {
+					return Float.NaN;
+				}
+				break;
+			case GREATER:
+				if (!(value > values[i])) {
+					return Float.NaN;
+				}
+				break;
+			case GREATER_EQUAL:
+				if (!(value >= values[i])) {
+					return Float.NaN;
+				}
+				break;
+			case LESS:
+				if (!(value < values[i])) {
+					return Float.NaN;
+				}
+				break;
+			case LESS_EQUAL:
+				if (!(value <= values[i])) {
+					return Float.NaN;
+				}
+				break;
+			case SET:
+				value = get(i, context);
+				break;
+			case ADD:
+				value = value + get(i, context);
+				break;
+			case SUB:
+				value = value - get(i, context);
+				break;
+			case MULT:
+				value = value * get(i, context);
+				break;
+			case DIV:
+				value = value / get(i, context);
+				break;
+			case MOD:
+				value = value % get(i, context);
+				break;
+			case GET:
+				if (context instanceof SlotContext) {
+					((SlotContext) context).set(slots[i], value);
+				} else {
+					context.set(names[i], value);
+				}
+				break;
+			case ROUND:
+				value = Math.round(value);
+				break;
+			default:
+				value = commands[i].process(value, context);
+			}
+
+			if (Float.isNaN(value)) {
+				break;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Get the value of the instruction.
+	 * 
+	 * @see ValueCommand#getValue(Context)
+	 */
+	private float get(int i, Context context) {
+		float value = Float.NaN;
+
+		int slot = slots[i];
+		if (slot != -1) {
+			if (context instanceof SlotContext) {
+				value = ((SlotContext) context).get(slot);
+			} else {
+				value = context.get(names[i]);
+			}
+		}
+
+		if (Float.isNaN(value)) {
+			value = values[i];
+		}
+		return value;
+	}
+
+	/**
+	 * Compile the given tuple.
+	 * 
+	 * @param tuple
+	 *            tuple to compile
+	 * @return compiled program
+	 */
+	public static Program compile(Tuple tuple) {
+		int[] starts = new int[tuple.getLength() + 1];
+		List<Command> commands = new ArrayList<Command>();
+
+		for (int c = 0; c < tuple.getLength(); c++) {
+			starts[c] = commands.size();
+
+			flatten(tuple.get(c), commands);
+		}
+		starts[tuple.getLength()] = commands.size();
+
+		return new Program(starts, commands);
+	}
+
+	private static void flatten(Command command, List<Command> commands) {
+		if (command instanceof Chain) {
+			Chain chain = (Chain) command;
+			for (int c = 0; c < chain.length(); c++) {
+				flatten(chain.get(c), commands);
+			}
+		} else if (command.getClass() != NoOp.class) {
+			commands.add(command);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.midi.mpl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of variable names, each name is interned to a slot. Slots of
+ * well-known variables are available as constants.
+ * 
+ * @see SlotContext
+ * @see Program
+ */
+public class Variables {
+
+	private static Map<String, Integer> slots = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * Names by slot, replaced on registration of a new name so reading is
+	 * possible without locking.
+	 */
+	private static volatile String[] names = new String[0];
+
+	public static final int PITCH = slot("pitch");
+
+	public static final int VELOCITY = slot("velocity");
+
+	public static final int VALUE = slot("value");
+
+	public static final int CHANNEL = slot("channel");
+
+	private Variables() {
+	}
+
+	/**
+	 * Get the slot for the given variable name, registering it if necessary.
+	 * 
+	 * @param name
+	 *            name of variable
+	 * @return slot
+	 */
+	public static int slot(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("name must not be null");
+		}
+
+		Integer slot = slots.get(name);
+		if (slot == null) {
+			slot = register(name);
+		}
+		return slot;
+	}
+
+	/**
+	 * Look up the slot for the given variable name without registering it.
+	 * 
+	 * @param name
+	 *            name of variable
+	 * @return slot or <code>-1</code> if not registered
+	 */
+	public static int lookup(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("name must not be null");
+		}
+
+		Integer slot = slots.get(name);
+		if (slot == null) {
+			return -1;
+		}
+		return slot;
+	}
+
+	private static synchronized int register(String name) {
+		Integer slot = slots.get(name);
+		if (slot == null) {
+			slot = names.length;
+
+			String[] names = new String[slot + 1];
+			System.arraycopy(Variables.names, 0, names, 0, slot);
+			names[slot] = name;
+			Variables.names = names;
+
+			slots.put(name, slot);
+		}
+		return slot;
+	}
+
+	/**
+	 * Get the name of the variable in the given slot.
+	 * 
+	 * @param slot
+	 *            slot
+	 * @return name
+	 */
+	public static String name(int slot) {
+		return names[slot];
+	}
+
+	/**
+	 * Get the count of registered variables.
+	 * 
+	 * @return count
+	 */
+	public static int getCount() {
+		return names.length;
+	}
+}
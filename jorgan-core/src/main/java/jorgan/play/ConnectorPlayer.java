@@ -18,6 +18,9 @@
  */
 package jorgan.play;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiMessage;
 import javax.sound.midi.MidiUnavailableException;
@@ -38,6 +41,11 @@ public class ConnectorPlayer<E extends Connector> extends Player<E> {
 
 	private Receiver receiver;
 
+	/**
+	 * Players of referenced elements for each status, lazily built.
+	 */
+	private Player<?>[][] receivers;
+
 	public ConnectorPlayer(E connector) {
 		super(connector);
 	}
@@ -131,11 +139,49 @@ public class ConnectorPlayer<E extends Connector> extends Player<E> {
 
 		byte[] datas = MessageUtils.getDatas(midiMessage);
 
-		for (Element element : getElement().getReferenced(Element.class)) {
-			Player<?> player = getPlayer(element);
-			if (player != null) {
-				player.onReceived(datas);
+		Player<?>[] players = getReceivers(datas);
+		for (int p = 0; p < players.length; p++) {
+			players[p].onReceived(datas);
+		}
+	}
+
+	private Player<?>[] getReceivers(byte[] datas) {
+		if (receivers == null) {
+			receivers = new Player<?>[257][];
+
+			List<Player<?>> all = new ArrayList<Player<?>>();
+			for (Element element : getElement().getReferenced(Element.class)) {
+				Player<?> player = getPlayer(element);
+				if (player != null) {
+					all.add(player);
+				}
 			}
+			receivers[256] = all.toArray(new Player<?>[all.size()]);
+
+			List<Player<?>> players = new ArrayList<Player<?>>();
+			for (int status = 0; status < 256; status++) {
+				players.clear();
+				for (Player<?> player : all) {
+					if (player.receives(status)) {
+						players.add(player);
+					}
+				}
+				receivers[status] = players.toArray(new Player<?>[players
+						.size()]);
+			}
+		}
+
+		if (datas.length == 0) {
+			return receivers[256];
 		}
+		return receivers[datas[0] & 0xff];
+	}
+
+	/**
+	 * Notification that the referenced elements or their players have
+	 * changed.
+	 */
+	void receiversChanged() {
+		receivers = null;
 	}
 }
\ No newline at end of file
@@ -27,6 +27,7 @@ import jorgan.disposition.ContinuousFilter;
 import jorgan.disposition.ContinuousFilter.Engaging;
 import jorgan.disposition.ContinuousFilter.Intercept;
 import jorgan.midi.mpl.Context;
+import jorgan.midi.mpl.Variables;
 import jorgan.play.sound.Channel;
 import jorgan.util.Null;
 
@@ -122,7 +123,7 @@ public class ContinuousFilterPlayer extends ContinuousPlayer<ContinuousFilter>
 
 		private void engaging(float value) {
 			for (Engaging engaging : getElement().getMessages(Engaging.class)) {
-				set(Engaging.VALUE, value);
+				set(Variables.VALUE, value);
 				output(engaging, this);
 			}
 		}
@@ -23,6 +23,7 @@ import jorgan.disposition.Continuous.Change;
 import jorgan.disposition.Continuous.Changed;
 import jorgan.disposition.Input.InputMessage;
 import jorgan.midi.mpl.Context;
+import jorgan.midi.mpl.Variables;
 import jorgan.problem.Severity;
 
 /**
@@ -69,7 +70,7 @@ public class ContinuousPlayer<E extends Continuous> extends Player<E> {
 		Continuous continuous = getElement();
 
 		for (Changed message : continuous.getMessages(Changed.class)) {
-			outputContext.set(Changed.VALUE, continuous.getValue());
+			outputContext.set(Variables.VALUE, continuous.getValue());
 
 			output(message, outputContext);
 		}
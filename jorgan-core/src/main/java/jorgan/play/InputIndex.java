@@ -0,0 +1,179 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.play;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jorgan.disposition.Input.InputMessage;
+import jorgan.disposition.Message;
+import jorgan.midi.mpl.Chain;
+import jorgan.midi.mpl.Command;
+import jorgan.midi.mpl.Equal;
+
+/**
+ * An index of {@link InputMessage}s for dispatching of received data, keyed
+ * by the {@link Equal} commands leading the status and first data byte of
+ * each message.
+ */
+class InputIndex {
+
+	private static final InputMessage[] NONE = new InputMessage[0];
+
+	private InputMessage[] all;
+
+	/**
+	 * Candidates for each status.
+	 */
+	private InputMessage[][] byStatus = new InputMessage[256][];
+
+	/**
+	 * Candidates for each status and first data byte, <code>null</code> if no
+	 * message is keyed on its first data byte.
+	 */
+	private InputMessage[][][] byData1;
+
+	public InputIndex(List<InputMessage> messages) {
+		all = messages.toArray(new InputMessage[messages.size()]);
+
+		int[] statuses = new int[all.length];
+		int[] data1s = new int[all.length];
+		for (int m = 0; m < all.length; m++) {
+			statuses[m] = key(all[m], Message.STATUS);
+			data1s[m] = key(all[m], Message.DATA1);
+		}
+
+		for (int status = 0; status < 256; status++) {
+			List<InputMessage> candidates = new ArrayList<InputMessage>();
+			boolean keyedOnData1 = false;
+			for (int m = 0; m < all.length; m++) {
+				if (statuses[m] == -1 || statuses[m] == status) {
+					candidates.add(all[m]);
+
+					keyedOnData1 |= data1s[m] != -1;
+				}
+			}
+			byStatus[status] = toArray(candidates);
+
+			if (keyedOnData1) {
+				if (byData1 == null) {
+					byData1 = new InputMessage[256][][];
+				}
+				byData1[status] = new InputMessage[256][];
+
+				candidates.clear();
+				for (int m = 0; m < all.length; m++) {
+					if ((statuses[m] == -1 || statuses[m] == status)
+							&& data1s[m] == -1) {
+						candidates.add(all[m]);
+					}
+				}
+				Arrays.fill(byData1[status], toArray(candidates));
+
+				for (int m = 0; m < all.length; m++) {
+					if ((statuses[m] == -1 || statuses[m] == status)
+							&& data1s[m] != -1) {
+						int data1 = data1s[m];
+
+						candidates.clear();
+						for (int n = 0; n < all.length; n++) {
+							if ((statuses[n] == -1 || statuses[n] == status)
+									&& (data1s[n] == -1 || data1s[n] == data1)) {
+								candidates.add(all[n]);
+							}
+						}
+						byData1[status][data1] = toArray(candidates);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Are there candidates for the given status.
+	 * 
+	 * @param status
+	 *            status
+	 * @return <code>true</code> if there are candidates
+	 */
+	public boolean hasCandidates(int status) {
+		return byStatus[status].length > 0;
+	}
+
+	/**
+	 * Get candidates for the given data.
+	 * 
+	 * @param datas
+	 *            received data
+	 * @return candidates
+	 */
+	public InputMessage[] getCandidates(byte[] datas) {
+		if (datas.length == 0) {
+			return all;
+		}
+
+		int status = datas[0] & 0xff;
+		if (datas.length == 1 || byData1 == null || byData1[status] == null) {
+			return byStatus[status];
+		}
+
+		return byData1[status][datas[1] & 0xff];
+	}
+
+	private InputMessage[] toArray(List<InputMessage> candidates) {
+		if (candidates.isEmpty()) {
+			return NONE;
+		} else if (candidates.size() == all.length) {
+			return all;
+		}
+		return candidates.toArray(new InputMessage[candidates.size()]);
+	}
+
+	/**
+	 * Get the key of the message at the given index.
+	 * 
+	 * @return key or <code>-1</code> if the message is not keyed
+	 */
+	private static int key(Message message, int index) {
+		if (message.getLength() <= index) {
+			return -1;
+		}
+
+		Command command = message.get(index);
+		if (command instanceof Chain) {
+			Chain chain = (Chain) command;
+			if (chain.length() == 0) {
+				return -1;
+			}
+			command = chain.get(0);
+		}
+
+		if (command instanceof Equal) {
+			float value = ((Equal) command).getValue();
+
+			int key = (int) value;
+			if (key == value && key >= 0 && key < 256) {
+				return key;
+			}
+		}
+
+		return -1;
+	}
+}
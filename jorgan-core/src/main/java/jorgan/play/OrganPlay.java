@@ -20,11 +20,22 @@ package jorgan.play;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import javax.sound.midi.MidiDevice;
 import javax.sound.midi.MidiMessage;
@@ -32,6 +43,7 @@ import javax.sound.midi.MidiUnavailableException;
 import javax.sound.midi.Receiver;
 import javax.sound.midi.Transmitter;
 
+import jorgan.disposition.Connector;
 import jorgan.disposition.Element;
 import jorgan.disposition.Keyboard;
 import jorgan.disposition.Organ;
@@ -42,18 +54,43 @@ import jorgan.midi.MidiGate;
 import jorgan.midi.ReceiverWrapper;
 import jorgan.midi.TransmitterWrapper;
 import jorgan.play.event.KeyListener;
+import jorgan.play.event.MetricsListener;
+import jorgan.play.event.PlayBatchListener;
+import jorgan.play.event.PlayEventBus;
 import jorgan.play.event.PlayListener;
+import jorgan.play.metrics.PlayMetrics;
 import jorgan.play.spi.PlayerRegistry;
 import jorgan.problem.ElementProblems;
 import jorgan.problem.Problem;
 import jorgan.time.Clock;
 import jorgan.time.WakeUp;
+import bias.Configuration;
 
 /**
  * A play of an organ.
+ * <p>
+ * Optionally an engine can be used, i.e. received MIDI messages, plays and
+ * alarms are queued by the producing threads and handled by a single thread.
+ * <p>
+ * Optionally the play can be instrumented, collecting {@link PlayMetrics}.
+ * 
+ * @see PlayQueue
+ * @see #getMetrics()
  */
 public abstract class OrganPlay {
 
+	private static Logger logger = Logger.getLogger(OrganPlay.class.getName());
+
+	private static Configuration config = Configuration.getRoot().get(
+			OrganPlay.class);
+
+	private static final long METRICS_PERIOD = 1000;
+
+	/**
+	 * Count of plays instrumented so far, distinguishing their metrics.
+	 */
+	private static final AtomicInteger instrumentations = new AtomicInteger();
+
 	private final MidiGate gate = new MidiGate();
 
 	private boolean open;
@@ -73,17 +110,50 @@ public abstract class OrganPlay {
 	 */
 	private List<PlayListener> playListeners = new ArrayList<PlayListener>();
 
+	/**
+	 * The bus for {@link PlayBatchListener}s.
+	 */
+	private PlayEventBus eventBus;
+
 	/**
 	 * All registered {@link KeyListener}s.
 	 */
 	private List<KeyListener> keyListeners = new ArrayList<KeyListener>();
 
+	/**
+	 * All registered {@link MetricsListener}s.
+	 */
+	private List<MetricsListener> metricsListeners = new CopyOnWriteArrayList<MetricsListener>();
+
 	private Organ organ;
 
 	private ElementProblems problems;
 
 	private Clock clock;
 
+	private boolean engine;
+
+	private int engineCapacity;
+
+	private PlayQueue.Wait engineWait;
+
+	private Engine engineThread;
+
+	private int eventCapacity = 1024;
+
+	private PlayEventBus.Overflow eventOverflow = PlayEventBus.Overflow.DROP_OLDEST;
+
+	private boolean instrumented;
+
+	/**
+	 * The metrics, <code>null</code> if not instrumented.
+	 */
+	private volatile PlayMetrics metrics;
+
+	private Timer metricsTimer;
+
+	private ObjectName metricsName;
+
 	/**
 	 * Creates a new organ player.
 	 * 
@@ -95,11 +165,25 @@ public abstract class OrganPlay {
 		this.problems = problems;
 		this.clock = clock;
 
+		config.read(this);
+
+		eventBus = new PlayEventBus(eventCapacity, eventOverflow);
+
 		organ.addOrganListener(eventHandler);
 
 		for (Element element : organ.getElements()) {
 			createPlayer(element);
 		}
+
+		if (engine) {
+			engineThread = new Engine(new PlayQueue(engineCapacity,
+					engineWait));
+			engineThread.start();
+		}
+
+		if (instrumented) {
+			startMetrics();
+		}
 	}
 
 	public abstract File resolve(String name) throws IOException;
@@ -115,6 +199,17 @@ public abstract class OrganPlay {
 		players.clear();
 
 		organ.removeOrganListener(eventHandler);
+
+		eventBus.destroy();
+
+		if (engineThread != null) {
+			engineThread.terminate();
+			engineThread = null;
+		}
+
+		if (metrics != null) {
+			stopMetrics();
+		}
 	}
 
 	public Organ getOrgan() {
@@ -145,6 +240,19 @@ public abstract class OrganPlay {
 		}
 	}
 
+	/**
+	 * Add a listener to be notified in batches on a separate thread.
+	 * 
+	 * @see #addPlayerListener(PlayListener)
+	 */
+	public void addPlayerListener(PlayBatchListener listener) {
+		eventBus.addListener(listener);
+	}
+
+	public void removePlayerListener(PlayBatchListener listener) {
+		eventBus.removeListener(listener);
+	}
+
 	public void addKeyListener(KeyListener listener) {
 		keyListeners.add(listener);
 	}
@@ -155,6 +263,16 @@ public abstract class OrganPlay {
 		}
 	}
 
+	public void addMetricsListener(MetricsListener listener) {
+		metricsListeners.add(listener);
+	}
+
+	public void removeMetricsListener(MetricsListener listener) {
+		if (!metricsListeners.remove(listener)) {
+			throw new IllegalArgumentException("unknown listener");
+		}
+	}
+
 	protected void fireKeyPressed(Keyboard keyboard, int pitch, int velocity) {
 		if (keyListeners != null) {
 			for (int l = 0; l < keyListeners.size(); l++) {
@@ -174,6 +292,8 @@ public abstract class OrganPlay {
 	}
 
 	protected void fireReceived(Element element, MidiMessage message) {
+		eventBus.post(element, message, false);
+
 		if (playListeners != null) {
 			for (int l = 0; l < playListeners.size(); l++) {
 				PlayListener listener = playListeners.get(l);
@@ -183,6 +303,13 @@ public abstract class OrganPlay {
 	}
 
 	public void fireSent(Element element, MidiMessage message) {
+		PlayMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.sentBy(element);
+		}
+
+		eventBus.post(element, message, true);
+
 		if (playListeners != null) {
 			for (int l = 0; l < playListeners.size(); l++) {
 				PlayListener listener = playListeners.get(l);
@@ -247,7 +374,15 @@ public abstract class OrganPlay {
 		open = false;
 	}
 
-	public synchronized void play(Element element, Playing playing) {
+	public void play(Element element, Playing playing) {
+		if (engineThread != null) {
+			engineThread.queue.offer(element, playing);
+		} else {
+			playImpl(element, playing);
+		}
+	}
+
+	private synchronized void playImpl(Element element, Playing playing) {
 		if (!open) {
 			return;
 		}
@@ -269,6 +404,8 @@ public abstract class OrganPlay {
 
 			player.update();
 		}
+
+		receiversChanged(element);
 	}
 
 	private synchronized void updatePlayer(Element element) {
@@ -285,6 +422,36 @@ public abstract class OrganPlay {
 
 			player.setOrganPlay(null);
 		}
+
+		receiversChanged(element);
+	}
+
+	private synchronized void messagesChanged(Element element) {
+		Player<? extends Element> player = getPlayer(element);
+		if (player != null) {
+			player.messagesChanged();
+		}
+
+		receiversChanged(element);
+	}
+
+	private synchronized void referencesChanged(Element element) {
+		Player<? extends Element> player = getPlayer(element);
+		if (player instanceof ConnectorPlayer<?>) {
+			((ConnectorPlayer<?>) player).receiversChanged();
+		}
+	}
+
+	/**
+	 * Let connectors referencing the given element update their receivers.
+	 */
+	private void receiversChanged(Element element) {
+		for (Connector connector : organ.getReferrer(element, Connector.class)) {
+			Player<? extends Element> player = getPlayer(connector);
+			if (player instanceof ConnectorPlayer<?>) {
+				((ConnectorPlayer<?>) player).receiversChanged();
+			}
+		}
 	}
 
 	protected void addProblem(Problem problem) {
@@ -311,6 +478,28 @@ public abstract class OrganPlay {
 		public void elementRemoved(Element element) {
 			dropPlayer(element);
 		}
+
+		@Override
+		public void indexedPropertyAdded(Element element, String name,
+				Object value) {
+			indexedPropertyChanged(element, name, value);
+		}
+
+		@Override
+		public void indexedPropertyChanged(Element element, String name,
+				Object value) {
+			if (Element.MESSAGE.equals(name)) {
+				messagesChanged(element);
+			} else if (Element.REFERENCE.equals(name)) {
+				referencesChanged(element);
+			}
+		}
+
+		@Override
+		public void indexedPropertyRemoved(Element element, String name,
+				Object value) {
+			indexedPropertyChanged(element, name, value);
+		}
 	}
 
 	/**
@@ -339,10 +528,36 @@ public abstract class OrganPlay {
 			}
 
 			public void setReceiver(final Receiver receiver) {
+				if (engineThread != null) {
+					final PlayQueue queue = engineThread.queue;
+					super.setReceiver(new ReceiverWrapper(receiver) {
+						public void send(MidiMessage message, long timestamp) {
+							queue.offer(receiver, message, timestamp,
+									metrics == null ? 0 : System.nanoTime());
+						}
+					});
+					return;
+				}
+
 				super.setReceiver(gate.guard(new ReceiverWrapper(receiver) {
 					public void send(MidiMessage message, long timestamp) {
-						synchronized (OrganPlay.this) {
-							super.send(message, timestamp);
+						PlayMetrics metrics = OrganPlay.this.metrics;
+						if (metrics == null) {
+							synchronized (OrganPlay.this) {
+								super.send(message, timestamp);
+							}
+						} else {
+							long nanos = System.nanoTime();
+							synchronized (OrganPlay.this) {
+								metrics.lockWaited(System.nanoTime() - nanos);
+
+								metrics.received(nanos);
+								try {
+									super.send(message, timestamp);
+								} finally {
+									metrics.processed();
+								}
+							}
 						}
 					}
 				}));
@@ -360,13 +575,23 @@ public abstract class OrganPlay {
 	 * @return transmitter
 	 * @throws MidiUnavailableException
 	 */
-	public Receiver createReceiver(String deviceName)
+	public Receiver createReceiver(final String deviceName)
 			throws MidiUnavailableException {
 		final MidiDevice device = DevicePool.instance().getMidiDevice(
 				deviceName, Direction.OUT);
 		device.open();
 
 		return new ReceiverWrapper(device.getReceiver()) {
+			@Override
+			public void send(MidiMessage message, long timeStamp) {
+				PlayMetrics metrics = OrganPlay.this.metrics;
+				if (metrics != null) {
+					metrics.sentTo(deviceName);
+				}
+
+				super.send(message, timeStamp);
+			}
+
 			@Override
 			public void close() {
 				super.close();
@@ -380,8 +605,78 @@ public abstract class OrganPlay {
 		public void play(Player<?> player);
 	}
 
+	/**
+	 * Get the queue of the engine.
+	 * 
+	 * @return queue or <code>null</code> if no engine is used
+	 */
+	public PlayQueue getQueue() {
+		if (engineThread == null) {
+			return null;
+		}
+		return engineThread.queue;
+	}
+
 	public void alarm(final WakeUp wakeUp, long delta) {
-		clock.alarm(new WakeUpWrapper(wakeUp), delta);
+		WakeUpWrapper wrapper = new WakeUpWrapper(wakeUp);
+		if (metrics != null) {
+			wrapper.deadline = System.nanoTime() + delta * 1000000;
+		}
+		clock.alarm(wrapper, delta);
+	}
+
+	/**
+	 * Get the metrics of this play.
+	 * 
+	 * @return metrics or <code>null</code> if not instrumented
+	 */
+	public PlayMetrics getMetrics() {
+		return metrics;
+	}
+
+	private void startMetrics() {
+		final PlayMetrics metrics = new PlayMetrics();
+
+		metricsTimer = new Timer("jOrgan Metrics", true);
+		metricsTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				metrics.update();
+
+				for (MetricsListener listener : metricsListeners) {
+					listener.metricsUpdated(metrics);
+				}
+			}
+		}, METRICS_PERIOD, METRICS_PERIOD);
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("jorgan:type=PlayMetrics,name="
+					+ instrumentations.incrementAndGet());
+			server.registerMBean(metrics, name);
+			metricsName = name;
+		} catch (JMException ex) {
+			logger.log(Level.WARNING, "unable to register metrics", ex);
+		}
+
+		this.metrics = metrics;
+	}
+
+	private void stopMetrics() {
+		metrics = null;
+
+		metricsTimer.cancel();
+		metricsTimer = null;
+
+		if (metricsName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+						metricsName);
+			} catch (JMException ex) {
+				logger.log(Level.WARNING, "unable to unregister metrics", ex);
+			}
+			metricsName = null;
+		}
 	}
 
 	/**
@@ -390,9 +685,14 @@ public abstract class OrganPlay {
 	 * 
 	 * @see OrganPlay#alarm(WakeUp, long)
 	 */
-	private final class WakeUpWrapper implements WakeUp {
+	private final class WakeUpWrapper implements WakeUp, Runnable {
 		private final WakeUp wakeUp;
 
+		/**
+		 * The deadline if instrumented.
+		 */
+		private long deadline;
+
 		private WakeUpWrapper(WakeUp wakeUp) {
 			this.wakeUp = wakeUp;
 		}
@@ -405,11 +705,119 @@ public abstract class OrganPlay {
 			return false;
 		}
 
+		@Override
+		public Object getKey() {
+			return wakeUp.getKey();
+		}
+
 		@Override
 		public void trigger() {
+			if (engineThread != null) {
+				engineThread.queue.offer(this);
+			} else {
+				run();
+			}
+		}
+
+		public void run() {
+			PlayMetrics metrics = OrganPlay.this.metrics;
+			if (metrics != null && deadline != 0) {
+				metrics.alarmed(System.nanoTime() - deadline);
+			}
+
 			synchronized (OrganPlay.this) {
 				wakeUp.trigger();
 			}
 		}
 	}
+
+	/**
+	 * The engine draining the queue.
+	 */
+	private final class Engine extends Thread implements PlayQueue.Handler {
+
+		private final PlayQueue queue;
+
+		private volatile boolean terminated;
+
+		private Engine(PlayQueue queue) {
+			super("jOrgan Play");
+
+			this.queue = queue;
+
+			setDaemon(true);
+			setPriority(MAX_PRIORITY);
+		}
+
+		@Override
+		public void run() {
+			while (!terminated) {
+				queue.await();
+
+				if (queue.getDepth() > 0) {
+					PlayMetrics metrics = OrganPlay.this.metrics;
+					long nanos = metrics == null ? 0 : System.nanoTime();
+
+					synchronized (OrganPlay.this) {
+						if (metrics != null) {
+							metrics.lockWaited(System.nanoTime() - nanos);
+						}
+
+						queue.drain(this);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Messages are dropped if not open.
+		 */
+		public void send(Receiver receiver, MidiMessage message,
+				long timeStamp, long nanos) {
+			if (open) {
+				PlayMetrics metrics = OrganPlay.this.metrics;
+				if (metrics != null) {
+					// time spent in the queue is included
+					metrics.received(nanos == 0 ? System.nanoTime() : nanos);
+				}
+
+				try {
+					receiver.send(message, timeStamp);
+				} catch (RuntimeException ex) {
+					logger.log(Level.WARNING, "send failed", ex);
+				} finally {
+					if (metrics != null) {
+						metrics.processed();
+					}
+				}
+			}
+		}
+
+		public void play(Element element, Playing playing) {
+			try {
+				playImpl(element, playing);
+			} catch (RuntimeException ex) {
+				logger.log(Level.WARNING, "play failed", ex);
+			}
+		}
+
+		public void run(Runnable task) {
+			try {
+				task.run();
+			} catch (RuntimeException ex) {
+				logger.log(Level.WARNING, "run failed", ex);
+			}
+		}
+
+		private void terminate() {
+			terminated = true;
+			queue.wakeUp();
+
+			try {
+				join();
+			} catch (InterruptedException interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
 }
\ No newline at end of file
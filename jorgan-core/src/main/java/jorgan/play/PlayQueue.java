@@ -0,0 +1,383 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.play;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+
+import jorgan.disposition.Element;
+import jorgan.util.Ring;
+
+/**
+ * A bounded lock-free queue of events for a single consumer, fed by multiple
+ * producers, e.g. the threads of MIDI devices.
+ * <p>
+ * All events are preallocated, thus offering an event does not allocate. When
+ * the queue is full, producers wait for the consumer to catch up - the
+ * consumer itself handles its offers immediately instead, since it would
+ * wait for itself forever.
+ * 
+ * @see #offer(Receiver, MidiMessage, long)
+ * @see #offer(Element, OrganPlay.Playing)
+ * @see #offer(Runnable)
+ * @see #drain(Handler)
+ */
+public class PlayQueue {
+
+	/**
+	 * The strategy of the consumer waiting for events.
+	 */
+	public static enum Wait {
+		/**
+		 * Busy-spin, lowest latency but occupying a processor.
+		 */
+		SPIN,
+
+		/**
+		 * Park for short periods.
+		 */
+		PARK,
+
+		/**
+		 * Block until woken up by a producer.
+		 */
+		BLOCK
+	}
+
+	private static final long PARK_NANOS = 50000;
+
+	private final Wait wait;
+
+	private final Ring ring;
+
+	private final Event[] events;
+
+	private volatile Thread consumer;
+
+	private volatile boolean waiting;
+
+	/**
+	 * The thread currently draining.
+	 */
+	private volatile Thread drainer;
+
+	/**
+	 * The handler of the current drain, accessed by the consumer only.
+	 */
+	private Handler handler;
+
+	private final AtomicLong offered = new AtomicLong();
+
+	private final AtomicLong stalls = new AtomicLong();
+
+	private volatile long drained;
+
+	private volatile int maxDepth;
+
+	/**
+	 * Create a queue.
+	 * 
+	 * @param capacity
+	 *            capacity, see {@link Ring#Ring(int)}
+	 * @param wait
+	 *            strategy for waiting of the consumer
+	 */
+	public PlayQueue(int capacity, Wait wait) {
+		if (wait == null) {
+			throw new IllegalArgumentException("wait must not be null");
+		}
+
+		this.wait = wait;
+
+		ring = new Ring(capacity);
+		events = new Event[ring.getCapacity()];
+		for (int e = 0; e < events.length; e++) {
+			events[e] = new Event();
+		}
+	}
+
+	public int getCapacity() {
+		return ring.getCapacity();
+	}
+
+	public Wait getWait() {
+		return wait;
+	}
+
+	/**
+	 * Offer a message to be sent to the given receiver.
+	 */
+	public void offer(Receiver receiver, MidiMessage message, long timeStamp) {
+		offer(receiver, message, timeStamp, 0);
+	}
+
+	/**
+	 * Offer a message to be sent to the given receiver.
+	 * 
+	 * @param nanos
+	 *            time of offering, e.g. to measure latency including the time
+	 *            spent in this queue, or <code>0</code>
+	 */
+	public void offer(Receiver receiver, MidiMessage message, long timeStamp,
+			long nanos) {
+		long position = claim();
+		if (position == -1) {
+			handler.send(receiver, message, timeStamp, nanos);
+			return;
+		}
+
+		Event event = events[ring.index(position)];
+		event.receiver = receiver;
+		event.message = message;
+		event.timeStamp = timeStamp;
+		event.nanos = nanos;
+
+		publish(position);
+	}
+
+	/**
+	 * Offer a playing of the given element.
+	 */
+	public void offer(Element element, OrganPlay.Playing playing) {
+		long position = claim();
+		if (position == -1) {
+			handler.play(element, playing);
+			return;
+		}
+
+		Event event = events[ring.index(position)];
+		event.element = element;
+		event.playing = playing;
+
+		publish(position);
+	}
+
+	/**
+	 * Offer a task to be run.
+	 */
+	public void offer(Runnable task) {
+		long position = claim();
+		if (position == -1) {
+			handler.run(task);
+			return;
+		}
+
+		Event event = events[ring.index(position)];
+		event.task = task;
+
+		publish(position);
+	}
+
+	/**
+	 * Claim the position of an event.
+	 * 
+	 * @return position or <code>-1</code> if the queue is full and the
+	 *         consumer is offering while draining
+	 */
+	private long claim() {
+		boolean stalled = false;
+
+		while (true) {
+			long position = ring.claim();
+			if (position != -1) {
+				return position;
+			}
+
+			// full, wait for the consumer to catch up
+			if (!stalled) {
+				stalled = true;
+				stalls.incrementAndGet();
+			}
+			if (drainer == Thread.currentThread()) {
+				return -1;
+			}
+			Thread.yield();
+		}
+	}
+
+	private void publish(long position) {
+		ring.publish(position);
+
+		offered.incrementAndGet();
+
+		if (waiting) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Drain all available events - must be called by the consumer only.
+	 * 
+	 * @param handler
+	 *            handler of drained events
+	 * @return count of drained events
+	 */
+	public int drain(Handler handler) {
+		this.handler = handler;
+		drainer = Thread.currentThread();
+
+		int depth = ring.getSize();
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+
+		int count = 0;
+		try {
+			while (!ring.isEmpty()) {
+				Event event = events[ring.head()];
+				try {
+					if (event.task != null) {
+						handler.run(event.task);
+					} else if (event.playing != null) {
+						handler.play(event.element, event.playing);
+					} else {
+						handler.send(event.receiver, event.message,
+								event.timeStamp, event.nanos);
+					}
+				} finally {
+					event.clear();
+
+					ring.release();
+					count++;
+				}
+			}
+		} finally {
+			drainer = null;
+			this.handler = null;
+		}
+
+		drained += count;
+		return count;
+	}
+
+	/**
+	 * Wait for events according to the strategy - must be called by the
+	 * consumer only.
+	 */
+	public void await() {
+		if (!ring.isEmpty()) {
+			return;
+		}
+
+		switch (wait) {
+		case SPIN:
+			Thread.onSpinWait();
+			break;
+		case PARK:
+			LockSupport.parkNanos(this, PARK_NANOS);
+			break;
+		case BLOCK:
+			consumer = Thread.currentThread();
+			waiting = true;
+			// check again, a producer might have missed us waiting
+			if (ring.isEmpty()) {
+				LockSupport.park(this);
+			}
+			waiting = false;
+			break;
+		}
+	}
+
+	/**
+	 * Wake up the consumer, e.g. for it to check for termination.
+	 */
+	public void wakeUp() {
+		Thread consumer = this.consumer;
+		if (consumer != null) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Get the current count of events waiting to be drained.
+	 */
+	public int getDepth() {
+		return ring.getSize();
+	}
+
+	/**
+	 * Get the maximum count of events found waiting on draining.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Get the total count of offered events.
+	 */
+	public long getOffered() {
+		return offered.get();
+	}
+
+	/**
+	 * Get the total count of drained events.
+	 */
+	public long getDrained() {
+		return drained;
+	}
+
+	/**
+	 * Get the count of producers that had to wait for the queue to be
+	 * drained.
+	 */
+	public long getStalls() {
+		return stalls.get();
+	}
+
+	/**
+	 * A handler of drained events.
+	 */
+	public static interface Handler {
+
+		public void send(Receiver receiver, MidiMessage message,
+				long timeStamp, long nanos);
+
+		public void play(Element element, OrganPlay.Playing playing);
+
+		public void run(Runnable task);
+	}
+
+	private static class Event {
+
+		private Receiver receiver;
+
+		private MidiMessage message;
+
+		private long timeStamp;
+
+		private long nanos;
+
+		private Element element;
+
+		private OrganPlay.Playing playing;
+
+		private Runnable task;
+
+		private void clear() {
+			receiver = null;
+			message = null;
+			element = null;
+			playing = null;
+			task = null;
+		}
+	}
+}
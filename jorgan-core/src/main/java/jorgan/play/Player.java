@@ -33,6 +33,7 @@ import jorgan.disposition.Message;
 import jorgan.disposition.Output.OutputMessage;
 import jorgan.midi.mpl.Context;
 import jorgan.midi.mpl.ContextImpl;
+import jorgan.midi.mpl.Program;
 import jorgan.problem.Problem;
 import jorgan.problem.Severity;
 
@@ -47,6 +48,11 @@ public abstract class Player<E extends Element> {
 
 	private PlayerContext inputContext = new PlayerContext();
 
+	/**
+	 * The index of input messages, lazily built.
+	 */
+	private InputIndex inputs;
+
 	/**
 	 * The element played by this player.
 	 */
@@ -182,7 +188,9 @@ public abstract class Player<E extends Element> {
 	public boolean onReceived(byte[] datas) {
 		boolean processed = false;
 
-		for (InputMessage message : element.getMessages(InputMessage.class)) {
+		InputMessage[] candidates = getInputs().getCandidates(datas);
+		for (int m = 0; m < candidates.length; m++) {
+			InputMessage message = candidates[m];
 			try {
 				if (inputContext.process(message, datas, false)) {
 					processed = true;
@@ -197,6 +205,32 @@ public abstract class Player<E extends Element> {
 		return processed;
 	}
 
+	/**
+	 * Might this player process received data with the given status.
+	 * 
+	 * @param status
+	 *            status of data
+	 * @return <code>true</code> if data might be processed
+	 * @see #onReceived(byte[])
+	 */
+	protected boolean receives(int status) {
+		return getInputs().hasCandidates(status);
+	}
+
+	private InputIndex getInputs() {
+		if (inputs == null) {
+			inputs = new InputIndex(element.getMessages(InputMessage.class));
+		}
+		return inputs;
+	}
+
+	/**
+	 * Notification that the messages of the element have changed.
+	 */
+	void messagesChanged() {
+		inputs = null;
+	}
+
 	/**
 	 * Read input from the given message - default implementation does nothing.
 	 * 
@@ -279,9 +313,11 @@ public abstract class Player<E extends Element> {
 				return false;
 			}
 
+			Program program = message.getProgram();
+
 			boolean valid = true;
 			for (int d = 0; d < datas.length; d++) {
-				float processed = message.process(datas[d] & 0xff, this, d);
+				float processed = program.process(d, datas[d] & 0xff, this);
 				if (Float.isNaN(processed)) {
 					return false;
 				}
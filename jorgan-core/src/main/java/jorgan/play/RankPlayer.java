@@ -31,6 +31,7 @@ import jorgan.disposition.Rank.NotePlayed;
 import jorgan.disposition.Sound;
 import jorgan.disposition.SoundFilter;
 import jorgan.midi.mpl.Context;
+import jorgan.midi.mpl.Variables;
 import jorgan.play.sound.Channel;
 import jorgan.problem.Severity;
 import jorgan.time.WakeUp;
@@ -216,8 +217,8 @@ public class RankPlayer extends Player<Rank> {
 		private void played(int pitch, int velocity) {
 			for (NotePlayed notePlayed : getElement().getMessages(
 					NotePlayed.class)) {
-				set(NotePlayed.PITCH, pitch);
-				set(NotePlayed.VELOCITY, velocity);
+				set(Variables.PITCH, pitch);
+				set(Variables.VELOCITY, velocity);
 				output(notePlayed, this);
 			}
 		}
@@ -225,7 +226,7 @@ public class RankPlayer extends Player<Rank> {
 		private void muted(int pitch) {
 			for (NoteMuted noteMuted : getElement()
 					.getMessages(NoteMuted.class)) {
-				set(NoteMuted.PITCH, pitch);
+				set(Variables.PITCH, pitch);
 				output(noteMuted, this);
 			}
 		}
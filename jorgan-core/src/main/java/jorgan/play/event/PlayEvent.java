@@ -0,0 +1,74 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.play.event;
+
+import javax.sound.midi.MidiMessage;
+
+import jorgan.disposition.Element;
+
+/**
+ * An event of a play, delivered in batches.
+ * 
+ * @see PlayBatchListener
+ */
+public class PlayEvent {
+
+	private final long time;
+
+	private final Element element;
+
+	private final MidiMessage message;
+
+	private final boolean sent;
+
+	public PlayEvent(long time, Element element, MidiMessage message,
+			boolean sent) {
+		this.time = time;
+		this.element = element;
+		this.message = message;
+		this.sent = sent;
+	}
+
+	/**
+	 * Get the time of this event.
+	 * 
+	 * @return time in milliseconds
+	 * @see System#currentTimeMillis()
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	public Element getElement() {
+		return element;
+	}
+
+	public MidiMessage getMessage() {
+		return message;
+	}
+
+	/**
+	 * Was the message sent or received.
+	 * 
+	 * @return <code>true</code> if sent
+	 */
+	public boolean isSent() {
+		return sent;
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.play.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.ShortMessage;
+
+import jorgan.disposition.Element;
+
+/**
+ * A bus delivering events of a play in batches to {@link PlayBatchListener}s.
+ * <p>
+ * Events are posted into a bounded ring buffer, which is drained by a
+ * separate thread.
+ * 
+ * @see Overflow
+ */
+public class PlayEventBus {
+
+	private static Logger logger = Logger.getLogger(PlayEventBus.class
+			.getName());
+
+	/**
+	 * The policy when posting into a full buffer.
+	 */
+	public static enum Overflow {
+		/**
+		 * Drop the oldest event.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * Replace a pending event of the same element and direction with
+		 * equal status and first data byte (e.g. changes of a controller),
+		 * otherwise drop the oldest event.
+		 */
+		COALESCE,
+
+		/**
+		 * Block until events are drained - listeners must not call back into
+		 * the play.
+		 */
+		BLOCK
+	}
+
+	private final Overflow overflow;
+
+	private final long[] times;
+
+	private final Element[] elements;
+
+	private final MidiMessage[] messages;
+
+	private final boolean[] sents;
+
+	private int head;
+
+	private int size;
+
+	private long dropped;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notEmpty = lock.newCondition();
+
+	private final Condition notFull = lock.newCondition();
+
+	private final List<PlayBatchListener> listeners = new CopyOnWriteArrayList<PlayBatchListener>();
+
+	private Thread thread;
+
+	private boolean terminated;
+
+	/**
+	 * Create a bus.
+	 * 
+	 * @param capacity
+	 *            capacity of the buffer
+	 * @param overflow
+	 *            policy on overflow
+	 */
+	public PlayEventBus(int capacity, Overflow overflow) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		if (overflow == null) {
+			throw new IllegalArgumentException("overflow must not be null");
+		}
+
+		this.overflow = overflow;
+
+		times = new long[capacity];
+		elements = new Element[capacity];
+		messages = new MidiMessage[capacity];
+		sents = new boolean[capacity];
+	}
+
+	public Overflow getOverflow() {
+		return overflow;
+	}
+
+	public void addListener(PlayBatchListener listener) {
+		listeners.add(listener);
+
+		lock.lock();
+		try {
+			if (thread == null && !terminated) {
+				thread = new Thread(new Runnable() {
+					public void run() {
+						drain();
+					}
+				}, "jOrgan Play Events");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void removeListener(PlayBatchListener listener) {
+		if (!listeners.remove(listener)) {
+			throw new IllegalArgumentException("unknown listener");
+		}
+	}
+
+	/**
+	 * Post an event - ignored if no listener is registered.
+	 */
+	public void post(Element element, MidiMessage message, boolean sent) {
+		if (listeners.isEmpty()) {
+			return;
+		}
+
+		long time = System.currentTimeMillis();
+
+		lock.lock();
+		try {
+			if (size == times.length) {
+				switch (overflow) {
+				case COALESCE:
+					if (coalesce(time, element, message, sent)) {
+						return;
+					}
+					dropOldest();
+					break;
+				case DROP_OLDEST:
+					dropOldest();
+					break;
+				case BLOCK:
+					while (size == times.length && !terminated) {
+						notFull.awaitUninterruptibly();
+					}
+					if (terminated) {
+						return;
+					}
+					break;
+				}
+			}
+
+			int index = (head + size) % times.length;
+			times[index] = time;
+			elements[index] = element;
+			messages[index] = message;
+			sents[index] = sent;
+			size++;
+
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void dropOldest() {
+		clear(head);
+		head = (head + 1) % times.length;
+		size--;
+
+		dropped++;
+	}
+
+	private boolean coalesce(long time, Element element, MidiMessage message,
+			boolean sent) {
+		if (!(message instanceof ShortMessage)) {
+			return false;
+		}
+		ShortMessage shortMessage = (ShortMessage) message;
+
+		// search newest first
+		for (int i = size - 1; i >= 0; i--) {
+			int index = (head + i) % times.length;
+
+			if (elements[index] == element && sents[index] == sent
+					&& messages[index] instanceof ShortMessage) {
+				ShortMessage other = (ShortMessage) messages[index];
+				if (other.getStatus() == shortMessage.getStatus()
+						&& other.getData1() == shortMessage.getData1()) {
+					times[index] = time;
+					messages[index] = message;
+
+					dropped++;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void clear(int index) {
+		elements[index] = null;
+		messages[index] = null;
+	}
+
+	/**
+	 * Get the count of events dropped or coalesced on overflow.
+	 */
+	public long getDropped() {
+		lock.lock();
+		try {
+			return dropped;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void drain() {
+		while (true) {
+			List<PlayEvent> events;
+
+			lock.lock();
+			try {
+				while (size == 0 && !terminated) {
+					notEmpty.awaitUninterruptibly();
+				}
+				if (terminated) {
+					break;
+				}
+
+				events = new ArrayList<PlayEvent>(size);
+				for (int i = 0; i < size; i++) {
+					int index = (head + i) % times.length;
+
+					events.add(new PlayEvent(times[index], elements[index],
+							messages[index], sents[index]));
+
+					clear(index);
+				}
+				head = (head + size) % times.length;
+				size = 0;
+
+				notFull.signalAll();
+			} finally {
+				lock.unlock();
+			}
+
+			events = Collections.unmodifiableList(events);
+			for (PlayBatchListener listener : listeners) {
+				try {
+					listener.played(events);
+				} catch (RuntimeException ex) {
+					logger.log(Level.WARNING, "listener failed", ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Destroy this bus, pending events are discarded.
+	 */
+	public void destroy() {
+		lock.lock();
+		try {
+			terminated = true;
+
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.play.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jorgan.disposition.Element;
+
+/**
+ * Metrics of a play.
+ * <p>
+ * Latency is measured from reception of a message from a device to the
+ * sending of all resulting messages to devices, per sending element and per
+ * device.
+ * 
+ * @see jorgan.play.OrganPlay#getMetrics()
+ */
+public class PlayMetrics implements PlayMetricsMBean {
+
+	private final Histogram latency = new Histogram();
+
+	private final Map<Element, Histogram> elementLatencies = new ConcurrentHashMap<Element, Histogram>();
+
+	private final Map<String, Histogram> deviceLatencies = new ConcurrentHashMap<String, Histogram>();
+
+	private final Histogram lockWait = new Histogram();
+
+	private final Histogram alarmLateness = new Histogram();
+
+	private final AtomicLong received = new AtomicLong();
+
+	private final AtomicLong sent = new AtomicLong();
+
+	private volatile double receivedRate;
+
+	private volatile double sentRate;
+
+	private long lastUpdate = System.nanoTime();
+
+	private long lastReceived;
+
+	private long lastSent;
+
+	/**
+	 * Time of the message currently received, accessed under the lock of the
+	 * play only.
+	 */
+	private long ingress;
+
+	/**
+	 * A message was received from a device, must be called under the lock of
+	 * the play.
+	 * <p>
+	 * This method is not part of this class' public API!
+	 * 
+	 * @param nanos
+	 *            time of reception
+	 */
+	public void received(long nanos) {
+		received.incrementAndGet();
+
+		ingress = nanos;
+	}
+
+	/**
+	 * Processing of the received message is completed, must be called under
+	 * the lock of the play.
+	 * <p>
+	 * This method is not part of this class' public API!
+	 */
+	public void processed() {
+		ingress = 0;
+	}
+
+	/**
+	 * A message was sent by an element, must be called under the lock of the
+	 * play.
+	 * <p>
+	 * This method is not part of this class' public API!
+	 */
+	public void sentBy(Element element) {
+		if (ingress != 0) {
+			long nanos = System.nanoTime() - ingress;
+
+			latency.record(nanos);
+			get(elementLatencies, element).record(nanos);
+		}
+	}
+
+	/**
+	 * A message was sent to a device, must be called under the lock of the
+	 * play.
+	 * <p>
+	 * This method is not part of this class' public API!
+	 */
+	public void sentTo(String device) {
+		sent.incrementAndGet();
+
+		if (ingress != 0) {
+			get(deviceLatencies, device).record(System.nanoTime() - ingress);
+		}
+	}
+
+	/**
+	 * The lock of the play was waited for.
+	 * <p>
+	 * This method is not part of this class' public API!
+	 */
+	public void lockWaited(long nanos) {
+		lockWait.record(nanos);
+	}
+
+	/**
+	 * An alarm was triggered late.
+	 * <p>
+	 * This method is not part of this class' public API!
+	 */
+	public void alarmed(long lateness) {
+		alarmLateness.record(lateness);
+	}
+
+	private static <K> Histogram get(Map<K, Histogram> histograms, K key) {
+		Histogram histogram = histograms.get(key);
+		if (histogram == null) {
+			histogram = new Histogram();
+			histograms.put(key, histogram);
+		}
+		return histogram;
+	}
+
+	/**
+	 * Update rates since the previous update.
+	 * <p>
+	 * This method is not part of this class' public API!
+	 */
+	public synchronized void update() {
+		long now = System.nanoTime();
+		double seconds = (now - lastUpdate) / 1000000000d;
+		if (seconds <= 0) {
+			return;
+		}
+
+		long received = this.received.get();
+		long sent = this.sent.get();
+
+		receivedRate = (received - lastReceived) / seconds;
+		sentRate = (sent - lastSent) / seconds;
+
+		lastUpdate = now;
+		lastReceived = received;
+		lastSent = sent;
+	}
+
+	public Histogram getLatency() {
+		return latency;
+	}
+
+	public Map<Element, Histogram> getElementLatency() {
+		return elementLatencies;
+	}
+
+	public Map<String, Histogram> getDeviceLatency() {
+		return deviceLatencies;
+	}
+
+	public Histogram getLockWait() {
+		return lockWait;
+	}
+
+	public Histogram getAlarmLateness() {
+		return alarmLateness;
+	}
+
+	public long getReceived() {
+		return received.get();
+	}
+
+	public long getSent() {
+		return sent.get();
+	}
+
+	public double getReceivedRate() {
+		return receivedRate;
+	}
+
+	public double getSentRate() {
+		return sentRate;
+	}
+
+	public long getLatencyMean() {
+		return latency.getMean();
+	}
+
+	public long getLatency50() {
+		return latency.getPercentile(50);
+	}
+
+	public long getLatency99() {
+		return latency.getPercentile(99);
+	}
+
+	public long getLatencyMax() {
+		return latency.getMax();
+	}
+
+	public long getLockWait99() {
+		return lockWait.getPercentile(99);
+	}
+
+	public long getLockWaitMax() {
+		return lockWait.getMax();
+	}
+
+	public long getAlarmLateness99() {
+		return alarmLateness.getPercentile(99);
+	}
+
+	public long getAlarmLatenessMax() {
+		return alarmLateness.getMax();
+	}
+
+	public String[] getElementLatencies() {
+		List<String> latencies = new ArrayList<String>();
+		for (Map.Entry<Element, Histogram> entry : elementLatencies.entrySet()) {
+			latencies.add(entry.getKey().getName() + ": " + entry.getValue());
+		}
+		return latencies.toArray(new String[latencies.size()]);
+	}
+
+	public String[] getDeviceLatencies() {
+		List<String> latencies = new ArrayList<String>();
+		for (Map.Entry<String, Histogram> entry : deviceLatencies.entrySet()) {
+			latencies.add(entry.getKey() + ": " + entry.getValue());
+		}
+		return latencies.toArray(new String[latencies.size()]);
+	}
+
+	public synchronized void reset() {
+		latency.reset();
+		elementLatencies.clear();
+		deviceLatencies.clear();
+		lockWait.reset();
+		alarmLateness.reset();
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.play.metrics;
+
+/**
+ * The management interface of {@link PlayMetrics}, all durations are given in
+ * nanoseconds.
+ */
+public interface PlayMetricsMBean {
+
+	public long getReceived();
+
+	public long getSent();
+
+	public double getReceivedRate();
+
+	public double getSentRate();
+
+	public long getLatencyMean();
+
+	public long getLatency50();
+
+	public long getLatency99();
+
+	public long getLatencyMax();
+
+	public long getLockWait99();
+
+	public long getLockWaitMax();
+
+	public long getAlarmLateness99();
+
+	public long getAlarmLatenessMax();
+
+	public String[] getElementLatencies();
+
+	public String[] getDeviceLatencies();
+
+	public void reset();
+}
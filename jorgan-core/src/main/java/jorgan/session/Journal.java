@@ -0,0 +1,678 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.session;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import jorgan.disposition.Organ;
+import jorgan.io.DispositionStream;
+import jorgan.io.disposition.Backup;
+import jorgan.util.IOUtils;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+/**
+ * An append-only journal of changed elements of a disposition.
+ * <p>
+ * Each batch of changes is appended to a file next to the disposition and
+ * completed by a commit record, so a batch torn by a crash is ignored on
+ * {@link #replay(DispositionStream)}. All writing is done on a background
+ * thread, with a single sync of the journal for all batches appended in the
+ * meantime. A {@link #snapshot(byte[], int)} replaces the disposition and
+ * discards the journal.
+ * <p>
+ * Each journal starts with the checksum of the disposition its batches apply
+ * to, thus a journal left behind by a crash after a snapshot replaced the
+ * disposition is recognized as stale and not replayed.
+ * <p>
+ * A failed write is thrown on the next append, snapshot, flush or close.
+ * Since the failed entry is lost, a snapshot has to follow.
+ */
+public class Journal {
+
+	private static Logger logger = Logger.getLogger(Journal.class.getName());
+
+	private static final int PUT = 1;
+
+	private static final int REMOVE = 2;
+
+	private static final int COMMIT = 3;
+
+	private static final int BASE = 4;
+
+	/**
+	 * The disposition file.
+	 */
+	private File file;
+
+	/**
+	 * The journal file.
+	 */
+	private File journalFile;
+
+	/**
+	 * Count of records since the last snapshot.
+	 */
+	private int records;
+
+	private Writer writer;
+
+	private volatile IOException failure;
+
+	/**
+	 * Sequence of the last queued entry.
+	 */
+	private long queued;
+
+	/**
+	 * Sequence of the last entry written successfully.
+	 */
+	private volatile long written;
+
+	/**
+	 * Create a journal for the given disposition file.
+	 * 
+	 * @param file
+	 *            the disposition file
+	 */
+	public Journal(File file) {
+		this.file = file.getAbsoluteFile();
+
+		this.journalFile = new File(this.file.getParentFile(), "."
+				+ file.getName() + ".journal");
+	}
+
+	public File getFile() {
+		return journalFile;
+	}
+
+	/**
+	 * Does this journal contain records not yet contained in the disposition.
+	 */
+	public boolean exists() {
+		return journalFile.length() > 0;
+	}
+
+	/**
+	 * Get the count of records since the last snapshot.
+	 */
+	public int getRecords() {
+		return records;
+	}
+
+	/**
+	 * Is everything appended or snapshot written successfully.
+	 */
+	public synchronized boolean isWritten() {
+		return failure == null && written == queued;
+	}
+
+	/**
+	 * Append a batch of changes.
+	 * 
+	 * @param puts
+	 *            XML fragments of added or changed elements by id
+	 * @param removes
+	 *            ids of removed elements
+	 * @throws IOException
+	 *             if a previous write failed, the batch is not appended
+	 * @see DispositionStream#writeElement(jorgan.disposition.Element,
+	 *      java.io.OutputStream)
+	 */
+	public synchronized void append(Map<Long, byte[]> puts,
+			Collection<Long> removes) throws IOException {
+		if (puts.isEmpty() && removes.isEmpty()) {
+			return;
+		}
+
+		rethrow();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+		try {
+			for (Map.Entry<Long, byte[]> put : puts.entrySet()) {
+				data.writeByte(PUT);
+				data.writeLong(put.getKey());
+				data.writeInt(put.getValue().length);
+				data.write(put.getValue());
+			}
+			for (Long id : removes) {
+				data.writeByte(REMOVE);
+				data.writeLong(id);
+			}
+			data.writeByte(COMMIT);
+		} catch (IOException unexpected) {
+			throw new Error(unexpected);
+		}
+
+		records += puts.size() + removes.size();
+
+		queue(new Batch(bytes.toByteArray()));
+	}
+
+	/**
+	 * Write a snapshot of the complete disposition, all previous records are
+	 * discarded.
+	 * 
+	 * @param snapshot
+	 *            the written disposition
+	 * @param backupCount
+	 *            count of backups to keep
+	 * @throws IOException
+	 *             if a previous write failed, the snapshot is not written
+	 * @see Backup
+	 */
+	public synchronized void snapshot(byte[] snapshot, int backupCount)
+			throws IOException {
+		rethrow();
+
+		records = 0;
+
+		queue(new Snapshot(snapshot, backupCount));
+	}
+
+	private void queue(Entry entry) {
+		entry.sequence = ++queued;
+
+		getWriter().queue.add(entry);
+	}
+
+	private void rethrow() throws IOException {
+		IOException failure = this.failure;
+		if (failure != null) {
+			this.failure = null;
+			throw failure;
+		}
+	}
+
+	/**
+	 * Wait until everything is written.
+	 * 
+	 * @throws IOException
+	 *             if writing failed
+	 */
+	public void flush() throws IOException {
+		Writer writer;
+		synchronized (this) {
+			writer = this.writer;
+		}
+
+		if (writer != null) {
+			Marker marker = new Marker(false);
+			writer.queue.add(marker);
+			marker.await();
+		}
+
+		rethrow();
+	}
+
+	/**
+	 * Flush and stop writing in the background.
+	 * 
+	 * @throws IOException
+	 *             if writing failed
+	 */
+	public void close() throws IOException {
+		Writer writer;
+		synchronized (this) {
+			writer = this.writer;
+			this.writer = null;
+		}
+
+		if (writer != null) {
+			Marker marker = new Marker(true);
+			writer.queue.add(marker);
+			marker.await();
+		}
+
+		rethrow();
+	}
+
+	/**
+	 * Discard all records, e.g. when the complete disposition was written
+	 * otherwise.
+	 */
+	public void delete() throws IOException {
+		close();
+
+		records = 0;
+
+		if (journalFile.exists() && !journalFile.delete()) {
+			throw new IOException("unable to delete journal");
+		}
+
+		synchronized (this) {
+			written = queued;
+		}
+	}
+
+	private synchronized Writer getWriter() {
+		if (writer == null) {
+			writer = new Writer();
+			writer.start();
+		}
+		return writer;
+	}
+
+	/**
+	 * Read the disposition and replay all committed records on top of it.
+	 * <p>
+	 * A torn batch at the end of the journal is cut off, so following batches
+	 * can be appended safely. A stale journal is discarded.
+	 * 
+	 * @param stream
+	 *            the stream to read the disposition with
+	 * @return the organ
+	 */
+	public Organ replay(DispositionStream stream) throws IOException {
+		ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+		stream.write(stream.read(file), snapshot);
+
+		byte[] journal = read(journalFile);
+		if (isStale(journal)) {
+			logger.log(Level.WARNING, "discarding stale journal");
+
+			records = 0;
+			journal = new byte[0];
+			truncate(0);
+		}
+
+		try {
+			DocumentBuilder builder = DocumentBuilderFactory.newInstance()
+					.newDocumentBuilder();
+
+			Document document = builder.parse(new ByteArrayInputStream(
+					snapshot.toByteArray()));
+
+			Node elements = getChild(document.getDocumentElement(), "elements");
+			Map<Long, Node> nodes = new HashMap<Long, Node>();
+			for (Node node = elements.getFirstChild(); node != null; node = node
+					.getNextSibling()) {
+				if (node.getNodeType() == Node.ELEMENT_NODE) {
+					nodes.put(getId(node), node);
+				}
+			}
+
+			DataInputStream data = new DataInputStream(
+					new ByteArrayInputStream(journal));
+			List<Long> ids = new ArrayList<Long>();
+			List<Node> puts = new ArrayList<Node>();
+			int valid = 0;
+			try {
+				while (true) {
+					int type = data.readByte();
+					if (type == BASE) {
+						data.readLong();
+					} else if (type == PUT) {
+						ids.add(data.readLong());
+
+						byte[] bytes = new byte[data.readInt()];
+						data.readFully(bytes);
+						puts.add(document.importNode(builder.parse(
+								new ByteArrayInputStream(bytes))
+								.getDocumentElement(), true));
+					} else if (type == REMOVE) {
+						ids.add(data.readLong());
+						puts.add(null);
+					} else if (type == COMMIT) {
+						for (int r = 0; r < ids.size(); r++) {
+							apply(elements, nodes, ids.get(r), puts.get(r));
+						}
+						records += ids.size();
+						ids.clear();
+						puts.clear();
+
+						valid = journal.length - data.available();
+					} else {
+						break;
+					}
+				}
+			} catch (EOFException torn) {
+			}
+
+			if (valid < journal.length) {
+				logger.log(Level.WARNING, "discarding torn journal of "
+						+ (journal.length - valid) + " bytes");
+
+				truncate(valid);
+			}
+
+			ByteArrayOutputStream replayed = new ByteArrayOutputStream();
+			TransformerFactory.newInstance().newTransformer().transform(
+					new DOMSource(document), new StreamResult(replayed));
+
+			return stream.read(new ByteArrayInputStream(replayed
+					.toByteArray()));
+		} catch (IOException ex) {
+			throw ex;
+		} catch (Exception ex) {
+			IOException io = new IOException("unable to replay journal");
+			io.initCause(ex);
+			throw io;
+		}
+	}
+
+	/**
+	 * Is the given journal based on another version of the disposition.
+	 */
+	private boolean isStale(byte[] journal) throws IOException {
+		if (journal.length == 0 || journal[0] != BASE) {
+			return false;
+		}
+
+		DataInputStream data = new DataInputStream(new ByteArrayInputStream(
+				journal, 1, journal.length - 1));
+		try {
+			return data.readLong() != checksum(read(file));
+		} catch (EOFException torn) {
+			return false;
+		}
+	}
+
+	private void truncate(long length) throws IOException {
+		RandomAccessFile access = new RandomAccessFile(journalFile, "rw");
+		try {
+			access.setLength(length);
+		} finally {
+			access.close();
+		}
+	}
+
+	private static long checksum(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	private void apply(Node elements, Map<Long, Node> nodes, Long id, Node put) {
+		Node node = nodes.remove(id);
+		if (put == null) {
+			if (node != null) {
+				elements.removeChild(node);
+			}
+		} else {
+			if (node == null) {
+				elements.appendChild(put);
+			} else {
+				elements.replaceChild(put, node);
+			}
+			nodes.put(id, put);
+		}
+	}
+
+	private static Node getChild(Node parent, String name) throws IOException {
+		for (Node node = parent.getFirstChild(); node != null; node = node
+				.getNextSibling()) {
+			if (name.equals(node.getNodeName())) {
+				return node;
+			}
+		}
+		throw new IOException("missing '" + name + "'");
+	}
+
+	private static Long getId(Node node) {
+		return Long.valueOf(((org.w3c.dom.Element) node).getAttribute("id"));
+	}
+
+	private static byte[] read(File file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		if (file.exists()) {
+			FileInputStream input = new FileInputStream(file);
+			try {
+				IOUtils.copy(input, bytes);
+			} finally {
+				IOUtils.closeQuietly(input);
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private abstract class Entry {
+
+		/**
+		 * Sequence of this entry, <code>0</code> if it does not change
+		 * anything.
+		 */
+		public long sequence;
+
+		public abstract void write(Writer writer) throws IOException;
+	}
+
+	private class Batch extends Entry {
+
+		private byte[] bytes;
+
+		public Batch(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public void write(Writer writer) throws IOException {
+			writer.getOutput().write(bytes);
+			writer.dirty = true;
+		}
+	}
+
+	private class Snapshot extends Entry {
+
+		private byte[] bytes;
+
+		private int backupCount;
+
+		public Snapshot(byte[] bytes, int backupCount) {
+			this.bytes = bytes;
+			this.backupCount = backupCount;
+		}
+
+		@Override
+		public void write(Writer writer) throws IOException {
+			File temp = new File(file.getParentFile(), "." + file.getName());
+
+			FileOutputStream output = new FileOutputStream(temp);
+			try {
+				output.write(bytes);
+				output.getFD().sync();
+			} finally {
+				IOUtils.closeQuietly(output);
+			}
+
+			new Backup(file).write(backupCount);
+
+			if (file.exists() && !file.delete()) {
+				throw new IOException("unable to delete previous version");
+			}
+
+			if (!temp.renameTo(file)) {
+				throw new IOException("unable to rename new version");
+			}
+
+			// records are contained in the disposition now, a crash before
+			// the journal is deleted leaves it stale
+			writer.closeOutput();
+			journalFile.delete();
+		}
+	}
+
+	private class Marker extends Entry {
+
+		private boolean stop;
+
+		private CountDownLatch latch = new CountDownLatch(1);
+
+		public Marker(boolean stop) {
+			this.stop = stop;
+		}
+
+		@Override
+		public void write(Writer writer) throws IOException {
+			writer.sync();
+			if (stop) {
+				writer.closeOutput();
+			}
+		}
+
+		public void release() {
+			latch.countDown();
+		}
+
+		public void await() {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					latch.await();
+					break;
+				} catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private class Writer extends Thread {
+
+		private BlockingQueue<Entry> queue = new LinkedBlockingQueue<Entry>();
+
+		private FileOutputStream output;
+
+		private boolean dirty;
+
+		public Writer() {
+			super("jOrgan Journal");
+
+			setDaemon(true);
+		}
+
+		private FileOutputStream getOutput() throws IOException {
+			if (output == null) {
+				boolean empty = journalFile.length() == 0;
+
+				output = new FileOutputStream(journalFile, true);
+				if (empty) {
+					DataOutputStream data = new DataOutputStream(output);
+					data.writeByte(BASE);
+					data.writeLong(checksum(read(file)));
+					data.flush();
+				}
+			}
+			return output;
+		}
+
+		private void sync() throws IOException {
+			if (dirty) {
+				dirty = false;
+				output.getChannel().force(false);
+			}
+		}
+
+		private void closeOutput() throws IOException {
+			sync();
+			if (output != null) {
+				output.close();
+				output = null;
+			}
+		}
+
+		@Override
+		public void run() {
+			List<Entry> entries = new ArrayList<Entry>();
+			while (true) {
+				try {
+					entries.add(queue.take());
+				} catch (InterruptedException ex) {
+					continue;
+				}
+				queue.drainTo(entries);
+
+				boolean failed = false;
+				long sequence = 0;
+				for (Entry entry : entries) {
+					try {
+						entry.write(this);
+					} catch (IOException ex) {
+						failed(ex);
+						failed = true;
+					}
+					sequence = Math.max(sequence, entry.sequence);
+
+					if (entry instanceof Marker) {
+						// written before waiting threads are released
+						if (!failed && sequence > 0) {
+							written = sequence;
+						}
+
+						Marker marker = (Marker) entry;
+						marker.release();
+						if (marker.stop) {
+							return;
+						}
+					}
+				}
+				entries.clear();
+
+				// single sync for all batches
+				try {
+					sync();
+				} catch (IOException ex) {
+					failed(ex);
+					failed = true;
+				}
+
+				if (!failed && sequence > 0) {
+					written = sequence;
+				}
+			}
+		}
+
+		private void failed(IOException ex) {
+			logger.log(Level.WARNING, "journal failed", ex);
+
+			failure = ex;
+		}
+	}
+}
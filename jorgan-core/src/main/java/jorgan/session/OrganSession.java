@@ -18,19 +18,25 @@
  */
 package jorgan.session;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import jorgan.Version;
+import jorgan.disposition.Element;
 import jorgan.disposition.Organ;
 import jorgan.disposition.Element.FastPropertyChange;
 import jorgan.disposition.event.Change;
+import jorgan.disposition.event.OrganAdapter;
 import jorgan.disposition.event.OrganObserver;
 import jorgan.disposition.spi.ElementRegistry;
 import jorgan.io.DispositionStream;
@@ -65,6 +71,33 @@ public class OrganSession {
 
 	private int backupCount;
 
+	/**
+	 * Save changed elements to a journal only.
+	 */
+	private boolean journaling;
+
+	/**
+	 * Count of journal records before a complete snapshot is written.
+	 */
+	private int compaction;
+
+	private Journal journal;
+
+	/**
+	 * Is a complete snapshot required, because changes were not tracked.
+	 */
+	private boolean snapshot;
+
+	/**
+	 * Elements changed since the last save.
+	 */
+	private Set<Element> changed = new LinkedHashSet<Element>();
+
+	/**
+	 * Ids of elements removed since the last save.
+	 */
+	private Set<Long> removed = new LinkedHashSet<Long>();
+
 	private Map<Class<? extends Object>, Object> ts = new HashMap<Class<? extends Object>, Object>();
 
 	private ShutdownHook shutdownHook;
@@ -75,8 +108,16 @@ public class OrganSession {
 		}
 		this.file = file.getAbsoluteFile();
 
+		journal = new Journal(this.file);
+
 		if (file.exists()) {
-			organ = new DispositionStream().read(file);
+			if (journal.exists()) {
+				logger.log(Level.INFO, "replaying journal");
+
+				organ = journal.replay(new DispositionStream());
+			} else {
+				organ = new DispositionStream().read(file);
+			}
 		} else {
 			file.createNewFile();
 
@@ -84,6 +125,43 @@ public class OrganSession {
 			markModified();
 		}
 
+		final OrganAdapter tracker = new OrganAdapter() {
+			@Override
+			public void elementAdded(Element element) {
+				changed.add(element);
+				removed.remove(element.getId());
+			}
+
+			@Override
+			public void elementRemoved(Element element) {
+				changed.remove(element);
+				removed.add(element.getId());
+			}
+
+			@Override
+			public void propertyChanged(Element element, String name) {
+				changed.add(element);
+			}
+
+			@Override
+			public void indexedPropertyAdded(Element element, String name,
+					Object value) {
+				changed.add(element);
+			}
+
+			@Override
+			public void indexedPropertyChanged(Element element, String name,
+					Object value) {
+				changed.add(element);
+			}
+
+			@Override
+			public void indexedPropertyRemoved(Element element, String name,
+					Object value) {
+				changed.add(element);
+			}
+		};
+
 		organ.addOrganObserver(new OrganObserver() {
 			public void onChange(Change change) {
 				if (change instanceof FastPropertyChange) {
@@ -93,6 +171,10 @@ public class OrganSession {
 					}
 				}
 
+				if (journaling) {
+					change.notify(tracker);
+				}
+
 				markModified();
 			}
 		});
@@ -112,16 +194,44 @@ public class OrganSession {
 		this.backupCount = count;
 	}
 
+	public boolean isJournaling() {
+		return journaling;
+	}
+
+	/**
+	 * Save changed elements to a journal only, the complete disposition is
+	 * written every {@link #getCompaction()} records.
+	 * 
+	 * @see Journal
+	 */
+	public void setJournaling(boolean journaling) {
+		if (journaling && !this.journaling && modified) {
+			// changes were not tracked
+			snapshot = true;
+		}
+		this.journaling = journaling;
+	}
+
+	public int getCompaction() {
+		return compaction;
+	}
+
+	public void setCompaction(int compaction) {
+		this.compaction = compaction;
+	}
+
 	public void setSaveOnShutdown(boolean save) {
 		if (save) {
 			if (shutdownHook == null) {
 				shutdownHook = new ShutdownHook(new Runnable() {
 					public void run() {
-						if (modified) {
+						if (isModified()) {
 							logger.log(Level.INFO, "save on shutdown");
 
 							try {
 								save();
+
+								journal.flush();
 							} catch (IOException ex) {
 								logger.log(Level.WARNING,
 										"unable to save on shutdown", ex);
@@ -138,8 +248,11 @@ public class OrganSession {
 		}
 	}
 
+	/**
+	 * Is the organ modified - if journaling, until all changes are written.
+	 */
 	public boolean isModified() {
-		return modified;
+		return modified || !journal.isWritten();
 	}
 
 	public void markModified() {
@@ -152,13 +265,33 @@ public class OrganSession {
 		}
 	}
 
+	/**
+	 * Save the organ - if journaling, only changed elements are written and
+	 * the actual writing is done in the background. A failure of the
+	 * background writing is thrown on the following save.
+	 * 
+	 * @see #setJournaling(boolean)
+	 */
 	public void save() throws IOException {
-		// TODO do this as SessionListener#beforeSave(file);
-		new Backup(file).write(backupCount);
-
 		organ.setVersion(new Version().get());
 
-		new DispositionStream().write(organ, file);
+		if (journaling) {
+			try {
+				saveJournal();
+			} catch (IOException ex) {
+				// changes of a failed write are lost, thus retry with a snapshot
+				snapshot = true;
+				throw ex;
+			}
+		} else {
+			// TODO do this as SessionListener#beforeSave(file);
+			new Backup(file).write(backupCount);
+
+			new DispositionStream().write(organ, file);
+
+			// contained in the disposition now
+			journal.delete();
+		}
 
 		modified = false;
 
@@ -169,6 +302,35 @@ public class OrganSession {
 		}
 	}
 
+	private void saveJournal() throws IOException {
+		DispositionStream stream = new DispositionStream();
+
+		if (snapshot || file.length() == 0
+				|| journal.getRecords() + changed.size() + removed.size() > compaction) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			if (file.getName().endsWith(DispositionStream.BINARY_SUFFIX)) {
+				stream.writeBinary(organ, bytes);
+			} else {
+				stream.write(organ, bytes);
+			}
+
+			journal.snapshot(bytes.toByteArray(), backupCount);
+			snapshot = false;
+		} else {
+			Map<Long, byte[]> puts = new LinkedHashMap<Long, byte[]>();
+			for (Element element : changed) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				stream.writeElement(element, bytes);
+				puts.put(element.getId(), bytes.toByteArray());
+			}
+
+			journal.append(puts, removed);
+		}
+
+		changed.clear();
+		removed.clear();
+	}
+
 	public File getFile() {
 		return file;
 	}
@@ -263,5 +425,11 @@ public class OrganSession {
 		if (shutdownHook != null) {
 			shutdownHook.release();
 		}
+
+		try {
+			journal.close();
+		} catch (IOException ex) {
+			logger.log(Level.WARNING, "unable to write journal", ex);
+		}
 	}
 }
\ No newline at end of file
@@ -18,23 +18,82 @@
  */
 package jorgan.time;
 
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.TreeSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import jorgan.disposition.Organ;
 import jorgan.time.spi.TimerRegistry;
 
 /**
+ * A clock triggering {@link WakeUp}s.
+ * <p>
+ * Alarms are kept in a hashed timing wheel, i.e. alarming and replacing are
+ * independent of the count of pending alarms.
+ * 
+ * @see WakeUp#getKey()
  */
 public class Clock {
 
+	/**
+	 * Duration of one tick of the wheel.
+	 */
+	private static final long TICK = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static final int WHEEL_SIZE = 512;
+
+	private static final int POOL_SIZE = 1024;
+
 	private Thread thread;
 
 	private List<Timer> timers;
 
-	private TreeSet<Alarm> alarms = new TreeSet<Alarm>();
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition ticked = lock.newCondition();
+
+	/**
+	 * Doubly linked alarms of each bucket.
+	 */
+	private final Alarm[] wheel = new Alarm[WHEEL_SIZE];
+
+	private final Alarm[] wheelLast = new Alarm[WHEEL_SIZE];
+
+	/**
+	 * Singly linked alarms with equal keys.
+	 */
+	private final Map<Object, Alarm> keyed = new HashMap<Object, Alarm>();
+
+	/**
+	 * Singly linked free alarms.
+	 */
+	private Alarm pool;
+
+	private int poolSize;
+
+	private int count;
+
+	/**
+	 * Singly linked expired alarms.
+	 */
+	private Alarm expiredFirst;
+
+	private Alarm expiredLast;
+
+	private long start;
+
+	/**
+	 * The next tick to process.
+	 */
+	private long tick;
+
+	/**
+	 * The tick the thread is waiting for.
+	 */
+	private long awaited = Long.MAX_VALUE;
 
 	public Clock(Organ organ) {
 		timers = TimerRegistry.getTimers(organ, this);
@@ -42,22 +101,82 @@ public class Clock {
 
 	/**
 	 * Alarm for the element at the given time.
+	 * 
+	 * @param wakeUp
+	 *            the wake up to trigger
+	 * @param delta
+	 *            the delta in milliseconds
 	 */
 	public void alarm(WakeUp wakeUp, long delta) {
-		if (thread != null) {
-			synchronized (alarms) {
-				Iterator<Alarm> iterator = alarms.iterator();
-				while (iterator.hasNext()) {
-					Alarm alarm = iterator.next();
-					if (wakeUp.replaces(alarm.wakeUp)) {
-						iterator.remove();
+		Object key = wakeUp.getKey();
+
+		lock.lock();
+		try {
+			if (thread == null) {
+				return;
+			}
+
+			if (key != null) {
+				replace(key, wakeUp);
+			}
+
+			long now = System.nanoTime() - start;
+			if (count == 0) {
+				// wheel might not have been turned while idle
+				tick = now / TICK;
+			}
+
+			long deadline = now + TimeUnit.MILLISECONDS.toNanos(delta);
+			// never expire before the deadline
+			long ticks = Math.max(tick, (deadline + TICK - 1) / TICK);
+
+			Alarm alarm = obtain();
+			alarm.wakeUp = wakeUp;
+			alarm.key = key;
+			alarm.rounds = (ticks - tick) / WHEEL_SIZE;
+			alarm.bucket = (int) (ticks % WHEEL_SIZE);
+
+			link(alarm);
+
+			if (key != null) {
+				alarm.keyNext = keyed.put(key, alarm);
+			}
+
+			count++;
+			if (ticks < awaited) {
+				ticked.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Cancel pending alarms with the given key that are replaced by the given
+	 * wake up.
+	 */
+	private void replace(Object key, WakeUp wakeUp) {
+		Alarm previous = null;
+		Alarm alarm = keyed.get(key);
+		while (alarm != null) {
+			Alarm next = alarm.keyNext;
+			if (wakeUp.replaces(alarm.wakeUp)) {
+				if (previous == null) {
+					if (next == null) {
+						keyed.remove(key);
+					} else {
+						keyed.put(key, next);
 					}
+				} else {
+					previous.keyNext = next;
 				}
-				alarms
-						.add(new Alarm(wakeUp, System.currentTimeMillis()
-								+ delta));
-				alarms.notifyAll();
+				unlink(alarm);
+				count--;
+				release(alarm);
+			} else {
+				previous = alarm;
 			}
+			alarm = next;
 		}
 	}
 
@@ -67,13 +186,21 @@ public class Clock {
 			return;
 		}
 
-		thread = new Thread(new Runnable() {
-			@Override
-			public void run() {
-				Clock.this.run();
-			}
-		}, "jOrgan Clock");
-		thread.start();
+		lock.lock();
+		try {
+			start = System.nanoTime();
+			tick = 0;
+
+			thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Clock.this.run();
+				}
+			}, "jOrgan Clock");
+			thread.start();
+		} finally {
+			lock.unlock();
+		}
 
 		for (Timer timer : timers) {
 			timer.start();
@@ -82,39 +209,90 @@ public class Clock {
 
 	private void run() {
 		while (true) {
-			long now = System.currentTimeMillis();
+			Alarm expired;
 
-			List<Alarm> pasts = new ArrayList<Alarm>();
+			lock.lock();
+			try {
+				if (thread != Thread.currentThread()) {
+					break;
+				}
 
-			synchronized (alarms) {
-				Iterator<Alarm> iterator = alarms.iterator();
-				while (iterator.hasNext()) {
-					Alarm alarm = iterator.next();
-					if (alarm.getTime() <= now) {
-						iterator.remove();
-						pasts.add(alarm);
-					} else {
-						break;
-					}
+				long now = (System.nanoTime() - start) / TICK;
+				while (tick <= now && count > 0) {
+					expire((int) (tick % WHEEL_SIZE));
+					tick++;
 				}
+
+				expired = expiredFirst;
+				expiredFirst = null;
+				expiredLast = null;
+			} finally {
+				lock.unlock();
 			}
 
-			trigger(pasts);
+			if (expired != null) {
+				trigger(expired);
+				continue;
+			}
 
-			synchronized (alarms) {
+			lock.lock();
+			try {
 				if (thread != Thread.currentThread()) {
 					break;
 				}
 
-				try {
-					if (alarms.isEmpty()) {
-						alarms.wait();
-					} else {
-						alarms.wait(alarms.first().getTime() - now);
-					}
-				} catch (InterruptedException interrupted) {
+				if (count == 0) {
+					awaited = Long.MAX_VALUE;
+					ticked.await();
+				} else {
+					awaited = occupied();
+					ticked.awaitNanos(start + awaited * TICK - System.nanoTime());
+				}
+			} catch (InterruptedException interrupted) {
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Get the first tick with a bucket holding alarms - ticks skipped while
+	 * waiting are processed on wake up.
+	 */
+	private long occupied() {
+		for (long t = tick; t < tick + WHEEL_SIZE; t++) {
+			if (wheel[(int) (t % WHEEL_SIZE)] != null) {
+				return t;
+			}
+		}
+		return tick + WHEEL_SIZE;
+	}
+
+	/**
+	 * Expire alarms of the given bucket.
+	 */
+	private void expire(int bucket) {
+		Alarm alarm = wheel[bucket];
+		while (alarm != null) {
+			Alarm next = alarm.next;
+			if (alarm.rounds == 0) {
+				unlink(alarm);
+				if (alarm.key != null) {
+					unkey(alarm);
+				}
+				count--;
+
+				// keep order of alarming
+				if (expiredLast == null) {
+					expiredFirst = alarm;
+				} else {
+					expiredLast.next = alarm;
 				}
+				expiredLast = alarm;
+			} else {
+				alarm.rounds--;
 			}
+			alarm = next;
 		}
 	}
 
@@ -128,46 +306,138 @@ public class Clock {
 			timer.stop();
 		}
 
-		synchronized (alarms) {
-			alarms.clear();
+		lock.lock();
+		try {
+			for (int b = 0; b < WHEEL_SIZE; b++) {
+				while (wheel[b] != null) {
+					Alarm alarm = wheel[b];
+					unlink(alarm);
+					release(alarm);
+				}
+			}
+			keyed.clear();
+			count = 0;
 
 			thread.interrupt();
 			thread = null;
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	/**
-	 * Trigger past alarms outside of synchronized block to prevent deadlocks
+	 * Trigger expired alarms outside of lock to prevent deadlocks.
 	 */
-	private void trigger(List<Alarm> alarms) {
-		for (Alarm past : alarms) {
-			past.trigger();
+	private void trigger(Alarm expired) {
+		Alarm alarm = expired;
+		while (alarm != null) {
+			alarm.wakeUp.trigger();
+
+			alarm = alarm.next;
 		}
-	}
 
-	private class Alarm implements Comparable<Alarm> {
+		lock.lock();
+		try {
+			alarm = expired;
+			while (alarm != null) {
+				Alarm next = alarm.next;
+				release(alarm);
+				alarm = next;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
 
-		private WakeUp wakeUp;
+	private void link(Alarm alarm) {
+		Alarm last = wheelLast[alarm.bucket];
+		alarm.previous = last;
+		alarm.next = null;
+		if (last == null) {
+			wheel[alarm.bucket] = alarm;
+		} else {
+			last.next = alarm;
+		}
+		wheelLast[alarm.bucket] = alarm;
+	}
 
-		private long time;
+	private void unlink(Alarm alarm) {
+		if (alarm.previous == null) {
+			wheel[alarm.bucket] = alarm.next;
+		} else {
+			alarm.previous.next = alarm.next;
+		}
+		if (alarm.next == null) {
+			wheelLast[alarm.bucket] = alarm.previous;
+		} else {
+			alarm.next.previous = alarm.previous;
+		}
+		alarm.previous = null;
+		alarm.next = null;
+	}
 
-		public Alarm(WakeUp wakeUp, long time) {
-			this.wakeUp = wakeUp;
-			this.time = time;
+	private void unkey(Alarm alarm) {
+		Alarm previous = null;
+		Alarm other = keyed.get(alarm.key);
+		while (other != alarm) {
+			previous = other;
+			other = other.keyNext;
 		}
 
-		public long getTime() {
-			return time;
+		if (previous == null) {
+			if (alarm.keyNext == null) {
+				keyed.remove(alarm.key);
+			} else {
+				keyed.put(alarm.key, alarm.keyNext);
+			}
+		} else {
+			previous.keyNext = alarm.keyNext;
 		}
+	}
 
-		public void trigger() {
-			wakeUp.trigger();
+	private Alarm obtain() {
+		Alarm alarm = pool;
+		if (alarm == null) {
+			return new Alarm();
 		}
+		pool = alarm.next;
+		poolSize--;
 
-		@Override
-		public int compareTo(Alarm alarm) {
-			// must never be equal, i.e. 0
-			return (this.time < alarm.time) ? -1 : 1;
+		alarm.next = null;
+		return alarm;
+	}
+
+	private void release(Alarm alarm) {
+		alarm.wakeUp = null;
+		alarm.key = null;
+		alarm.keyNext = null;
+		alarm.previous = null;
+		alarm.next = null;
+
+		if (poolSize < POOL_SIZE) {
+			alarm.next = pool;
+			pool = alarm;
+			poolSize++;
 		}
 	}
-}
\ No newline at end of file
+
+	private static class Alarm {
+
+		private WakeUp wakeUp;
+
+		private Object key;
+
+		/**
+		 * Remaining rotations of the wheel before expiration.
+		 */
+		private long rounds;
+
+		private int bucket;
+
+		private Alarm previous;
+
+		private Alarm next;
+
+		private Alarm keyNext;
+	}
+}
@@ -6,5 +6,20 @@ package jorgan.time;
 public interface WakeUp {
 	public void trigger();
 
+	/**
+	 * Does this wake up replace the given one. Only pending wake ups with an
+	 * equal key are considered.
+	 * 
+	 * @see #getKey()
+	 */
 	public boolean replaces(WakeUp wakeUp);
-}
\ No newline at end of file
+
+	/**
+	 * Get the key of this wake up.
+	 * 
+	 * @return key or <code>null</code> if this wake up never replaces others
+	 */
+	public default Object getKey() {
+		return null;
+	}
+}
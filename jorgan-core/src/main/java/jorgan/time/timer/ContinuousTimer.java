@@ -82,6 +82,11 @@ public class ContinuousTimer implements Timer {
 			return false;
 		}
 
+		@Override
+		public Object getKey() {
+			return element;
+		}
+
 		@Override
 		public void trigger() {
 			element.setValue(0f);
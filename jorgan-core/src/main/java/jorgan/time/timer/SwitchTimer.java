@@ -82,6 +82,11 @@ public class SwitchTimer implements Timer {
 			return false;
 		}
 
+		@Override
+		public Object getKey() {
+			return element;
+		}
+
 		@Override
 		public void trigger() {
 			element.setActive(false);
@@ -2,10 +2,13 @@ package jorgan.util;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class IOUtils {
 
@@ -34,6 +37,35 @@ public class IOUtils {
 		return count;
 	}
 
+	/**
+	 * Read the complete file into a heap buffer - unlike a mapped buffer it
+	 * does not keep the file open, e.g. preventing a later truncation on
+	 * Windows.
+	 */
+	public static ByteBuffer read(File file) throws IOException {
+		FileInputStream input = new FileInputStream(file);
+		try {
+			FileChannel channel = input.getChannel();
+
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("file too large");
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) == -1) {
+					throw new IOException("file truncated");
+				}
+			}
+			buffer.flip();
+
+			return buffer;
+		} finally {
+			closeQuietly(input);
+		}
+	}
+
 	public static void touch(File file) throws IOException {
 		OutputStream out = new FileOutputStream(file);
 		IOUtils.closeQuietly(out);
@@ -0,0 +1,155 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The slots of a bounded lock-free queue for multiple producers and a single
+ * consumer, see Dmitry Vyukov's bounded queue.
+ * <p>
+ * The ring keeps track of free and filled slots only, users keep the
+ * contents of the slots in arrays of their own:
+ *
+ * <pre>
+ * long position = ring.claim();
+ * if (position != -1) {
+ * 	contents[ring.index(position)] = content;
+ * 	ring.publish(position);
+ * }
+ * </pre>
+ *
+ * The consumer takes the contents of the head slot while it is filled:
+ *
+ * <pre>
+ * while (!ring.isEmpty()) {
+ * 	content = contents[ring.head()];
+ * 	ring.release();
+ * }
+ * </pre>
+ */
+public class Ring {
+
+	private final int mask;
+
+	/**
+	 * Sequence of each slot, telling producers and the consumer whether the
+	 * slot is free or filled.
+	 */
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Position of the consumer, accessed by the consumer only.
+	 */
+	private long head;
+
+	/**
+	 * Create a ring.
+	 *
+	 * @param capacity
+	 *            capacity, rounded up to the next power of two of at least two
+	 */
+	public Ring(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+
+		// at least two, otherwise published and free sequences coincide
+		int size = 2;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		mask = size - 1;
+
+		sequences = new AtomicLongArray(size);
+		for (int s = 0; s < size; s++) {
+			sequences.set(s, s);
+		}
+	}
+
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Claim a free slot - to be called by producers.
+	 *
+	 * @return position of the slot or <code>-1</code> if the ring is full
+	 */
+	public long claim() {
+		long position = tail.get();
+		while (true) {
+			long difference = sequences.get(index(position)) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					return position;
+				}
+			} else if (difference < 0) {
+				return -1;
+			}
+			position = tail.get();
+		}
+	}
+
+	/**
+	 * Get the index of the slot at the given position.
+	 */
+	public int index(long position) {
+		return (int) position & mask;
+	}
+
+	/**
+	 * Publish the claimed slot at the given position to the consumer.
+	 */
+	public void publish(long position) {
+		sequences.set(index(position), position + 1);
+	}
+
+	/**
+	 * Is the head slot not yet published - to be called by the consumer only.
+	 */
+	public boolean isEmpty() {
+		return sequences.get(index(head)) != head + 1;
+	}
+
+	/**
+	 * Get the index of the head slot - to be called by the consumer only.
+	 */
+	public int head() {
+		return index(head);
+	}
+
+	/**
+	 * Release the head slot to producers - to be called by the consumer only.
+	 */
+	public void release() {
+		sequences.set(index(head), head + mask + 1);
+		head++;
+	}
+
+	/**
+	 * Get the count of claimed slots, including slots not yet published.
+	 */
+	public int getSize() {
+		return (int) (tail.get() - head);
+	}
+}
@@ -0,0 +1,101 @@
+package jorgan.disposition;
+
+import jorgan.disposition.event.OrganAdapter;
+import junit.framework.TestCase;
+
+/**
+ * A test for the engagement of an {@link Engageable}.
+ */
+public class EngageableTest extends TestCase {
+
+	private Organ organ;
+
+	private Stop stop;
+
+	private Rank rank;
+
+	@Override
+	protected void setUp() throws Exception {
+		organ = new Organ();
+
+		stop = new Stop();
+		organ.addElement(stop);
+
+		rank = new Rank();
+		organ.addElement(rank);
+	}
+
+	public void testEngagingChanged() throws Exception {
+		stop.reference(rank);
+		assertFalse(rank.isEngaged());
+
+		stop.setActive(true);
+		assertTrue(stop.isEngaged());
+		assertTrue(rank.isEngaged());
+
+		stop.setActive(false);
+		assertFalse(stop.isEngaged());
+		assertFalse(rank.isEngaged());
+	}
+
+	public void testReference() throws Exception {
+		stop.setActive(true);
+		assertFalse(rank.isEngaged());
+
+		stop.reference(rank);
+		assertTrue(rank.isEngaged());
+
+		stop.unreference(rank);
+		assertFalse(rank.isEngaged());
+	}
+
+	public void testRemoveElement() throws Exception {
+		stop.reference(rank);
+		stop.setActive(true);
+		assertTrue(rank.isEngaged());
+
+		organ.removeElement(stop);
+		assertFalse(rank.isEngaged());
+
+		organ.addElement(stop);
+		assertTrue(rank.isEngaged());
+	}
+
+	public void testActiveChanged() throws Exception {
+		final boolean[] engaged = new boolean[1];
+		organ.addOrganListener(new OrganAdapter() {
+			@Override
+			public void propertyChanged(Element element, String name) {
+				if (element == stop && "active".equals(name)) {
+					engaged[0] = stop.isEngaged();
+				}
+			}
+		});
+
+		// engaged already when listeners are notified
+		stop.setActive(true);
+		assertTrue(engaged[0]);
+
+		stop.setActive(false);
+		assertFalse(engaged[0]);
+	}
+
+	public void testActivator() throws Exception {
+		Activator activator = new Activator();
+		organ.addElement(activator);
+		activator.reference(stop);
+		stop.reference(rank);
+
+		activator.setActive(true);
+		assertTrue(stop.isEngaged());
+		assertFalse(stop.isActive());
+		assertTrue(rank.isEngaged());
+
+		stop.setActive(true);
+		activator.setActive(false);
+		assertTrue(rank.isEngaged());
+
+		stop.setActive(false);
+		assertFalse(rank.isEngaged());
+	}
+}
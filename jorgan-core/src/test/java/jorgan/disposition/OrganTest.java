@@ -0,0 +1,89 @@
+package jorgan.disposition;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import jorgan.io.DispositionStream;
+import junit.framework.TestCase;
+
+/**
+ * A test for the referrers of an {@link Organ}.
+ */
+public class OrganTest extends TestCase {
+
+	private Organ organ;
+
+	private Group group;
+
+	private Stop stop;
+
+	@Override
+	protected void setUp() throws Exception {
+		organ = new Organ();
+
+		group = new Group();
+		organ.addElement(group);
+
+		stop = new Stop();
+		organ.addElement(stop);
+	}
+
+	public void testReference() throws Exception {
+		assertTrue(organ.getReferrer(stop).isEmpty());
+
+		group.reference(stop);
+		assertTrue(organ.getReferrer(stop).contains(group));
+		assertTrue(organ.getReferrer(stop, Group.class).contains(group));
+		assertTrue(organ.getReferrer(stop, Combination.class).isEmpty());
+
+		group.unreference(stop);
+		assertTrue(organ.getReferrer(stop).isEmpty());
+	}
+
+	public void testCached() throws Exception {
+		group.reference(stop);
+
+		assertSame(organ.getReferrer(stop, Group.class), organ.getReferrer(
+				stop, Group.class));
+	}
+
+	public void testRemoveElement() throws Exception {
+		group.reference(stop);
+
+		organ.removeElement(group);
+		assertTrue(organ.getReferrer(stop).isEmpty());
+
+		organ.addElement(group);
+		assertTrue(organ.getReferrer(stop).contains(group));
+
+		organ.removeElement(stop);
+		assertTrue(organ.getReferrer(stop).isEmpty());
+		assertFalse(group.references(stop));
+	}
+
+	public void testDuplicate() throws Exception {
+		group.reference(stop);
+
+		Element clone = organ.duplicate(stop);
+
+		assertTrue(organ.getReferrer(clone).contains(group));
+		assertTrue(organ.getReferrer(stop).contains(group));
+	}
+
+	public void testRead() throws Exception {
+		group.reference(stop);
+
+		DispositionStream stream = new DispositionStream();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		stream.write(organ, output);
+		Organ read = stream.read(new ByteArrayInputStream(output
+				.toByteArray()));
+
+		Element readStop = read.getElement(stop.getId());
+		Element readGroup = read.getElement(group.getId());
+		assertEquals(1, read.getReferrer(readStop).size());
+		assertTrue(read.getReferrer(readStop, Group.class).contains(readGroup));
+		assertTrue(read.getReferrer(readStop, Object.class).contains(
+				readGroup));
+	}
+}
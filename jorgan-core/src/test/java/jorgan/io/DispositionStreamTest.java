@@ -0,0 +1,115 @@
+package jorgan.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+
+import jorgan.disposition.Keyboard;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Rank;
+import jorgan.disposition.Stop;
+import jorgan.midi.mpl.Tuple;
+import jorgan.util.IOUtils;
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link DispositionStream}.
+ */
+public class DispositionStreamTest extends TestCase {
+
+	private Organ organ;
+
+	@Override
+	protected void setUp() throws Exception {
+		organ = new Organ();
+		organ.setVersion("test");
+
+		Keyboard keyboard = new Keyboard();
+		keyboard.setName("Keyboard");
+		organ.addElement(keyboard);
+
+		for (int s = 0; s < 4; s++) {
+			Stop stop = new Stop();
+			stop.setName("Stop " + s);
+			organ.addElement(stop);
+
+			Rank rank = new Rank();
+			rank.setName("Rank " + s);
+			rank.addMessage(new Rank.Engaged().change(Tuple
+					.fromString("set 176, set 121, ")));
+			organ.addElement(rank);
+
+			keyboard.reference(stop);
+			stop.reference(rank);
+		}
+	}
+
+	public void testBinaryRoundTrip() throws Exception {
+		DispositionStream stream = new DispositionStream();
+
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		stream.writeBinary(organ, binary);
+
+		Organ read = stream.readBinary(new ByteArrayInputStream(binary
+				.toByteArray()));
+
+		assertEquals(organ.getElements().size(), read.getElements().size());
+		assertEquals(toXML(organ), toXML(read));
+	}
+
+	public void testBinaryOtherVersion() throws Exception {
+		DispositionStream stream = new DispositionStream();
+
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		stream.writeBinary(organ, binary);
+
+		// rewrite header as if written by another version of jOrgan
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				binary.toByteArray()));
+		byte[] magic = new byte[8];
+		in.readFully(magic);
+		int version = in.readInt();
+		in.readUTF();
+
+		ByteArrayOutputStream other = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(other);
+		out.write(magic);
+		out.writeInt(version);
+		out.writeUTF("other");
+		IOUtils.copy(in, out);
+
+		Organ read = stream.readBinary(new ByteArrayInputStream(other
+				.toByteArray()));
+
+		assertEquals(toXML(organ), toXML(read));
+	}
+
+	public void testFile() throws Exception {
+		DispositionStream stream = new DispositionStream();
+
+		File xml = File.createTempFile("test", ".disposition");
+		File binary = File.createTempFile("test",
+				DispositionStream.BINARY_SUFFIX);
+		try {
+			stream.write(organ, xml);
+			stream.write(stream.read(xml), binary);
+
+			assertFalse(DispositionStream.isBinary(xml));
+			assertTrue(DispositionStream.isBinary(binary));
+			assertTrue(binary.length() < xml.length());
+
+			assertEquals(toXML(organ), toXML(stream.read(binary)));
+		} finally {
+			xml.delete();
+			binary.delete();
+		}
+	}
+
+	private String toXML(Organ organ) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new DispositionStream().write(organ, out);
+		return out.toString("UTF-8");
+	}
+}
@@ -0,0 +1,72 @@
+package jorgan.io.disposition;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link Conversion}.
+ */
+public class ConversionTest extends TestCase {
+
+	private static final String LEGACY = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<organ version=\"2.0-beta\">"
+			+ "<stop id=\"stop\"><name>Stop</name><on>false</on></stop>"
+			+ "<soundSource id=\"source\"><name>Source</name><reference id=\"stop\"/></soundSource>"
+			+ "</organ>";
+
+	public void testCurrent() throws Exception {
+		String current = "<organ version=\"3.20\"><elements/></organ>";
+
+		assertEquals(current, read(new Conversion().convert(stream(current))));
+	}
+
+	public void testChained() throws Exception {
+		String chained = read(new Conversion().convert(stream(LEGACY)));
+
+		InputStream stepped = stream(LEGACY);
+		for (Convert convert : getList()) {
+			stepped = convert.convert(stepped);
+		}
+
+		assertEquals(normalize(read(stepped)), normalize(chained));
+	}
+
+	public void testRepeated() throws Exception {
+		String first = read(new Conversion().convert(stream(LEGACY)));
+		String second = read(new Conversion().convert(stream(LEGACY)));
+
+		assertEquals(first, second);
+	}
+
+	private Convert[] getList() throws Exception {
+		Field field = Conversion.class.getDeclaredField("list");
+		field.setAccessible(true);
+		return (Convert[]) field.get(null);
+	}
+
+	private InputStream stream(String string) throws IOException {
+		return new ByteArrayInputStream(string.getBytes("UTF-8"));
+	}
+
+	private String read(InputStream in) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		byte[] bytes = new byte[1024];
+		int count;
+		while ((count = in.read(bytes)) != -1) {
+			builder.append(new String(bytes, 0, count, "UTF-8"));
+		}
+		in.close();
+		return builder.toString();
+	}
+
+	/**
+	 * Strip indentation, which accumulates when serialized after each step.
+	 */
+	private String normalize(String xml) {
+		return xml.replaceAll(">\\s+<", "><").trim();
+	}
+}
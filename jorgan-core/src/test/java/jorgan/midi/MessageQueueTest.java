@@ -0,0 +1,106 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.midi;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.SysexMessage;
+
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link MessageQueue}.
+ */
+public class MessageQueueTest extends TestCase {
+
+	public void testOfferPoll() throws Exception {
+		MessageQueue queue = new MessageQueue(3);
+		assertEquals(4, queue.getCapacity());
+		assertTrue(queue.isEmpty());
+
+		assertTrue(queue.offer(144, 60, 100));
+		assertTrue(queue.offer(MessageUtils.createMessage(128, 60, 0)));
+		SysexMessage sysex = new SysexMessage();
+		sysex.setMessage(new byte[] { (byte) 0xf0, 1, (byte) 0xf7 }, 3);
+		assertTrue(queue.offer(sysex));
+		assertTrue(queue.offer(192, 5, 0));
+		assertFalse(queue.offer(192, 6, 0));
+
+		ShortMessage first = (ShortMessage) queue.poll();
+		assertEquals(60, first.getData1());
+		assertTrue(queue.offer(192, 6, 0));
+		assertFalse(queue.offer(192, 7, 0));
+
+		// polled messages are not reused
+		assertEquals(128, ((ShortMessage) queue.poll()).getCommand());
+		assertEquals(144, first.getCommand());
+		assertEquals(60, first.getData1());
+
+		assertSame(sysex, queue.poll());
+		assertEquals(5, ((ShortMessage) queue.poll()).getData1());
+		assertEquals(6, ((ShortMessage) queue.poll()).getData1());
+		assertNull(queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	public void testProducers() throws Exception {
+		final MessageQueue queue = new MessageQueue(64);
+
+		final int producers = 4;
+		final int count = 10000;
+
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			final int channel = p;
+			threads[p] = new Thread() {
+				@Override
+				public void run() {
+					for (int m = 0; m < count; m++) {
+						while (!queue.offer(144 | channel, m % 128, 100)) {
+							Thread.yield();
+						}
+					}
+				}
+			};
+			threads[p].start();
+		}
+
+		int[] next = new int[producers];
+		int polled = 0;
+		while (polled < producers * count) {
+			MidiMessage message = queue.poll();
+			if (message == null) {
+				Thread.yield();
+				continue;
+			}
+
+			ShortMessage shortMessage = (ShortMessage) message;
+			int channel = shortMessage.getChannel();
+			// in order per producer
+			assertEquals(next[channel] % 128, shortMessage.getData1());
+			next[channel]++;
+			polled++;
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(queue.isEmpty());
+	}
+}
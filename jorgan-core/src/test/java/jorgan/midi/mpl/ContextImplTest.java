@@ -0,0 +1,85 @@
+package jorgan.midi.mpl;
+
+import java.lang.management.ManagementFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link ContextImpl}.
+ */
+public class ContextImplTest extends TestCase {
+
+	public void testGetSet() throws Exception {
+		ContextImpl context = new ContextImpl();
+
+		assertTrue(Float.isNaN(context.get("pitch")));
+		assertTrue(Float.isNaN(context.get(Variables.PITCH)));
+
+		context.set("pitch", 60.0f);
+		assertEquals(60.0f, context.get(Variables.PITCH));
+
+		context.set(Variables.VELOCITY, 100.0f);
+		assertEquals(100.0f, context.get("velocity"));
+
+		context.clear();
+		assertTrue(Float.isNaN(context.get(Variables.PITCH)));
+	}
+
+	public void testLateVariable() throws Exception {
+		ContextImpl context = new ContextImpl();
+
+		int slot = Variables.slot("late" + System.nanoTime());
+		assertTrue(Float.isNaN(context.get(slot)));
+
+		context.set(slot, 1.0f);
+		assertEquals(1.0f, context.get(slot));
+		assertEquals(1.0f, context.get(Variables.name(slot)));
+	}
+
+	public void testGetUnknown() throws Exception {
+		ContextImpl context = new ContextImpl();
+
+		int count = Variables.getCount();
+		assertTrue(Float.isNaN(context.get("unknown" + System.nanoTime())));
+		assertEquals(count, Variables.getCount());
+
+		context.set("channel", 2.0f);
+		assertEquals(2.0f, context.get(Variables.CHANNEL));
+	}
+
+	public void testNoAllocation() throws Exception {
+		java.lang.management.ThreadMXBean bean = ManagementFactory
+				.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return;
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+
+		ContextImpl context = new ContextImpl();
+		Program program = Program.compile(Tuple
+				.fromString("set 144, set pitch, set velocity"));
+
+		process(context, program, 100000);
+
+		long id = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(id);
+		float sum = process(context, program, 100000);
+		long after = threads.getThreadAllocatedBytes(id);
+
+		assertTrue(sum > 0);
+		assertTrue("allocated " + (after - before), after - before < 1024);
+	}
+
+	private float process(ContextImpl context, Program program, int count) {
+		float sum = 0;
+		for (int i = 0; i < count; i++) {
+			context.set(Variables.PITCH, i % 128);
+			context.set("velocity", 100);
+
+			for (int d = 0; d < program.getLength(); d++) {
+				sum += program.process(d, 0, context);
+			}
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,99 @@
+package jorgan.midi.mpl;
+
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link Program}.
+ */
+public class ProgramTest extends TestCase {
+
+	private ContextImpl context;
+
+	@Override
+	protected void setUp() throws Exception {
+		context = new ContextImpl();
+	}
+
+	public void testEqual() throws Exception {
+		Program program = Program.compile(Tuple
+				.fromString("equal 144, get pitch, greater 0"));
+
+		assertEquals(3, program.getLength());
+		assertEquals(144.0f, program.process(0, 144, context));
+		assertTrue(Float.isNaN(program.process(0, 128, context)));
+
+		assertEquals(60.0f, program.process(1, 60, context));
+		assertEquals(60.0f, context.get("pitch"));
+
+		assertTrue(Float.isNaN(program.process(2, 0, context)));
+	}
+
+	public void testChain() throws Exception {
+		Program program = Program
+				.compile(Tuple
+						.fromString("greaterEqual 10 | lessEqual 20 | sub 10 | mult 2 | get value"));
+
+		assertEquals(10.0f, program.process(0, 15, context));
+		assertEquals(10.0f, context.get("value"));
+
+		assertTrue(Float.isNaN(program.process(0, 9, context)));
+		assertTrue(Float.isNaN(program.process(0, 21, context)));
+	}
+
+	public void testSet() throws Exception {
+		Program program = Program
+				.compile(Tuple.fromString("set 144, set pitch, set velocity 100, "));
+
+		assertEquals(144.0f, program.process(0, 0, context));
+
+		assertTrue(Float.isNaN(program.process(1, 0, context)));
+		context.set("pitch", 60);
+		assertEquals(60.0f, program.process(1, 0, context));
+
+		assertEquals(100.0f, program.process(2, 0, context));
+		context.set("velocity", 80);
+		assertEquals(80.0f, program.process(2, 0, context));
+
+		assertEquals(5.0f, program.process(3, 5, context));
+	}
+
+	public void testNameContext() throws Exception {
+		final ContextImpl delegate = new ContextImpl();
+		Context context = new Context() {
+			public float get(String name) {
+				return delegate.get(name);
+			}
+
+			public void set(String name, float value) {
+				delegate.set(name, value);
+			}
+		};
+
+		Program program = Program.compile(Tuple
+				.fromString("get test | add test, add test 2"));
+
+		assertEquals(10.0f, program.process(0, 5, context));
+		assertEquals(7.0f, program.process(1, 2, context));
+	}
+
+	public void testCompatible() throws Exception {
+		String[] strings = { "equal 176", "notEqual 0 | div 2 | round",
+				"mod 12 | less 6", "set 3 | add 0.5 | round", "" };
+
+		for (String string : strings) {
+			Command command = Command.fromString(string);
+			Program program = Program.compile(new Tuple(command));
+
+			for (int value = 0; value < 256; value++) {
+				float expected = command.process(value, context);
+				float actual = program.process(0, value, context);
+
+				if (Float.isNaN(expected)) {
+					assertTrue(string, Float.isNaN(actual));
+				} else {
+					assertEquals(string, expected, actual);
+				}
+			}
+		}
+	}
+}
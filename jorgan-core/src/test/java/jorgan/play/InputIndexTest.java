@@ -0,0 +1,69 @@
+package jorgan.play;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jorgan.disposition.Input.InputMessage;
+import jorgan.disposition.Switch.Activate;
+import jorgan.disposition.Switch.Deactivate;
+import jorgan.disposition.Switch.Toggle;
+import jorgan.midi.mpl.Tuple;
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link InputIndex}.
+ */
+public class InputIndexTest extends TestCase {
+
+	private InputMessage activate;
+
+	private InputMessage deactivate;
+
+	private InputMessage toggle;
+
+	private InputIndex index;
+
+	@Override
+	protected void setUp() throws Exception {
+		activate = (InputMessage) new Activate().change(Tuple
+				.fromString("equal 176, equal 64, greater 63"));
+		deactivate = (InputMessage) new Deactivate().change(Tuple
+				.fromString("equal 176 | get status, equal 65, less 64"));
+		toggle = (InputMessage) new Toggle().change(Tuple
+				.fromString("greaterEqual 144 | lessEqual 159, get pitch, "));
+
+		List<InputMessage> messages = new ArrayList<InputMessage>();
+		messages.add(activate);
+		messages.add(deactivate);
+		messages.add(toggle);
+
+		index = new InputIndex(messages);
+	}
+
+	public void testStatus() throws Exception {
+		assertTrue(index.hasCandidates(176));
+		assertTrue(index.hasCandidates(144));
+
+		assertEquals(Arrays.asList(toggle), Arrays.asList(index
+				.getCandidates(new byte[] { (byte) 144, 60, 100 })));
+	}
+
+	public void testData1() throws Exception {
+		assertEquals(Arrays.asList(activate, toggle), Arrays.asList(index
+				.getCandidates(new byte[] { (byte) 176, 64, 127 })));
+
+		assertEquals(Arrays.asList(deactivate, toggle), Arrays.asList(index
+				.getCandidates(new byte[] { (byte) 176, 65, 0 })));
+
+		assertEquals(Arrays.asList(toggle), Arrays.asList(index
+				.getCandidates(new byte[] { (byte) 176, 66, 0 })));
+	}
+
+	public void testEmpty() throws Exception {
+		index = new InputIndex(new ArrayList<InputMessage>());
+
+		assertFalse(index.hasCandidates(144));
+		assertEquals(0, index.getCandidates(new byte[] { (byte) 144, 60, 100 }).length);
+	}
+}
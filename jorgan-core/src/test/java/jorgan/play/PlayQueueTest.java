@@ -0,0 +1,180 @@
+package jorgan.play;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+
+import jorgan.disposition.Element;
+import jorgan.disposition.Stop;
+import jorgan.play.OrganPlay.Playing;
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link PlayQueue}.
+ */
+public class PlayQueueTest extends TestCase {
+
+	public void testCapacity() throws Exception {
+		assertEquals(2, new PlayQueue(1, PlayQueue.Wait.SPIN).getCapacity());
+		assertEquals(8, new PlayQueue(5, PlayQueue.Wait.SPIN).getCapacity());
+		assertEquals(8, new PlayQueue(8, PlayQueue.Wait.SPIN).getCapacity());
+	}
+
+	public void testDrain() throws Exception {
+		PlayQueue queue = new PlayQueue(4, PlayQueue.Wait.SPIN);
+
+		final ShortMessage message = new ShortMessage();
+		final AtomicInteger sent = new AtomicInteger();
+		final AtomicInteger run = new AtomicInteger();
+		final AtomicInteger played = new AtomicInteger();
+
+		final Stop stop = new Stop();
+		final Playing playing = new Playing() {
+			public void play(Player<?> player) {
+			}
+		};
+
+		queue.offer(null, message, 1);
+		queue.offer(new Runnable() {
+			public void run() {
+			}
+		});
+		queue.offer(stop, playing);
+		queue.offer(null, message, 2);
+		assertEquals(4, queue.getDepth());
+
+		int count = queue.drain(new PlayQueue.Handler() {
+			public void send(Receiver receiver, MidiMessage message,
+					long timeStamp, long nanos) {
+				assertEquals(sent.incrementAndGet(), timeStamp);
+			}
+
+			public void play(Element element, Playing other) {
+				assertSame(stop, element);
+				assertSame(playing, other);
+				played.incrementAndGet();
+			}
+
+			public void run(Runnable task) {
+				run.incrementAndGet();
+			}
+		});
+
+		assertEquals(4, count);
+		assertEquals(2, sent.get());
+		assertEquals(1, run.get());
+		assertEquals(1, played.get());
+		assertEquals(0, queue.getDepth());
+		assertEquals(4, queue.getMaxDepth());
+		assertEquals(4, queue.getOffered());
+		assertEquals(4, queue.getDrained());
+	}
+
+	public void testConsumerOffer() throws Exception {
+		final PlayQueue queue = new PlayQueue(2, PlayQueue.Wait.SPIN);
+
+		final AtomicInteger run = new AtomicInteger();
+		queue.offer(new Runnable() {
+			public void run() {
+				// queue is full
+				for (int t = 0; t < 3; t++) {
+					queue.offer(new Runnable() {
+						public void run() {
+							run.incrementAndGet();
+						}
+					});
+				}
+			}
+		});
+		queue.offer(new Runnable() {
+			public void run() {
+			}
+		});
+
+		PlayQueue.Handler handler = new PlayQueue.Handler() {
+			public void send(Receiver receiver, MidiMessage message,
+					long timeStamp, long nanos) {
+				fail();
+			}
+
+			public void play(Element element, Playing playing) {
+				fail();
+			}
+
+			public void run(Runnable task) {
+				task.run();
+			}
+		};
+
+		queue.drain(handler);
+		queue.drain(handler);
+
+		assertEquals(3, run.get());
+		assertEquals(0, queue.getDepth());
+	}
+
+	public void testProducers() throws Exception {
+		for (PlayQueue.Wait wait : PlayQueue.Wait.values()) {
+			produce(new PlayQueue(16, wait));
+		}
+	}
+
+	private void produce(final PlayQueue queue) throws Exception {
+		final int producers = 4;
+		final int count = 10000;
+
+		final ShortMessage message = new ShortMessage();
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			final int producer = p;
+			threads[p] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < count; i++) {
+						queue.offer(null, message, producer * count + i);
+					}
+				}
+			};
+			threads[p].start();
+		}
+
+		final long[] last = new long[producers];
+		for (int p = 0; p < producers; p++) {
+			last[p] = p * count - 1;
+		}
+		PlayQueue.Handler handler = new PlayQueue.Handler() {
+			public void send(Receiver receiver, MidiMessage message,
+					long timeStamp, long nanos) {
+				int producer = (int) (timeStamp / count);
+				// order of each producer is kept
+				assertEquals(last[producer] + 1, timeStamp);
+				last[producer] = timeStamp;
+			}
+
+			public void play(Element element, Playing playing) {
+				fail();
+			}
+
+			public void run(Runnable task) {
+				fail();
+			}
+		};
+
+		long drained = 0;
+		while (drained < producers * count) {
+			queue.await();
+			drained += queue.drain(handler);
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(producers * count, queue.getOffered());
+		assertEquals(producers * count, queue.getDrained());
+		assertEquals(0, queue.getDepth());
+		assertTrue(queue.getMaxDepth() <= 16);
+	}
+}
@@ -0,0 +1,155 @@
+package jorgan.play.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.sound.midi.ShortMessage;
+
+import jorgan.disposition.Element;
+import jorgan.disposition.Stop;
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link PlayEventBus}.
+ */
+public class PlayEventBusTest extends TestCase {
+
+	private Element element = new Stop();
+
+	private List<PlayEvent> events = new ArrayList<PlayEvent>();
+
+	private CountDownLatch blocked;
+
+	private CountDownLatch released;
+
+	private PlayEventBus bus;
+
+	private PlayBatchListener listener = new PlayBatchListener() {
+		public void played(List<PlayEvent> events) {
+			if (blocked.getCount() > 0) {
+				blocked.countDown();
+				try {
+					released.await();
+				} catch (InterruptedException interrupted) {
+				}
+			}
+
+			synchronized (PlayEventBusTest.this.events) {
+				PlayEventBusTest.this.events.addAll(events);
+				PlayEventBusTest.this.events.notifyAll();
+			}
+		}
+	};
+
+	@Override
+	protected void tearDown() throws Exception {
+		bus.destroy();
+	}
+
+	public void testNoListener() throws Exception {
+		bus = new PlayEventBus(1, PlayEventBus.Overflow.BLOCK);
+
+		// must not block
+		bus.post(element, message(144, 60), true);
+		bus.post(element, message(144, 61), true);
+	}
+
+	public void testDropOldest() throws Exception {
+		start(PlayEventBus.Overflow.DROP_OLDEST);
+
+		for (int i = 0; i < 6; i++) {
+			bus.post(element, message(144, 60 + i), true);
+		}
+		assertEquals(2, bus.getDropped());
+
+		release(5);
+		assertEquals(60, data1(0));
+		assertEquals(62, data1(1));
+		assertEquals(65, data1(4));
+	}
+
+	public void testCoalesce() throws Exception {
+		start(PlayEventBus.Overflow.COALESCE);
+
+		bus.post(element, message(176, 7, 10), false);
+		bus.post(element, message(176, 8, 0), false);
+		bus.post(element, message(176, 7, 20), false);
+		bus.post(element, message(176, 7, 30), false);
+		bus.post(element, message(176, 7, 40), false);
+		assertEquals(1, bus.getDropped());
+
+		release(5);
+		assertEquals(8, data1(2));
+		assertEquals(40, ((ShortMessage) events.get(4).getMessage()).getData2());
+	}
+
+	public void testBlock() throws Exception {
+		start(PlayEventBus.Overflow.BLOCK);
+
+		for (int i = 0; i < 4; i++) {
+			bus.post(element, message(144, 60 + i), true);
+		}
+
+		final ShortMessage last = message(144, 64);
+		Thread producer = new Thread() {
+			public void run() {
+				bus.post(element, last, true);
+			}
+		};
+		producer.start();
+
+		producer.join(100);
+		assertTrue(producer.isAlive());
+
+		release(6);
+		producer.join();
+		assertEquals(0, bus.getDropped());
+		assertEquals(64, data1(5));
+	}
+
+	/**
+	 * Start with a listener blocked in the first batch and a full buffer.
+	 */
+	private void start(PlayEventBus.Overflow overflow) throws Exception {
+		bus = new PlayEventBus(4, overflow);
+
+		blocked = new CountDownLatch(1);
+		released = new CountDownLatch(1);
+		bus.addListener(listener);
+
+		bus.post(element, message(144, 60), true);
+		blocked.await();
+	}
+
+	private void release(int count) throws InterruptedException {
+		released.countDown();
+
+		synchronized (events) {
+			long end = System.currentTimeMillis() + 5000;
+			while (events.size() < count) {
+				long wait = end - System.currentTimeMillis();
+				if (wait <= 0) {
+					fail("received " + events.size());
+				}
+				events.wait(wait);
+			}
+		}
+		assertEquals(count, events.size());
+	}
+
+	private int data1(int index) {
+		return ((ShortMessage) events.get(index).getMessage()).getData1();
+	}
+
+	private ShortMessage message(int status, int data1) throws Exception {
+		return message(status, data1, 0);
+	}
+
+	private ShortMessage message(int status, int data1, int data2)
+			throws Exception {
+		ShortMessage message = new ShortMessage();
+		message.setMessage(status, data1, data2);
+		return message;
+	}
+}
@@ -0,0 +1,65 @@
+package jorgan.play.metrics;
+
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link Histogram}.
+ */
+public class HistogramTest extends TestCase {
+
+	public void testIndex() throws Exception {
+		for (long value = 0; value < 100000; value++) {
+			long bucket = Histogram.value(Histogram.index(value));
+
+			assertTrue(bucket <= value);
+			assertTrue(value - bucket <= value / 16);
+		}
+
+		Histogram histogram = new Histogram();
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.getMax());
+	}
+
+	public void testPercentile() throws Exception {
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.getPercentile(50));
+
+		for (int value = 1; value <= 1000; value++) {
+			histogram.record(value * 1000);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1000000, histogram.getMax());
+		assertEquals(500500, histogram.getMean());
+
+		assertEquals(500000, histogram.getPercentile(50), 500000 / 16);
+		assertEquals(990000, histogram.getPercentile(99), 990000 / 16);
+		assertEquals(1000000, histogram.getPercentile(100), 1000000 / 16);
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(99));
+	}
+
+	public void testConcurrent() throws Exception {
+		final Histogram histogram = new Histogram();
+
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						histogram.record(i);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40000, histogram.getCount());
+		assertEquals(9999, histogram.getMax());
+	}
+}
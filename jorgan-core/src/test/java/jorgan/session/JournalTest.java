@@ -0,0 +1,177 @@
+package jorgan.session;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jorgan.disposition.Element;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Rank;
+import jorgan.disposition.Stop;
+import jorgan.io.DispositionStream;
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link Journal}.
+ */
+public class JournalTest extends TestCase {
+
+	private File file;
+
+	private Journal journal;
+
+	private DispositionStream stream;
+
+	private Organ organ;
+
+	private Stop stop;
+
+	private Rank rank;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("test", ".disposition");
+
+		stream = new DispositionStream();
+
+		organ = new Organ();
+		stop = new Stop();
+		stop.setName("Stop");
+		organ.addElement(stop);
+		rank = new Rank();
+		rank.setName("Rank");
+		organ.addElement(rank);
+		stop.reference(rank);
+
+		stream.write(organ, file);
+
+		journal = new Journal(file);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		journal.delete();
+		file.delete();
+	}
+
+	public void testReplay() throws Exception {
+		assertFalse(journal.exists());
+
+		stop.setName("Changed");
+		Rank other = new Rank();
+		other.setName("Other");
+		organ.addElement(other);
+		stop.reference(other);
+		journal.append(puts(stop, other), Collections.<Long> emptySet());
+
+		organ.removeElement(rank);
+		journal.append(puts(stop), Arrays.asList(rank.getId()));
+
+		journal.flush();
+		assertTrue(journal.exists());
+
+		Organ replayed = new Journal(file).replay(stream);
+
+		assertEquals(2, replayed.getElements().size());
+		Stop replayedStop = (Stop) replayed.getElement(stop.getId());
+		assertEquals("Changed", replayedStop.getName());
+		Rank replayedOther = (Rank) replayed.getElement(other.getId());
+		assertEquals("Other", replayedOther.getName());
+		assertTrue(replayedStop.references(replayedOther));
+	}
+
+	public void testTorn() throws Exception {
+		stop.setName("Changed");
+		journal.append(puts(stop), Collections.<Long> emptySet());
+		journal.close();
+
+		long length = journal.getFile().length();
+
+		FileOutputStream output = new FileOutputStream(journal.getFile(), true);
+		output.write(new byte[] { 1, 0, 0 });
+		output.close();
+
+		Organ replayed = new Journal(file).replay(stream);
+		assertEquals("Changed", replayed.getElement(stop.getId()).getName());
+
+		assertEquals(length, journal.getFile().length());
+	}
+
+	public void testSnapshot() throws Exception {
+		stop.setName("Changed");
+		journal.append(puts(stop), Collections.<Long> emptySet());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		stream.write(organ, bytes);
+		journal.snapshot(bytes.toByteArray(), 0);
+		assertEquals(0, journal.getRecords());
+
+		journal.flush();
+		assertFalse(journal.exists());
+
+		assertEquals("Changed", stream.read(file).getElement(stop.getId())
+				.getName());
+	}
+
+	public void testStale() throws Exception {
+		stop.setName("Changed");
+		journal.append(puts(stop), Collections.<Long> emptySet());
+		journal.close();
+
+		// crash after snapshot replaced the disposition, but before the
+		// journal was deleted
+		stop.setName("Snapshot");
+		stream.write(organ, file);
+		assertTrue(journal.exists());
+
+		Organ replayed = new Journal(file).replay(stream);
+		assertEquals("Snapshot", replayed.getElement(stop.getId()).getName());
+
+		assertFalse(journal.exists());
+	}
+
+	public void testFailure() throws Exception {
+		assertTrue(journal.getFile().mkdir());
+
+		stop.setName("Changed");
+		journal.append(puts(stop), Collections.<Long> emptySet());
+		assertFalse(journal.isWritten());
+
+		try {
+			for (int attempt = 0; attempt < 500; attempt++) {
+				Thread.sleep(10);
+				journal.append(puts(stop), Collections.<Long> emptySet());
+			}
+			fail();
+		} catch (IOException expected) {
+		}
+		assertFalse(journal.isWritten());
+
+		try {
+			journal.flush();
+		} catch (IOException alsoFailed) {
+		}
+		assertTrue(journal.getFile().delete());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		stream.write(organ, bytes);
+		journal.snapshot(bytes.toByteArray(), 0);
+		journal.flush();
+		assertTrue(journal.isWritten());
+	}
+
+	private Map<Long, byte[]> puts(Element... elements) throws Exception {
+		Map<Long, byte[]> puts = new LinkedHashMap<Long, byte[]>();
+		for (Element element : elements) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			stream.writeElement(element, bytes);
+			puts.put(element.getId(), bytes.toByteArray());
+		}
+		return puts;
+	}
+}
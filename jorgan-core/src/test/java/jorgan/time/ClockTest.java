@@ -0,0 +1,139 @@
+package jorgan.time;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jorgan.disposition.Organ;
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link Clock}.
+ */
+public class ClockTest extends TestCase {
+
+	private Clock clock;
+
+	private List<String> triggered;
+
+	@Override
+	protected void setUp() throws Exception {
+		clock = new Clock(new Organ());
+		clock.start();
+
+		triggered = new ArrayList<String>();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		clock.stop();
+	}
+
+	public void testOrder() throws Exception {
+		clock.alarm(new TestWakeUp("c", null), 30);
+		clock.alarm(new TestWakeUp("a", null), 10);
+		clock.alarm(new TestWakeUp("b", null), 20);
+
+		await(3);
+
+		assertEquals("[a, b, c]", triggered.toString());
+	}
+
+	public void testRounds() throws Exception {
+		// longer than one rotation of the wheel
+		clock.alarm(new TestWakeUp("b", null), 600);
+		clock.alarm(new TestWakeUp("a", null), 100);
+
+		await(2);
+
+		assertEquals("[a, b]", triggered.toString());
+	}
+
+	public void testNotEarly() throws Exception {
+		final long[] nanos = new long[2];
+		nanos[0] = System.nanoTime();
+		clock.alarm(new TestWakeUp("a", null) {
+			@Override
+			public void trigger() {
+				nanos[1] = System.nanoTime();
+				super.trigger();
+			}
+		}, 5);
+
+		await(1);
+
+		assertTrue(nanos[1] - nanos[0] >= 5 * 1000 * 1000);
+	}
+
+	public void testReplace() throws Exception {
+		clock.alarm(new TestWakeUp("a", "key"), 10);
+		clock.alarm(new TestWakeUp("b", "key"), 20);
+		clock.alarm(new TestWakeUp("c", null), 30);
+		clock.alarm(new TestWakeUp("d", null), 30);
+
+		await(3);
+		Thread.sleep(50);
+
+		assertEquals(3, triggered.size());
+		assertEquals("b", triggered.get(0));
+	}
+
+	public void testStop() throws Exception {
+		clock.alarm(new TestWakeUp("a", null), 50);
+		clock.stop();
+
+		Thread.sleep(100);
+		assertTrue(triggered.isEmpty());
+
+		// ignored when stopped
+		clock.alarm(new TestWakeUp("b", null), 0);
+
+		clock.start();
+		clock.alarm(new TestWakeUp("c", null), 0);
+
+		await(1);
+		assertEquals("[c]", triggered.toString());
+	}
+
+	private void await(int count) throws InterruptedException {
+		synchronized (triggered) {
+			long end = System.currentTimeMillis() + 5000;
+			while (triggered.size() < count) {
+				long wait = end - System.currentTimeMillis();
+				if (wait <= 0) {
+					fail("triggered " + triggered);
+				}
+				triggered.wait(wait);
+			}
+		}
+	}
+
+	private class TestWakeUp implements WakeUp {
+
+		private String name;
+
+		private Object key;
+
+		public TestWakeUp(String name, Object key) {
+			this.name = name;
+			this.key = key;
+		}
+
+		@Override
+		public Object getKey() {
+			return key;
+		}
+
+		@Override
+		public boolean replaces(WakeUp wakeUp) {
+			return true;
+		}
+
+		@Override
+		public void trigger() {
+			synchronized (triggered) {
+				triggered.add(name);
+				triggered.notifyAll();
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link Ring}.
+ */
+public class RingTest extends TestCase {
+
+	public void testCapacity() throws Exception {
+		assertEquals(2, new Ring(1).getCapacity());
+		assertEquals(2, new Ring(2).getCapacity());
+		assertEquals(8, new Ring(5).getCapacity());
+	}
+
+	public void testClaimRelease() throws Exception {
+		Ring ring = new Ring(2);
+		assertTrue(ring.isEmpty());
+
+		long first = ring.claim();
+		long second = ring.claim();
+		assertEquals(-1, ring.claim());
+		assertEquals(2, ring.getSize());
+
+		// claimed but not yet published
+		assertTrue(ring.isEmpty());
+
+		ring.publish(second);
+		assertTrue(ring.isEmpty());
+		ring.publish(first);
+		assertFalse(ring.isEmpty());
+
+		assertEquals(ring.index(first), ring.head());
+		ring.release();
+		assertEquals(ring.index(second), ring.head());
+		assertFalse(ring.isEmpty());
+
+		long third = ring.claim();
+		assertEquals(ring.index(first), ring.index(third));
+		assertEquals(-1, ring.claim());
+
+		ring.release();
+		assertTrue(ring.isEmpty());
+		assertEquals(1, ring.getSize());
+	}
+}
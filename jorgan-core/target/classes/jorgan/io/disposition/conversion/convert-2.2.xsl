@@ -0,0 +1,21 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform" >
+
+	<xsl:template match="granularity">
+        <threshold>
+			<xsl:value-of select="."/>
+        </threshold>
+	</xsl:template>
+    
+	<xsl:template match="storeMessage">
+        <captureMessage>
+			<xsl:apply-templates select="@*|*"/>
+        </captureMessage>
+	</xsl:template>
+    
+	<xsl:template match="@*|node()">
+		<xsl:copy>
+			<xsl:apply-templates select="@*|node()"/>
+		</xsl:copy>
+	</xsl:template>	
+</xsl:stylesheet>
\ No newline at end of file
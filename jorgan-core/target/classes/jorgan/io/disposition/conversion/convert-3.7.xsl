@@ -0,0 +1,21 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform" >
+
+	<xsl:template match="combination-switchReference|combination-continuousReference|console-locationReference|reference">
+		<xsl:copy>
+			<element>
+				<xsl:attribute name="ref">
+					<xsl:value-of select="@id"/>
+				</xsl:attribute>
+			</element>
+			<xsl:apply-templates select="node()"/>
+		</xsl:copy>
+	</xsl:template>
+
+  	<xsl:template match="@*|node()">
+		<xsl:copy>
+			<xsl:apply-templates select="@*|node()"/>
+		</xsl:copy>
+	</xsl:template>		
+	
+ </xsl:stylesheet>
\ No newline at end of file
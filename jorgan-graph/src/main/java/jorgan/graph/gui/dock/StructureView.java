@@ -38,11 +38,10 @@ import jorgan.disposition.Keyboard;
 import jorgan.disposition.Reference;
 import jorgan.disposition.event.OrganAdapter;
 import jorgan.disposition.event.OrganListener;
+import jorgan.gui.EventBridge;
 import jorgan.gui.dock.AbstractView;
 import jorgan.gui.selection.ElementSelection;
 import jorgan.gui.selection.SelectionListener;
-import jorgan.play.OrganPlay;
-import jorgan.play.event.PlayListener;
 import jorgan.session.OrganSession;
 import jorgan.swing.button.ButtonGroup;
 import spin.Spin;
@@ -163,9 +162,10 @@ public class StructureView extends AbstractView {
 
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(listener));
+					(OrganListener) EventBridge.over(listener));
 			this.session.lookup(ElementSelection.class).removeListener(
 					(SelectionListener) Spin.over(listener));
+			EventBridge.cancel(listener);
 
 			graphWidget.setGraph2D(new EmptyGraph());
 		}
@@ -174,11 +174,9 @@ public class StructureView extends AbstractView {
 
 		if (this.session != null) {
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(listener));
+					(OrganListener) EventBridge.over(listener));
 			this.session.lookup(ElementSelection.class).addListener(
 					(SelectionListener) Spin.over(listener));
-			this.session.lookup(OrganPlay.class).addPlayerListener(
-					(PlayListener) Spin.over(listener));
 
 			rebuild();
 		}
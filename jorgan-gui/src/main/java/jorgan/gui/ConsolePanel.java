@@ -38,8 +38,10 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.io.File;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -64,6 +66,7 @@ import jorgan.disposition.event.OrganAdapter;
 import jorgan.disposition.event.OrganListener;
 import jorgan.gui.console.ConsoleStack;
 import jorgan.gui.console.View;
+import jorgan.gui.console.ViewCache;
 import jorgan.gui.console.ViewContainer;
 import jorgan.gui.console.spi.ViewRegistry;
 import jorgan.gui.construct.layout.StackVerticalLayout;
@@ -82,6 +85,7 @@ import jorgan.skin.Skin;
 import jorgan.skin.SkinManager;
 import jorgan.skin.Style;
 import jorgan.swing.BaseAction;
+import jorgan.swing.ImageCache;
 import jorgan.swing.StandardDialog;
 import spin.Spin;
 import swingx.Marker;
@@ -122,6 +126,29 @@ public class ConsolePanel extends JComponent implements Scrollable,
 	 */
 	private Map<Displayable, View<? extends Displayable>> viewsByDisplayable = new HashMap<Displayable, View<? extends Displayable>>();
 
+	/**
+	 * The cache of rendered views.
+	 */
+	private ViewCache viewCache = new ViewCache(128);
+
+	/**
+	 * The views in paint order, i.e. as referenced by the console.
+	 */
+	private Iterable<View<?>> paintOrder = new Iterable<View<?>>() {
+		public Iterator<View<?>> iterator() {
+			List<View<?>> views = new ArrayList<View<?>>();
+			for (Displayable element : console.getReferenced(Displayable.class)) {
+				View<?> view = getView(element);
+				if (view != null) {
+					views.add(view);
+				}
+			}
+			return views.iterator();
+		}
+	};
+
+	private boolean cacheViews = true;
+
 	/**
 	 * Currently constructing.
 	 */
@@ -194,7 +221,7 @@ public class ConsolePanel extends JComponent implements Scrollable,
 		}
 		this.session = session;
 		this.session.getOrgan().addOrganListener(
-				(OrganListener) Spin.over(eventHandler));
+				(OrganListener) EventBridge.over(eventHandler));
 		this.session.addListener((SessionListener) Spin.over(eventHandler));
 		this.session.lookup(ElementSelection.class).addListener(eventHandler);
 
@@ -258,8 +285,9 @@ public class ConsolePanel extends JComponent implements Scrollable,
 		this.session.lookup(ElementSelection.class)
 				.removeListener(eventHandler);
 		this.session.getOrgan().removeOrganListener(
-				(OrganListener) Spin.over(eventHandler));
+				(OrganListener) EventBridge.over(eventHandler));
 		this.session.removeListener((SessionListener) Spin.over(eventHandler));
+		EventBridge.cancel(eventHandler);
 		this.session = null;
 
 		if (this.popup != null) {
@@ -280,6 +308,14 @@ public class ConsolePanel extends JComponent implements Scrollable,
 		this.threshold = threshold;
 	}
 
+	public void setCacheViews(boolean cacheViews) {
+		this.cacheViews = cacheViews;
+	}
+
+	public boolean getCacheViews() {
+		return cacheViews;
+	}
+
 	public void setPopupBackground(Color color) {
 		this.popupBackgound = color;
 	}
@@ -367,13 +403,17 @@ public class ConsolePanel extends JComponent implements Scrollable,
 
 	@Override
 	public float getScale(View<? extends Displayable> view) {
-		float scale = view.getElement().getZoom();
+		return getScale(view.getElement());
+	}
+
+	private float getScale(Displayable element) {
+		float scale = element.getZoom();
 		if (scale < Displayable.MIN_ZOOM) {
 			// don't trust element's zoom
 			scale = Displayable.MIN_ZOOM;
 		}
 
-		if (view != consoleView) {
+		if (element != console) {
 			float consoleScale = console.getZoom();
 			if (consoleScale < Displayable.MIN_ZOOM) {
 				// don't trust element's zoom
@@ -453,6 +493,27 @@ public class ConsolePanel extends JComponent implements Scrollable,
 		} else {
 			this.skin = session.lookup(SkinManager.class).getSkin(console);
 		}
+
+		if (this.skin != null) {
+			prescale(console);
+			for (Displayable element : console.getReferenced(Displayable.class)) {
+				prescale(element);
+			}
+		}
+	}
+
+	/**
+	 * Scale the images of the given element in advance, so the views don't
+	 * have to wait for it.
+	 */
+	private void prescale(Displayable element) {
+		String style = element.getStyle();
+		if (style != null) {
+			float scale = getScale(element);
+			for (URL url : skin.getImages(style)) {
+				ImageCache.prefetch(url, scale);
+			}
+		}
 	}
 
 	protected View<? extends Displayable> getView(Displayable element) {
@@ -465,6 +526,7 @@ public class ConsolePanel extends JComponent implements Scrollable,
 
 		viewsByDisplayable.put(displayable, view);
 		view.setContainer(this);
+		viewCache.invalidateIndex();
 
 		repaint();
 		revalidate();
@@ -475,6 +537,8 @@ public class ConsolePanel extends JComponent implements Scrollable,
 
 		viewsByDisplayable.remove(element);
 		view.setContainer(null);
+		viewCache.invalidate(view);
+		viewCache.invalidateIndex();
 
 		if (pressedView == view) {
 			pressedView = null;
@@ -630,7 +694,7 @@ public class ConsolePanel extends JComponent implements Scrollable,
 	}
 
 	/**
-	 * Paint the contained views.
+	 * Paint the contained views, each one from its cached tile if enabled.
 	 * 
 	 * @param g
 	 *            graphics to paint on
@@ -639,25 +703,15 @@ public class ConsolePanel extends JComponent implements Scrollable,
 
 		consoleView.paint(g);
 
-		// iterate elements in order defined by console
+		// views intersecting the clip in order defined by console
 		Rectangle clip = g.getClipBounds();
-		for (Displayable element : console.getReferenced(Displayable.class)) {
-			View<?> view = getView(element);
-			if (view != null) {
-				int x = view.getX();
-				int y = view.getY();
-				int width = view.getWidth();
-				int height = view.getHeight();
-
-				if ((clip.x + clip.width > x && clip.x < x + width)
-						&& (clip.y + clip.height > y && clip.y < y + height)) {
-
-					// clipping a scaled graphics corrupts the clip so don't do
-					// it
-					// g.clipRect(x, y, width, height);
-					view.paint(g);
-					// g.setClip(clip);
-				}
+		for (View<?> view : viewCache.getViews(clip, paintOrder)) {
+			if (cacheViews) {
+				viewCache.paint(g, view);
+			} else {
+				// clipping a scaled graphics corrupts the clip so don't do
+				// it
+				view.paint(g);
 			}
 		}
 	}
@@ -678,6 +732,7 @@ public class ConsolePanel extends JComponent implements Scrollable,
 						.values()) {
 					view.update();
 				}
+				viewCache.invalidate();
 
 				repaint();
 				revalidate();
@@ -695,6 +750,7 @@ public class ConsolePanel extends JComponent implements Scrollable,
 					} else {
 						view.update(name);
 					}
+					viewCache.invalidate(view);
 
 					repaintView(view);
 				}
@@ -715,6 +771,7 @@ public class ConsolePanel extends JComponent implements Scrollable,
 						.getElement());
 				if (view != null) {
 					view.update();
+					viewCache.invalidate(view);
 
 					constructionHandler.updateSelection();
 				}
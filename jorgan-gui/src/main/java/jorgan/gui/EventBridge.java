@@ -0,0 +1,377 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.gui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import jorgan.disposition.event.OrganListener;
+import jorgan.play.event.PlayListener;
+import jorgan.skin.SkinListener;
+import bias.Configuration;
+
+/**
+ * A non-blocking bridge of listener calls onto the EDT.
+ * <p>
+ * In contrast to {@link spin.Spin#over(Object)} a notifying thread is never
+ * blocked: calls from outside the EDT are queued and delivered once per frame,
+ * repeated calls of coalescing methods on the same arguments are collapsed
+ * into the latest one. Calls on the EDT are delivered immediately after
+ * any pending calls.
+ * 
+ * @see #coalesce(Class, int, String...)
+ */
+public class EventBridge {
+
+	private static final Logger logger = Logger.getLogger(EventBridge.class
+			.getName());
+
+	private static Configuration config = Configuration.getRoot().get(
+			EventBridge.class);
+
+	/**
+	 * Coalescing methods.
+	 */
+	private static final Map<Method, Slot> coalescing = new ConcurrentHashMap<Method, Slot>();
+
+	private static final EventBridge bridge = new EventBridge();
+
+	static {
+		coalesce(OrganListener.class, 2, "propertyChanged");
+		coalesce(OrganListener.class, 3, "indexedPropertyChanged");
+		coalesce(PlayListener.class, 1, "received");
+		coalesce(PlayListener.class, 1, "sent");
+		coalesce(SkinListener.class, 0, "progress");
+	}
+
+	private int frameRate = 60;
+
+	/**
+	 * Pending calls in order of their first occurrence.
+	 */
+	private Map<Object, Call> pending = new LinkedHashMap<Object, Call>();
+
+	private Timer timer;
+
+	private EventBridge() {
+		config.read(this);
+
+		timer = new Timer(1000 / frameRate, new ActionListener() {
+			public void actionPerformed(ActionEvent ev) {
+				flush();
+			}
+		});
+		timer.setRepeats(false);
+	}
+
+	public void setFrameRate(int frameRate) {
+		if (frameRate < 1) {
+			throw new IllegalArgumentException("frameRate must be positive");
+		}
+		this.frameRate = frameRate;
+
+		// not yet created when configured on construction
+		if (timer != null) {
+			timer.setInitialDelay(1000 / frameRate);
+			timer.setDelay(1000 / frameRate);
+		}
+	}
+
+	public int getFrameRate() {
+		return frameRate;
+	}
+
+	private void queue(Object key, Call call) {
+		boolean schedule;
+		synchronized (this) {
+			schedule = pending.isEmpty();
+			pending.put(key, call);
+		}
+
+		if (schedule) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if (!timer.isRunning()) {
+						timer.start();
+					}
+				}
+			});
+		}
+	}
+
+	private void discard(Object target) {
+		synchronized (this) {
+			Iterator<Call> calls = pending.values().iterator();
+			while (calls.hasNext()) {
+				if (calls.next().target == target) {
+					calls.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deliver all pending calls - must be called on the EDT.
+	 */
+	private void flush() {
+		Map<Object, Call> calls;
+		synchronized (this) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			calls = pending;
+			pending = new LinkedHashMap<Object, Call>();
+		}
+
+		Set<Object> targets = new LinkedHashSet<Object>();
+		for (Call call : calls.values()) {
+			try {
+				call.deliver();
+			} catch (Throwable ex) {
+				logger.log(Level.WARNING, "delivery failed", ex);
+			}
+			targets.add(call.target);
+		}
+
+		for (Object target : targets) {
+			if (target instanceof FrameListener) {
+				try {
+					((FrameListener) target).framed();
+				} catch (Throwable ex) {
+					logger.log(Level.WARNING, "delivery failed", ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Let calls of the given methods coalesce, if they agree on the given
+	 * number of leading arguments. Calls of different methods registered
+	 * together replace each other, so only the latest one is delivered.
+	 * <p>
+	 * Registration applies to all listeners implementing the given interface,
+	 * thus a listener needing coalescing of its own should use a private
+	 * interface.
+	 * 
+	 * @param type
+	 *            listener interface
+	 * @param args
+	 *            number of leading arguments identifying a call
+	 * @param names
+	 *            names of methods
+	 */
+	public static void coalesce(Class<?> type, int args, String... names) {
+		Slot slot = new Slot(args);
+
+		for (String name : names) {
+			boolean found = false;
+			for (Method method : type.getMethods()) {
+				if (method.getName().equals(name)) {
+					if (method.getParameterTypes().length < args) {
+						throw new IllegalArgumentException("too few arguments");
+					}
+					coalescing.put(method, slot);
+					found = true;
+				}
+			}
+			if (!found) {
+				throw new IllegalArgumentException("unknown method '" + name
+						+ "'");
+			}
+		}
+	}
+
+	/**
+	 * Bridge calls to the given listener onto the EDT.
+	 * 
+	 * @param listener
+	 *            listener to bridge
+	 * @return proxy implementing all interfaces of the listener, equal to all
+	 *         other proxies of the same listener
+	 */
+	public static Object over(Object listener) {
+		Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+		for (Class<?> clazz = listener.getClass(); clazz != null; clazz = clazz
+				.getSuperclass()) {
+			interfaces.addAll(Arrays.asList(clazz.getInterfaces()));
+		}
+
+		return Proxy.newProxyInstance(listener.getClass().getClassLoader(),
+				interfaces.toArray(new Class<?>[interfaces.size()]),
+				new Handler(listener));
+	}
+
+	/**
+	 * Discard all pending calls to the given listener, e.g. when it is no
+	 * longer registered.
+	 * 
+	 * @param listener
+	 *            listener to discard calls for
+	 */
+	public static void cancel(Object listener) {
+		bridge.discard(listener);
+	}
+
+	/**
+	 * Optional callback for a listener, notified after all calls of a frame
+	 * were delivered.
+	 */
+	public static interface FrameListener {
+		public void framed();
+	}
+
+	private static class Handler implements InvocationHandler {
+
+		private final Object target;
+
+		public Handler(Object target) {
+			this.target = target;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args)
+				throws Throwable {
+			if (method.getDeclaringClass() == Object.class) {
+				return invokeObject(proxy, method, args);
+			}
+
+			Call call = new Call(target, method, args);
+			if (SwingUtilities.isEventDispatchThread()) {
+				bridge.flush();
+
+				return call.deliver();
+			}
+
+			Slot slot = coalescing.get(method);
+			if (slot == null) {
+				bridge.queue(new Object(), call);
+			} else {
+				// no arguments are passed as null
+				Object[] key = slot.args == 0 ? new Object[0] : Arrays.copyOf(
+						args, slot.args);
+				bridge.queue(new Key(target, slot, key), call);
+			}
+			return null;
+		}
+
+		private Object invokeObject(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if ("equals".equals(name)) {
+				Object other = args[0];
+				if (other != null && Proxy.isProxyClass(other.getClass())) {
+					InvocationHandler handler = Proxy
+							.getInvocationHandler(other);
+					return handler instanceof Handler
+							&& ((Handler) handler).target == target;
+				}
+				return false;
+			} else if ("hashCode".equals(name)) {
+				return System.identityHashCode(target);
+			} else {
+				return "EventBridge[" + target + "]";
+			}
+		}
+	}
+
+	private static class Call {
+
+		private final Object target;
+
+		private final Method method;
+
+		private final Object[] args;
+
+		public Call(Object target, Method method, Object[] args) {
+			this.target = target;
+			this.method = method;
+			this.args = args;
+
+			if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+				// e.g. a private listener interface
+				method.setAccessible(true);
+			}
+		}
+
+		public Object deliver() throws Throwable {
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException ex) {
+				throw ex.getCause();
+			}
+		}
+	}
+
+	private static class Slot {
+
+		private final int args;
+
+		public Slot(int args) {
+			this.args = args;
+		}
+	}
+
+	private static class Key {
+
+		private final Object target;
+
+		private final Slot slot;
+
+		private final Object[] args;
+
+		public Key(Object target, Slot slot, Object[] args) {
+			this.target = target;
+			this.slot = slot;
+			this.args = args;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) object;
+
+			return target == other.target && slot == other.slot
+					&& Arrays.equals(args, other.args);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(target) * 31
+					+ System.identityHashCode(slot) * 17
+					+ Arrays.hashCode(args);
+		}
+	}
+}
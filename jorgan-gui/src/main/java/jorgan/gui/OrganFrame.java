@@ -53,6 +53,8 @@ import jorgan.session.History;
 import jorgan.session.OrganSession;
 import jorgan.session.SessionAware;
 import jorgan.session.SessionListener;
+import jorgan.skin.SkinListener;
+import jorgan.skin.SkinManager;
 import jorgan.swing.BaseAction;
 import jorgan.swing.DebugPanel;
 import jorgan.swing.MacAdapter;
@@ -313,6 +315,10 @@ public class OrganFrame extends JFrame implements SessionAware {
 		statusBar.setStatus(null);
 
 		if (this.session != null) {
+			this.session.lookup(SkinManager.class).removeListener(
+					(SkinListener) EventBridge.over(handler));
+			EventBridge.cancel(handler);
+
 			this.session.destroy();
 
 			this.session.removeListener((SessionListener) Spin.over(handler));
@@ -322,6 +328,10 @@ public class OrganFrame extends JFrame implements SessionAware {
 
 		if (this.session != null) {
 			this.session.addListener((SessionListener) Spin.over(handler));
+
+			// skins are loading already
+			this.session.lookup(SkinManager.class).addListener(
+					(SkinListener) EventBridge.over(handler));
 		}
 
 		constructAction.setSelected(this.session != null
@@ -647,11 +657,19 @@ public class OrganFrame extends JFrame implements SessionAware {
 		}
 	}
 
-	private class EventHandler implements SessionListener {
+	private class EventHandler implements SessionListener, SkinListener {
 		public void constructingChanged(boolean constructing) {
 			constructAction.setSelected(constructing);
 		}
 
+		public void progress(int loaded, int total) {
+			if (loaded < total) {
+				showStatusMessage("skinsLoading", loaded, total);
+			} else {
+				showStatusMessage(null);
+			}
+		}
+
 		public void modified() {
 			saveAction.onSession();
 		}
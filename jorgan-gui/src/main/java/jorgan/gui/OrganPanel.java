@@ -206,15 +206,16 @@ public class OrganPanel extends JPanel implements SessionAware, ConsoleStack {
 	public void setSession(OrganSession session) {
 		if (this.session != null) {
 			this.session.getOrgan().removeOrganListener(
-					(OrganListener) Spin.over(eventsListener));
+					(OrganListener) EventBridge.over(eventsListener));
 			this.session.lookup(OrganPlay.class).removePlayerListener(
-					(PlayListener) Spin.over(eventsListener));
+					(PlayListener) EventBridge.over(eventsListener));
 			this.session.lookup(ElementProblems.class).removeListener(
-					(ProblemListener) Spin.over(eventsListener));
+					(ProblemListener) EventBridge.over(eventsListener));
 			this.session.lookup(ElementSelection.class).removeListener(
 					eventsListener);
 			this.session.removeListener((SessionListener) Spin
 					.over(eventsListener));
+			EventBridge.cancel(eventsListener);
 
 			for (Object key : views.getDockableKeys()) {
 				AbstractView view = (AbstractView) views.getDockable(key);
@@ -244,11 +245,11 @@ public class OrganPanel extends JPanel implements SessionAware, ConsoleStack {
 			this.session.lookup(ElementSelection.class).addListener(
 					eventsListener);
 			this.session.lookup(ElementProblems.class).addListener(
-					(ProblemListener) Spin.over(eventsListener));
+					(ProblemListener) EventBridge.over(eventsListener));
 			this.session.lookup(OrganPlay.class).addPlayerListener(
-					(PlayListener) Spin.over(eventsListener));
+					(PlayListener) EventBridge.over(eventsListener));
 			this.session.getOrgan().addOrganListener(
-					(OrganListener) Spin.over(eventsListener));
+					(OrganListener) EventBridge.over(eventsListener));
 
 			for (Object key : views.getDockableKeys()) {
 				AbstractView view = (AbstractView) views.getDockable(key);
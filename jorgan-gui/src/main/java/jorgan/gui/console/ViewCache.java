@@ -0,0 +1,367 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.gui.console;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jorgan.disposition.Displayable;
+
+/**
+ * A cache of rendered views.
+ * <p>
+ * Each view is rendered once into an image tile, which is reused on each
+ * paint until the view is invalidated. A grid index of the views' bounds
+ * allows to find the views intersecting a clip without testing each view,
+ * it is rebuilt only when views are added, removed or change their bounds.
+ */
+public class ViewCache {
+
+	private final int cellSize;
+
+	private Map<View<?>, Tile> tiles = new IdentityHashMap<View<?>, Tile>();
+
+	/**
+	 * Is the index valid.
+	 */
+	private boolean indexed;
+
+	/**
+	 * Paint order of all indexed views.
+	 */
+	private Map<View<?>, Integer> orders = new IdentityHashMap<View<?>, Integer>();
+
+	/**
+	 * Indexed views by paint order.
+	 */
+	private View<?>[] views = new View<?>[0];
+
+	/**
+	 * Indexed bounds of views by paint order.
+	 */
+	private Rectangle[] bounds = new Rectangle[0];
+
+	/**
+	 * First indexed column and row of cells.
+	 */
+	private int column;
+
+	private int row;
+
+	private int columns;
+
+	private int rows;
+
+	/**
+	 * Paint orders of views by cell.
+	 */
+	private int[][] cells = new int[0][];
+
+	/**
+	 * The current visit of {@link #getViews(Rectangle, Iterable)}, marking
+	 * views already seen by paint order.
+	 */
+	private int visit;
+
+	private int[] visited = new int[0];
+
+	private int[] found = new int[0];
+
+	private List<View<?>> candidates = new ArrayList<View<?>>();
+
+	/**
+	 * Create a cache.
+	 * 
+	 * @param cellSize
+	 *            size of grid cells
+	 */
+	public ViewCache(int cellSize) {
+		if (cellSize < 1) {
+			throw new IllegalArgumentException("cellSize must be positive");
+		}
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Invalidate the given view, e.g. when its displayed state, location or
+	 * size changed. The index is invalidated only if the bounds of the view
+	 * changed.
+	 * 
+	 * @param view
+	 *            view to invalidate
+	 */
+	public void invalidate(View<? extends Displayable> view) {
+		tiles.remove(view);
+
+		if (indexed) {
+			Integer order = orders.get(view);
+			if (order == null || !fits(view, bounds[order])) {
+				indexed = false;
+			}
+		}
+	}
+
+	/**
+	 * Invalidate the index, e.g. when views were added or removed or their
+	 * paint order changed.
+	 */
+	public void invalidateIndex() {
+		indexed = false;
+	}
+
+	/**
+	 * Invalidate all views.
+	 */
+	public void invalidate() {
+		tiles.clear();
+
+		indexed = false;
+	}
+
+	/**
+	 * Get the views intersecting the given clip.
+	 * 
+	 * @param clip
+	 *            clip to get views for
+	 * @param views
+	 *            all views in paint order, used to rebuild the index when
+	 *            invalid
+	 * @return intersecting views in paint order, valid until the next call
+	 */
+	public List<View<?>> getViews(Rectangle clip, Iterable<View<?>> views) {
+		if (!indexed) {
+			index(views);
+		}
+
+		candidates.clear();
+
+		visit++;
+		if (visit == 0) {
+			Arrays.fill(visited, 0);
+			visit = 1;
+		}
+
+		int count = 0;
+
+		int x1 = Math.max(cell(clip.x) - column, 0);
+		int y1 = Math.max(cell(clip.y) - row, 0);
+		int x2 = Math.min(cell(clip.x + clip.width) - column, columns - 1);
+		int y2 = Math.min(cell(clip.y + clip.height) - row, rows - 1);
+		for (int x = x1; x <= x2; x++) {
+			for (int y = y1; y <= y2; y++) {
+				for (int order : cells[x * rows + y]) {
+					if (visited[order] != visit) {
+						visited[order] = visit;
+
+						if (intersects(bounds[order], clip)) {
+							found[count++] = order;
+						}
+					}
+				}
+			}
+		}
+
+		Arrays.sort(found, 0, count);
+		for (int c = 0; c < count; c++) {
+			candidates.add(this.views[found[c]]);
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Paint the given view from its tile, rendering the tile first if
+	 * necessary.
+	 * 
+	 * @param g
+	 *            graphics to paint on
+	 * @param view
+	 *            view to paint
+	 */
+	public void paint(Graphics2D g, View<?> view) {
+		int width = view.getWidth();
+		int height = view.getHeight();
+		if (width <= 0 || height <= 0) {
+			return;
+		}
+
+		AffineTransform transform = g.getTransform();
+		double scaleX = transform.getScaleX();
+		double scaleY = transform.getScaleY();
+		if (scaleX <= 0 || scaleY <= 0) {
+			view.paint(g);
+			return;
+		}
+
+		Tile tile = tiles.get(view);
+		if (tile == null || !tile.fits(width, height, scaleX, scaleY)) {
+			tile = new Tile(g, view, width, height, scaleX, scaleY);
+			tiles.put(view, tile);
+		}
+
+		g.drawImage(tile.image, view.getX(), view.getY(), width, height, null);
+	}
+
+	private void index(Iterable<View<?>> views) {
+		orders.clear();
+		List<View<?>> indexed = new ArrayList<View<?>>();
+		for (View<?> view : views) {
+			orders.put(view, indexed.size());
+			indexed.add(view);
+		}
+
+		int count = indexed.size();
+		this.views = indexed.toArray(new View<?>[count]);
+		this.bounds = new Rectangle[count];
+		this.visited = new int[count];
+		this.found = new int[count];
+		this.visit = 0;
+
+		int x1 = Integer.MAX_VALUE;
+		int y1 = Integer.MAX_VALUE;
+		int x2 = Integer.MIN_VALUE;
+		int y2 = Integer.MIN_VALUE;
+		for (int order = 0; order < count; order++) {
+			View<?> view = this.views[order];
+
+			Rectangle rectangle = new Rectangle(view.getX(), view.getY(), view
+					.getWidth(), view.getHeight());
+			bounds[order] = rectangle;
+
+			x1 = Math.min(x1, cell(rectangle.x));
+			y1 = Math.min(y1, cell(rectangle.y));
+			x2 = Math.max(x2, cell(rectangle.x + rectangle.width));
+			y2 = Math.max(y2, cell(rectangle.y + rectangle.height));
+		}
+
+		if (count == 0) {
+			column = 0;
+			row = 0;
+			columns = 0;
+			rows = 0;
+		} else {
+			column = x1;
+			row = y1;
+			columns = x2 - x1 + 1;
+			rows = y2 - y1 + 1;
+		}
+
+		int[] sizes = new int[columns * rows];
+		for (Rectangle rectangle : bounds) {
+			for (int x = cell(rectangle.x); x <= cell(rectangle.x
+					+ rectangle.width); x++) {
+				for (int y = cell(rectangle.y); y <= cell(rectangle.y
+						+ rectangle.height); y++) {
+					sizes[(x - column) * rows + (y - row)]++;
+				}
+			}
+		}
+
+		cells = new int[sizes.length][];
+		for (int c = 0; c < sizes.length; c++) {
+			cells[c] = new int[sizes[c]];
+			sizes[c] = 0;
+		}
+
+		for (int order = 0; order < count; order++) {
+			Rectangle rectangle = bounds[order];
+			for (int x = cell(rectangle.x); x <= cell(rectangle.x
+					+ rectangle.width); x++) {
+				for (int y = cell(rectangle.y); y <= cell(rectangle.y
+						+ rectangle.height); y++) {
+					int c = (x - column) * rows + (y - row);
+					cells[c][sizes[c]++] = order;
+				}
+			}
+		}
+
+		this.indexed = true;
+	}
+
+	private int cell(int coordinate) {
+		return Math.floorDiv(coordinate, cellSize);
+	}
+
+	private static boolean fits(View<?> view, Rectangle bounds) {
+		return bounds.x == view.getX() && bounds.y == view.getY()
+				&& bounds.width == view.getWidth()
+				&& bounds.height == view.getHeight();
+	}
+
+	private static boolean intersects(Rectangle bounds, Rectangle clip) {
+		return (clip.x + clip.width > bounds.x && clip.x < bounds.x
+				+ bounds.width)
+				&& (clip.y + clip.height > bounds.y && clip.y < bounds.y
+						+ bounds.height);
+	}
+
+	private static class Tile {
+
+		private final int width;
+
+		private final int height;
+
+		private final double scaleX;
+
+		private final double scaleY;
+
+		private final BufferedImage image;
+
+		/**
+		 * Render a tile of the given view, matching the device scale of the
+		 * given graphics.
+		 */
+		public Tile(Graphics2D g, View<?> view, int width, int height,
+				double scaleX, double scaleY) {
+			this.width = width;
+			this.height = height;
+			this.scaleX = scaleX;
+			this.scaleY = scaleY;
+
+			image = g.getDeviceConfiguration().createCompatibleImage(
+					(int) Math.ceil(width * scaleX),
+					(int) Math.ceil(height * scaleY), Transparency.TRANSLUCENT);
+
+			Graphics2D graphics = image.createGraphics();
+			try {
+				graphics.setRenderingHints(g.getRenderingHints());
+				graphics.setFont(g.getFont());
+				graphics.scale(scaleX, scaleY);
+				graphics.translate(-view.getX(), -view.getY());
+
+				view.paint(graphics);
+			} finally {
+				graphics.dispose();
+			}
+		}
+
+		public boolean fits(int width, int height, double scaleX, double scaleY) {
+			return this.width == width && this.height == height
+					&& this.scaleX == scaleX && this.scaleY == scaleY;
+		}
+	}
+}
@@ -23,11 +23,8 @@ import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.ArrayList;
 import java.util.List;
 
-import javax.sound.midi.MidiMessage;
-import javax.sound.midi.ShortMessage;
 import javax.swing.JComponent;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
@@ -39,22 +36,29 @@ import javax.swing.TransferHandler;
 import javax.swing.table.TableColumn;
 
 import jorgan.disposition.Element;
+import jorgan.gui.EventBridge;
+import jorgan.gui.play.MessageBuffer;
 import jorgan.gui.selection.ElementSelection;
+import jorgan.gui.selection.SelectionListener;
 import jorgan.midi.MessageUtils;
 import jorgan.play.OrganPlay;
-import jorgan.play.event.PlayListener;
+import jorgan.play.event.PlayBatchListener;
+import jorgan.play.event.PlayEvent;
 import jorgan.session.OrganSession;
 import jorgan.swing.BaseAction;
 import jorgan.swing.table.BaseTableModel;
 import jorgan.swing.table.SimpleCellRenderer;
 import jorgan.swing.table.TableUtils;
-import spin.Spin;
 import swingx.docking.Docked;
 import bias.Configuration;
 import bias.util.MessageBuilder;
 
 /**
  * A monitor of MIDI messages.
+ * <p>
+ * Messages are captured into a {@link MessageBuffer} as they are played,
+ * the table shows an index of the buffered messages passing the current
+ * filter, updated at most once per frame.
  */
 public class MonitorView extends AbstractView {
 
@@ -71,13 +75,52 @@ public class MonitorView extends AbstractView {
 			new Color(240, 240, 240) // 0xe0
 	};
 
-	private PlayListener listener = new InternalListener();
+	static {
+		EventBridge.coalesce(Refresher.class, 0, "refresh");
+	}
+
+	private PlayBatchListener listener = new InternalListener();
+
+	private SelectionListener selectionListener = new SelectionListener() {
+		public void selectionChanged() {
+			if (filterButton.isSelected()) {
+				refilter();
+			}
+		}
+	};
+
+	private Refresher refresher = (Refresher) EventBridge.over(new Refresher() {
+		public void refresh() {
+			MonitorView.this.refresh();
+		}
+	});
 
 	private boolean skip;
 
 	private int max;
 
-	private List<Message> messages = new ArrayList<Message>();
+	private int types = 0xffff;
+
+	private MessageBuffer buffer;
+
+	/**
+	 * Sequence numbers of the buffered messages passing the filter.
+	 */
+	private long[] rows;
+
+	private int rowStart;
+
+	private int rowCount;
+
+	/**
+	 * Sequence number of the next message to index.
+	 */
+	private long indexed;
+
+	/**
+	 * Ids of elements to filter by.
+	 */
+	private long[] filterIds = new long[0];
 
 	private JTable table = new JTable();
 
@@ -85,6 +128,8 @@ public class MonitorView extends AbstractView {
 
 	private JToggleButton outputButton = new JToggleButton();
 
+	private JToggleButton filterButton = new JToggleButton();
+
 	private JToggleButton scrollLockButton = new JToggleButton();
 
 	private MessagesModel tableModel = new MessagesModel();
@@ -97,9 +142,23 @@ public class MonitorView extends AbstractView {
 	public MonitorView() {
 		config.read(this);
 
+		buffer = new MessageBuffer(max);
+		rows = new long[max];
+
+		ActionListener refilter = new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				refilter();
+			}
+		};
+
 		config.get("input").read(inputButton);
+		inputButton.addActionListener(refilter);
 
 		config.get("output").read(outputButton);
+		outputButton.addActionListener(refilter);
+
+		config.get("filter").read(filterButton);
+		filterButton.addActionListener(refilter);
 
 		config.get("scrollLock").read(scrollLockButton);
 
@@ -115,9 +174,17 @@ public class MonitorView extends AbstractView {
 
 				StringBuilder builder = new StringBuilder();
 
-				for (int row : table.getSelectedRows()) {
-					builder.append(messages.get(row));
-					builder.append("\n");
+				synchronized (buffer) {
+					for (int row : table.getSelectedRows()) {
+						long sequence = getRow(row);
+						if (buffer.contains(sequence)) {
+							builder.append(String.format("%s\t%s\t%s",
+									buffer.getStatus(sequence), buffer
+											.getData1(sequence), buffer
+											.getData2(sequence)));
+							builder.append("\n");
+						}
+					}
 				}
 				clip.setContents(new StringSelection(builder.toString()), null);
 			}
@@ -125,11 +192,14 @@ public class MonitorView extends AbstractView {
 		TableUtils.addActionListener(table, new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
-				Message message = messages.get(table.getSelectedRow());
+				long sequence = getRow(table.getSelectedRow());
 
 				Element element;
 				try {
-					element = session.getOrgan().getElement(message.id);
+					element = session.getOrgan().getElement(
+							buffer.getId(sequence));
+				} catch (IndexOutOfBoundsException noLongerBuffered) {
+					return;
 				} catch (IllegalArgumentException noLongerPresent) {
 					return;
 				}
@@ -149,23 +219,28 @@ public class MonitorView extends AbstractView {
 
 			column.setCellRenderer(new MessageCellRenderer());
 		}
-		TableUtils.fixColumnWidth(table, 0, new Message(0, false,
-				new ShortMessage()));
+		TableUtils.fixColumnWidth(table, 0, Long.valueOf(-1));
 	}
 
 	@Override
 	public void setSession(OrganSession session) {
 		if (this.session != null) {
 			this.session.lookup(OrganPlay.class).removePlayerListener(
-					(PlayListener) Spin.over(listener));
+					listener);
+			this.session.lookup(ElementSelection.class).removeListener(
+					selectionListener);
 		}
 
 		this.session = session;
 
 		if (this.session != null) {
 			this.session.lookup(OrganPlay.class).addPlayerListener(
-					(PlayListener) Spin.over(listener));
+					listener);
+			this.session.lookup(ElementSelection.class).addListener(
+					selectionListener);
 		}
+
+		refilter();
 	}
 
 	@Override
@@ -173,6 +248,7 @@ public class MonitorView extends AbstractView {
 
 		docked.addTool(inputButton);
 		docked.addTool(outputButton);
+		docked.addTool(filterButton);
 		docked.addToolSeparator();
 		docked.addTool(scrollLockButton);
 		docked.addToolSeparator();
@@ -183,7 +259,13 @@ public class MonitorView extends AbstractView {
 	 * Clear this log.
 	 */
 	public void clear() {
-		messages.clear();
+		synchronized (buffer) {
+			buffer.clear();
+
+			rowStart = 0;
+			rowCount = 0;
+			indexed = buffer.getTotal();
+		}
 
 		tableModel.fireTableDataChanged();
 	}
@@ -196,200 +278,289 @@ public class MonitorView extends AbstractView {
 		this.skip = skip;
 	}
 
-	private class InternalListener implements PlayListener {
+	/**
+	 * Set the message types to show.
+	 * 
+	 * @param types
+	 *            bit mask of status nibbles, e.g. <code>1 << 0x9</code> for
+	 *            note on
+	 */
+	public void setTypes(int types) {
+		this.types = types;
+	}
+
+	public int getTypes() {
+		return types;
+	}
 
-		@Override
-		public void received(Element element, MidiMessage message) {
-			if (!skip(message) && inputButton.isSelected()) {
-				add(element, true, message);
+	private long getRow(int row) {
+		return rows[(rowStart + row) % rows.length];
+	}
+
+	/**
+	 * Rebuild the index of rows, e.g. after a change of the filter.
+	 */
+	private void refilter() {
+		filterIds = new long[0];
+		if (filterButton.isSelected() && session != null) {
+			List<Element> elements = session.lookup(ElementSelection.class)
+					.getSelectedElements();
+			filterIds = new long[elements.size()];
+			for (int e = 0; e < filterIds.length; e++) {
+				filterIds[e] = elements.get(e).getId();
 			}
 		}
 
-		@Override
-		public void sent(Element element, MidiMessage message) {
-			if (!skip(message) && outputButton.isSelected()) {
-				add(element, false, message);
-			}
+		synchronized (buffer) {
+			rowStart = 0;
+			rowCount = 0;
+			indexed = buffer.getFirst();
+
+			index();
 		}
 
-		private boolean skip(MidiMessage message) {
-			int status = message.getStatus() & 0xff;
+		tableModel.fireTableDataChanged();
+	}
+
+	/**
+	 * Index messages added since the last refresh.
+	 */
+	private void refresh() {
+		int removed;
+		int inserted;
+		synchronized (buffer) {
+			long first = buffer.getFirst();
+
+			removed = 0;
+			while (rowCount > 0 && rows[rowStart] < first) {
+				rowStart = (rowStart + 1) % rows.length;
+				rowCount--;
+				removed++;
+			}
 
-			// skip everything greater System exclusive
-			return skip && status > 0xf0;
+			inserted = rowCount;
+			index();
 		}
 
-		private void add(Element element, boolean input, MidiMessage message) {
-			messages.add(new Message(element.getId(), input, message));
-			int row = messages.size() - 1;
+		if (removed > 0) {
+			tableModel.fireTableRowsDeleted(0, removed - 1);
+		}
 
-			tableModel.fireTableRowsInserted(row, row);
+		if (rowCount > inserted) {
+			tableModel.fireTableRowsInserted(inserted, rowCount - 1);
 
 			if (!scrollLockButton.isSelected()) {
-				table.scrollRectToVisible(table.getCellRect(row, 0, true));
+				table.scrollRectToVisible(table.getCellRect(rowCount - 1, 0,
+						true));
 			}
+		}
+	}
 
-			int over = messages.size() - max;
-			if (over > 0) {
-				for (int m = 0; m < over; m++) {
-					messages.remove(0);
-				}
+	private void index() {
+		long total = buffer.getTotal();
 
-				tableModel.fireTableRowsDeleted(0, over - 1);
+		for (long sequence = Math.max(indexed, buffer.getFirst()); sequence < total; sequence++) {
+			if (accept(sequence)) {
+				rows[(rowStart + rowCount) % rows.length] = sequence;
+				rowCount++;
 			}
 		}
-	}
 
-	public class MessagesModel extends BaseTableModel<Message> {
+		indexed = total;
+	}
 
-		public int getColumnCount() {
-			return 5;
+	private boolean accept(long sequence) {
+		if (buffer.isInput(sequence)) {
+			if (!inputButton.isSelected()) {
+				return false;
+			}
+		} else {
+			if (!outputButton.isSelected()) {
+				return false;
+			}
 		}
 
-		public int getRowCount() {
-			return messages.size();
+		if ((types & (1 << (buffer.getStatus(sequence) >> 4))) == 0) {
+			return false;
 		}
 
-		@Override
-		protected Message getRow(int rowIndex) {
-			return messages.get(rowIndex);
+		if (filterButton.isSelected()) {
+			long id = buffer.getId(sequence);
+			for (long filterId : filterIds) {
+				if (filterId == id) {
+					return true;
+				}
+			}
+			return false;
 		}
 
-		@Override
-		protected Object getValue(Message message, int columnIndex) {
-			return message;
-		}
+		return true;
 	}
 
-	private class Message {
-
-		private long id;
-
-		public final boolean input;
-
-		public final String channel;
-
-		public final String status;
-
-		public final String data1;
-
-		public final String data2;
-
-		public final int length;
-
-		private final String description;
-
-		private Color color;
-
-		public Message(long id, boolean input, MidiMessage message) {
-			this.id = id;
-
-			this.input = input;
+	/**
+	 * Events are delivered in batches, thus not delaying the play. They are
+	 * captured immediately, while the table is refreshed at most once per
+	 * frame.
+	 */
+	private class InternalListener implements PlayBatchListener {
 
-			int status = message.getStatus();
+		@Override
+		public void played(List<PlayEvent> events) {
+			boolean added = false;
 
-			if (message instanceof ShortMessage) {
-				ShortMessage shortMessage = (ShortMessage) message;
+			for (PlayEvent event : events) {
+				int status = event.getMessage().getStatus() & 0xff;
 
-				if (MessageUtils.isChannelStatus(status)) {
-					this.status = String.valueOf(status & 0xf0);
-					this.channel = String.valueOf(shortMessage.getChannel());
-				} else {
-					this.status = String.valueOf(status);
-					this.channel = "-";
+				// skip everything greater System exclusive
+				if (skip && status > 0xf0) {
+					continue;
 				}
 
-				this.data1 = String.valueOf(shortMessage.getData1());
-				this.data2 = String.valueOf(shortMessage.getData2());
-			} else {
-				this.status = String.valueOf(status);
-				this.data1 = "-";
-				this.data2 = "-";
-				this.channel = "-";
+				buffer.add(event.getTime(), event.getElement().getId(), !event
+						.isSent(), event.getMessage());
+				added = true;
 			}
-			this.length = message.getLength();
 
-			this.description = buildDescription();
-			this.color = buildColor(status);
+			if (added) {
+				refresher.refresh();
+			}
 		}
+	}
 
-		private String buildDescription() {
-			MessageBuilder builder = new MessageBuilder();
+	public class MessagesModel extends BaseTableModel<Long> {
 
-			config.get(status + ">" + data1 + ">" + data2).read(builder);
-			if (!builder.hasPattern()) {
-				config.get(status + ">" + data1).read(builder);
-				if (!builder.hasPattern()) {
-					config.get("" + status).read(builder);
-				}
-			}
-			return builder.build(status, data1, data2, length);
+		public int getColumnCount() {
+			return 5;
 		}
 
-		public Color buildColor(int status) {
-			if (status >= 0x80 && status < 0xf0) {
-				return colors[(status - 0x80) >> 4];
-			} else {
-				return Color.white;
-			}
+		public int getRowCount() {
+			return rowCount;
 		}
 
-		public String toString() {
-			return String.format("%s\t%s\t%s", this.status, this.data1,
-					this.data2);
+		@Override
+		protected Long getRow(int rowIndex) {
+			return MonitorView.this.getRow(rowIndex);
+		}
+
+		@Override
+		protected Object getValue(Long sequence, int columnIndex) {
+			return sequence;
 		}
 	}
 
-	private class MessageCellRenderer extends SimpleCellRenderer<Message> {
+	/**
+	 * Formats messages lazily when rendered.
+	 */
+	private class MessageCellRenderer extends SimpleCellRenderer<Long> {
 
-		private transient Message message;
+		private transient long sequence = -1;
 
 		public MessageCellRenderer() {
 			setHorizontalAlignment(SwingConstants.RIGHT);
 		}
 
 		@Override
-		protected void init(Message message, boolean isSelected,
+		protected void init(Long sequence, boolean isSelected,
 				boolean hasFocus, int row, int column) {
 
-			this.message = message;
+			this.sequence = sequence;
+
+			synchronized (buffer) {
+				if (!buffer.contains(sequence)) {
+					if (!isSelected) {
+						setBackground(Color.white);
+					}
+					if (column == 0) {
+						setIcon(inputButton.getIcon());
+					} else {
+						setText("");
+					}
+					return;
+				}
 
-			if (!isSelected) {
-				setBackground(message.color);
-			}
+				int status = buffer.getStatus(sequence);
+				boolean channel = MessageUtils.isChannelStatus(status);
+				boolean isShort = isShort(status, buffer.getLength(sequence));
 
-			switch (column) {
-			case 0:
-				if (message.input) {
-					setIcon(inputButton.getIcon());
-				} else {
-					setIcon(outputButton.getIcon());
+				if (!isSelected) {
+					if (status >= 0x80 && status < 0xf0) {
+						setBackground(colors[(status - 0x80) >> 4]);
+					} else {
+						setBackground(Color.white);
+					}
+				}
+
+				switch (column) {
+				case 0:
+					if (buffer.isInput(sequence)) {
+						setIcon(inputButton.getIcon());
+					} else {
+						setIcon(outputButton.getIcon());
+					}
+					break;
+				case 1:
+					setText(channel && isShort ? String.valueOf(status & 0x0f)
+							: "-");
+					break;
+				case 2:
+					setText(String.valueOf(channel && isShort ? status & 0xf0
+							: status));
+					break;
+				case 3:
+					setText(isShort ? String.valueOf(buffer.getData1(sequence))
+							: "-");
+					break;
+				case 4:
+					setText(isShort ? String.valueOf(buffer.getData2(sequence))
+							: "-");
+					break;
 				}
-				break;
-			case 1:
-				setText(message.channel);
-				break;
-			case 2:
-				setText(message.status);
-				break;
-			case 3:
-				setText(message.data1);
-				break;
-			case 4:
-				setText(message.data2);
-				break;
 			}
 		}
 
 		@Override
 		public String getToolTipText() {
-			if (message != null) {
-				return message.description;
+			String status;
+			String data1;
+			String data2;
+			int length;
+			synchronized (buffer) {
+				if (!buffer.contains(sequence)) {
+					return null;
+				}
+
+				int value = buffer.getStatus(sequence);
+				length = buffer.getLength(sequence);
+				if (isShort(value, length)) {
+					if (MessageUtils.isChannelStatus(value)) {
+						value = value & 0xf0;
+					}
+					data1 = String.valueOf(buffer.getData1(sequence));
+					data2 = String.valueOf(buffer.getData2(sequence));
+				} else {
+					data1 = "-";
+					data2 = "-";
+				}
+				status = String.valueOf(value);
 			}
-			return null;
+
+			MessageBuilder builder = new MessageBuilder();
+
+			config.get(status + ">" + data1 + ">" + data2).read(builder);
+			if (!builder.hasPattern()) {
+				config.get(status + ">" + data1).read(builder);
+				if (!builder.hasPattern()) {
+					config.get("" + status).read(builder);
+				}
+			}
+			return builder.build(status, data1, data2, length);
 		}
 	}
 
+	private static boolean isShort(int status, int length) {
+		return status != 0xf0 && status != 0xf7 && length <= 3;
+	}
+
 	private class ClearAction extends BaseAction {
 		private ClearAction() {
 			config.get("clear").read(this);
@@ -399,4 +570,11 @@ public class MonitorView extends AbstractView {
 			clear();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Refreshing coalesced by the {@link EventBridge}.
+	 */
+	private static interface Refresher {
+		public void refresh();
+	}
+}
@@ -22,6 +22,8 @@ import java.io.File;
 
 import javax.swing.filechooser.FileFilter;
 
+import jorgan.io.DispositionStream;
+
 /**
  * A filter for disposition files.
  */
@@ -40,7 +42,8 @@ public class DispositionFileFilter extends FileFilter {
 	 * @return <code>true</code> for directories and dispositions
 	 */
 	public boolean accept(File file) {
-		return file.isDirectory() || file.getName().endsWith(FILE_SUFFIX);
+		return file.isDirectory() || file.getName().endsWith(FILE_SUFFIX)
+				|| file.getName().endsWith(DispositionStream.BINARY_SUFFIX);
 	}
 
 	@Override
@@ -55,11 +58,15 @@ public class DispositionFileFilter extends FileFilter {
 	 *            file to get name for
 	 * @return name of file
 	 * @see #FILE_SUFFIX
+	 * @see DispositionStream#BINARY_SUFFIX
 	 */
 	public static String removeSuffix(File file) {
 		String name = file.getName();
 		if (name.endsWith(FILE_SUFFIX)) {
-			name = name.substring(0, name.indexOf(FILE_SUFFIX));
+			name = name.substring(0, name.lastIndexOf(FILE_SUFFIX));
+		} else if (name.endsWith(DispositionStream.BINARY_SUFFIX)) {
+			name = name.substring(0, name
+					.lastIndexOf(DispositionStream.BINARY_SUFFIX));
 		}
 		return name;
 	}
@@ -73,7 +80,8 @@ public class DispositionFileFilter extends FileFilter {
 	 */
 	public static File addSuffix(File file) {
 		String name = file.getName();
-		if (!name.endsWith(FILE_SUFFIX)) {
+		if (!name.endsWith(FILE_SUFFIX)
+				&& !name.endsWith(DispositionStream.BINARY_SUFFIX)) {
 			file = new File(file.getParentFile(), name + FILE_SUFFIX);
 		}
 		return file;
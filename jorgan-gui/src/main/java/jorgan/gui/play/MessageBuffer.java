@@ -0,0 +1,168 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.gui.play;
+
+import javax.sound.midi.MidiMessage;
+
+/**
+ * A bounded buffer of MIDI messages, keeping only the latest ones.
+ * <p>
+ * Messages are stored in primitive arrays, so adding a message does not
+ * allocate. Each message is identified by its sequence number, starting with
+ * zero - once the capacity is exceeded, the oldest messages are overwritten.
+ */
+public class MessageBuffer {
+
+	private static final int INPUT = 1 << 31;
+
+	private final long[] times;
+
+	private final long[] ids;
+
+	/**
+	 * Status, data1, data2 and length packed into one int each.
+	 */
+	private final int[] packed;
+
+	private long total;
+
+	/**
+	 * Create a buffer.
+	 * 
+	 * @param capacity
+	 *            maximum number of messages
+	 */
+	public MessageBuffer(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+
+		times = new long[capacity];
+		ids = new long[capacity];
+		packed = new int[capacity];
+	}
+
+	public int getCapacity() {
+		return packed.length;
+	}
+
+	/**
+	 * Add a message.
+	 * 
+	 * @param time
+	 *            time of message
+	 * @param id
+	 *            id of the element the message was received or sent by
+	 * @param input
+	 *            is the message an input
+	 * @param message
+	 *            the message
+	 * @return sequence number of the added message
+	 */
+	public synchronized long add(long time, long id, boolean input,
+			MidiMessage message) {
+		byte[] bytes = message.getMessage();
+		int length = message.getLength();
+
+		int value = Math.min(length, 0x7f) << 24;
+		if (length > 0) {
+			value |= bytes[0] & 0xff;
+		}
+		if (length > 1) {
+			value |= (bytes[1] & 0xff) << 8;
+		}
+		if (length > 2) {
+			value |= (bytes[2] & 0xff) << 16;
+		}
+		if (input) {
+			value |= INPUT;
+		}
+
+		int index = (int) (total % packed.length);
+		times[index] = time;
+		ids[index] = id;
+		packed[index] = value;
+
+		return total++;
+	}
+
+	/**
+	 * Remove all messages - sequence numbers are not reused.
+	 */
+	public synchronized void clear() {
+		total = total + packed.length;
+	}
+
+	/**
+	 * Get the sequence number of the oldest contained message.
+	 */
+	public synchronized long getFirst() {
+		return Math.max(0, total - packed.length);
+	}
+
+	/**
+	 * Get the sequence number the next added message will get.
+	 */
+	public synchronized long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Is the message with the given sequence number still contained.
+	 */
+	public synchronized boolean contains(long sequence) {
+		return sequence >= 0 && sequence < total
+				&& sequence >= total - packed.length;
+	}
+
+	public synchronized long getTime(long sequence) {
+		return times[index(sequence)];
+	}
+
+	public synchronized long getId(long sequence) {
+		return ids[index(sequence)];
+	}
+
+	public synchronized boolean isInput(long sequence) {
+		return (packed[index(sequence)] & INPUT) != 0;
+	}
+
+	public synchronized int getStatus(long sequence) {
+		return packed[index(sequence)] & 0xff;
+	}
+
+	public synchronized int getData1(long sequence) {
+		return (packed[index(sequence)] >> 8) & 0xff;
+	}
+
+	public synchronized int getData2(long sequence) {
+		return (packed[index(sequence)] >> 16) & 0xff;
+	}
+
+	public synchronized int getLength(long sequence) {
+		return (packed[index(sequence)] >> 24) & 0x7f;
+	}
+
+	private int index(long sequence) {
+		if (!contains(sequence)) {
+			throw new IndexOutOfBoundsException("no message " + sequence);
+		}
+		return (int) (sequence % packed.length);
+	}
+}
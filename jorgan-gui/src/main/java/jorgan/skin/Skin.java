@@ -21,9 +21,11 @@ package jorgan.skin;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A skin.
@@ -70,6 +72,10 @@ public class Skin implements Resolver {
 		this.urls = new HashMap<String, URL>();
 	}
 
+	Resolver getResolver() {
+		return resolver;
+	}
+
 	public Skin getSkin() {
 		return this;
 	}
@@ -89,6 +95,38 @@ public class Skin implements Resolver {
 		return null;
 	}
 
+	/**
+	 * Get the images used by the given style.
+	 * 
+	 * @param styleName
+	 *            name of style, <code>null</code> for all styles
+	 * @return urls of images
+	 */
+	public Set<URL> getImages(String styleName) {
+		Set<URL> images = new LinkedHashSet<URL>();
+
+		for (Style style : styles) {
+			if (styleName == null || style.getName().equals(styleName)) {
+				collectImages(style, images);
+			}
+		}
+
+		return images;
+	}
+
+	private void collectImages(Layer layer, Set<URL> images) {
+		if (layer instanceof ImageLayer) {
+			URL url = resolve(((ImageLayer) layer).getFile());
+			if (url != null) {
+				images.add(url);
+			}
+		} else if (layer instanceof CompositeLayer) {
+			for (Layer child : ((CompositeLayer) layer).getChildren()) {
+				collectImages(child, images);
+			}
+		}
+	}
+
 	private void initResolver(Layer layer) {
 		layer.setResolver(this);
 
@@ -18,13 +18,26 @@
  */
 package jorgan.skin;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -40,6 +53,10 @@ import bias.util.MessageBuilder;
 
 /**
  * Manager of skins.
+ * <p>
+ * Skins are loaded concurrently on a bounded pool of workers and shared by
+ * all managers, as long as their file is not modified. A skin no longer used
+ * by any manager is dropped and its zip file closed.
  */
 public abstract class SkinManager {
 
@@ -48,7 +65,20 @@ public abstract class SkinManager {
 
 	private static final String SKIN_FILE = "skin.xml";
 
-	private Map<String, Skin> skins = new HashMap<String, Skin>();
+	/**
+	 * Loaded skins shared by all managers, guarded by the class.
+	 */
+	private static final Map<File, Loading> loadings = new HashMap<File, Loading>();
+
+	private static ExecutorService loaders;
+
+	private Map<String, Loading> skins = new HashMap<String, Loading>();
+
+	private List<SkinListener> listeners = new CopyOnWriteArrayList<SkinListener>();
+
+	private int loaded;
+
+	private int total;
 
 	private ElementProblems problems;
 
@@ -64,6 +94,28 @@ public abstract class SkinManager {
 		this.flushImagesOnClose = flushImages;
 	}
 
+	public void addListener(SkinListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(SkinListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Start loading the skins of the given consoles in the background.
+	 * 
+	 * @param consoles
+	 *            consoles to load skins for
+	 */
+	public void prefetch(Collection<Console> consoles) {
+		for (Console console : consoles) {
+			if (console.getSkin() != null) {
+				load(console.getSkin());
+			}
+		}
+	}
+
 	public Skin getSkin(Console console) {
 		if (console == null) {
 			throw new IllegalArgumentException("console must not be null");
@@ -76,20 +128,71 @@ public abstract class SkinManager {
 			return null;
 		}
 
-		Skin skin = skins.get(console.getSkin());
-		if (skin != null) {
-			return skin;
+		Loading loading = load(console.getSkin());
+		try {
+			return loading.get();
+		} catch (InterruptedException e) {
+			// not a problem of the skin
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
 		}
 
-		try {
-			skin = loadSkin(resolve(console.getSkin()));
-			skins.put(console.getSkin(), skin);
-		} catch (IOException e) {
-			problems.addProblem(new Problem(Severity.ERROR, console, "skin",
-					createMessage("skinLoad", console.getSkin())));
+		synchronized (this) {
+			// try again next time
+			if (skins.remove(console.getSkin()) == loading) {
+				release(loading);
+			}
 		}
 
-		return skin;
+		problems.addProblem(new Problem(Severity.ERROR, console, "skin",
+				createMessage("skinLoad", console.getSkin())));
+
+		return null;
+	}
+
+	private synchronized Loading load(String name) {
+		Loading loading = skins.get(name);
+		if (loading == null) {
+			try {
+				loading = load(resolve(name));
+			} catch (final IOException ex) {
+				loading = new Loading(null, 0, new Callable<Skin>() {
+					public Skin call() throws Exception {
+						throw ex;
+					}
+				});
+				loading.run();
+				use(loading);
+			}
+			skins.put(name, loading);
+
+			total++;
+			fireProgress();
+
+			loading.whenDone(new Runnable() {
+				public void run() {
+					synchronized (SkinManager.this) {
+						loaded++;
+					}
+					fireProgress();
+				}
+			});
+		}
+		return loading;
+	}
+
+	private void fireProgress() {
+		int loaded;
+		int total;
+		synchronized (this) {
+			loaded = this.loaded;
+			total = this.total;
+		}
+
+		for (SkinListener listener : listeners) {
+			listener.progress(loaded, total);
+		}
 	}
 
 	protected abstract File resolve(String skin) throws IOException;
@@ -100,7 +203,82 @@ public abstract class SkinManager {
 		return config.get(key).read(builder).build(args);
 	}
 
-	private Skin loadSkin(File file) throws IOException {
+	private static synchronized void use(Loading loading) {
+		loading.users++;
+	}
+
+	/**
+	 * Release the given loading, dropping it if it is no longer used by any
+	 * manager.
+	 */
+	private static synchronized void release(Loading loading) {
+		loading.users--;
+		if (loading.users == 0) {
+			if (loading.file != null && loadings.get(loading.file) == loading) {
+				loadings.remove(loading.file);
+			}
+
+			loading.close();
+		}
+	}
+
+	/**
+	 * Load the given skin file, reusing a previous loading if the file is not
+	 * modified since. A superseded loading is closed as soon as it is no
+	 * longer used.
+	 * 
+	 * @return the loading, already in use by the caller
+	 */
+	private static Loading load(File file) throws IOException {
+		final File canonical = file.getCanonicalFile();
+
+		long modified = canonical.lastModified();
+		if (canonical.isDirectory()) {
+			modified = new File(canonical, SKIN_FILE).lastModified();
+		}
+
+		synchronized (SkinManager.class) {
+			Loading loading = loadings.get(canonical);
+			if (loading == null || loading.modified != modified
+					|| loading.isFailed()) {
+				Loading superseded = loading;
+
+				loading = new Loading(canonical, modified, new Callable<Skin>() {
+					public Skin call() throws Exception {
+						return loadSkin(canonical);
+					}
+				});
+				loadings.put(canonical, loading);
+
+				if (superseded != null && superseded.users == 0) {
+					superseded.close();
+				}
+
+				getLoaders().execute(loading);
+			}
+			use(loading);
+			return loading;
+		}
+	}
+
+	private static synchronized ExecutorService getLoaders() {
+		if (loaders == null) {
+			int threads = Math.max(1, Math.min(4, Runtime.getRuntime()
+					.availableProcessors()));
+
+			loaders = Executors.newFixedThreadPool(threads,
+					new ThreadFactory() {
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, "SkinManager");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return loaders;
+	}
+
+	private static Skin loadSkin(File file) throws IOException {
 		Skin skin;
 
 		Resolver resolver = createSkinDirectory(file);
@@ -132,10 +310,14 @@ public abstract class SkinManager {
 		// IOUtils.closeQuietly(output);
 		// }
 
+		for (URL url : skin.getImages(null)) {
+			ImageCache.prefetch(url);
+		}
+
 		return skin;
 	}
 
-	private Resolver createSkinDirectory(File file) {
+	private static Resolver createSkinDirectory(File file) {
 
 		if (file.isDirectory()) {
 			return new SkinDirectory(file);
@@ -143,7 +325,7 @@ public abstract class SkinManager {
 		return null;
 	}
 
-	private Resolver createSkinZip(File file) {
+	private static Resolver createSkinZip(File file) {
 
 		try {
 			return new SkinZip(file);
@@ -152,10 +334,91 @@ public abstract class SkinManager {
 		return null;
 	}
 
+	/**
+	 * The loading of a skin.
+	 */
+	private static class Loading extends FutureTask<Skin> {
+
+		/**
+		 * The loaded file, <code>null</code> if not resolvable.
+		 */
+		private final File file;
+
+		private final long modified;
+
+		/**
+		 * Count of managers using this loading, guarded by the class.
+		 */
+		private int users;
+
+		private List<Runnable> callbacks = new ArrayList<Runnable>();
+
+		public Loading(File file, long modified, Callable<Skin> callable) {
+			super(callable);
+
+			this.file = file;
+			this.modified = modified;
+		}
+
+		/**
+		 * Close the resolver of the skin once loaded.
+		 */
+		public void close() {
+			whenDone(new Runnable() {
+				public void run() {
+					try {
+						Resolver resolver = get().getResolver();
+						if (resolver instanceof Closeable) {
+							IOUtils.closeQuietly((Closeable) resolver);
+						}
+					} catch (Exception failed) {
+					}
+				}
+			});
+		}
+
+		public boolean isFailed() {
+			if (isDone()) {
+				try {
+					get();
+				} catch (Exception ex) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Run the given callback when done.
+		 */
+		public void whenDone(Runnable callback) {
+			synchronized (this) {
+				if (callbacks != null) {
+					callbacks.add(callback);
+					return;
+				}
+			}
+			callback.run();
+		}
+
+		@Override
+		protected void done() {
+			List<Runnable> callbacks;
+			synchronized (this) {
+				callbacks = this.callbacks;
+				this.callbacks = null;
+			}
+
+			for (Runnable callback : callbacks) {
+				callback.run();
+			}
+		}
+	}
+
 	/**
 	 * A source of a skin contained in a directory.
 	 */
-	private class SkinDirectory implements Resolver {
+	private static class SkinDirectory implements Resolver {
 
 		private File directory;
 
@@ -177,14 +440,18 @@ public abstract class SkinManager {
 	}
 
 	/**
-	 * A source of a skin contained in a zipFile.
+	 * A source of a skin contained in a zipFile - all entries are read
+	 * through a single long-lived handle.
 	 */
-	private class SkinZip implements Resolver {
+	private static class SkinZip extends URLStreamHandler implements Resolver,
+			Closeable {
 
 		private File file;
 
 		private ZipFile zipFile;
 
+		private volatile boolean closed;
+
 		private SkinZip(File file) throws IOException {
 			this.file = file;
 
@@ -192,18 +459,69 @@ public abstract class SkinManager {
 		}
 
 		public URL resolve(String name) {
+			if (closed) {
+				return null;
+			}
+
 			ZipEntry entry = zipFile.getEntry(name);
 			if (entry != null) {
 				try {
-					return new URL("jar:" + file.toURI().toURL() + "!/" + name);
+					return new URL(null, "jar:" + file.toURI().toURL() + "!/"
+							+ name, this);
 				} catch (MalformedURLException ex) {
 				}
 			}
 			return null;
 		}
+
+		@Override
+		protected URLConnection openConnection(URL url) throws IOException {
+			if (closed) {
+				throw new IOException("closed " + file);
+			}
+
+			String spec = url.toString();
+			final ZipEntry entry = zipFile.getEntry(spec.substring(spec
+					.indexOf("!/") + 2));
+			if (entry == null) {
+				throw new IOException("unknown entry " + spec);
+			}
+
+			return new URLConnection(url) {
+				@Override
+				public void connect() {
+					connected = true;
+				}
+
+				@Override
+				public int getContentLength() {
+					return (int) entry.getSize();
+				}
+
+				@Override
+				public InputStream getInputStream() throws IOException {
+					return zipFile.getInputStream(entry);
+				}
+			};
+		}
+
+		public void close() throws IOException {
+			closed = true;
+
+			zipFile.close();
+		}
 	}
 
 	public void destroy() {
+		synchronized (this) {
+			for (Loading loading : skins.values()) {
+				release(loading);
+			}
+			skins.clear();
+		}
+
+		ImageCache.log();
+
 		if (flushImagesOnClose) {
 			ImageCache.flush();
 		}
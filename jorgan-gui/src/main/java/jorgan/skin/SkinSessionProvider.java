@@ -21,6 +21,7 @@ package jorgan.skin;
 import java.io.File;
 import java.io.IOException;
 
+import jorgan.disposition.Console;
 import jorgan.problem.ElementProblems;
 import jorgan.session.OrganSession;
 import jorgan.session.SessionListener;
@@ -43,6 +44,8 @@ public class SkinSessionProvider implements SessionProvider {
 					return session.resolve(name);
 				}
 			};
+			manager.prefetch(session.getOrgan().getElements(Console.class));
+
 			session.addListener(new SessionListener() {
 				@Override
 				public void saved(File file) throws IOException {
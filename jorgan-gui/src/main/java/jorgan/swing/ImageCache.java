@@ -25,72 +25,288 @@ import java.awt.GraphicsEnvironment;
 import java.awt.RenderingHints;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.io.IOException;
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
 
+import bias.Configuration;
+
 /**
- * A cache of images.
+ * A cache of images, original and scaled ones.
+ * <p>
+ * The cache is bounded by a budget of bytes, the least recently used images
+ * are evicted first. Images can be loaded in advance on a pool of workers, see
+ * {@link #prefetch(URL, float)}.
  */
 public class ImageCache {
 
-	private static Map<String, Reference<BufferedImage>> images = new HashMap<String, Reference<BufferedImage>>();
+	private static final Logger logger = Logger.getLogger(ImageCache.class
+			.getName());
+
+	private static Configuration config = Configuration.getRoot().get(
+			ImageCache.class);
+
+	private static final ImageCache cache = new ImageCache();
+
+	private long budget = 128 * 1024 * 1024;
+
+	private long bytes;
+
+	private int hits;
+
+	private int misses;
+
+	private int evictions;
+
+	private Map<String, BufferedImage> images = new LinkedHashMap<String, BufferedImage>(
+			16, 0.75f, true);
+
+	/**
+	 * Images currently loading.
+	 */
+	private Map<String, FutureTask<BufferedImage>> loading = new HashMap<String, FutureTask<BufferedImage>>();
+
+	private ExecutorService workers;
+
+	private ImageCache() {
+		config.read(this);
+	}
+
+	public void setBudget(long budget) {
+		this.budget = budget;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	private synchronized BufferedImage get(String key) {
+		BufferedImage image = images.get(key);
+		if (image == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return image;
+	}
+
+	private synchronized void put(String key, BufferedImage image) {
+		BufferedImage old = images.put(key, image);
+		if (old != null) {
+			bytes -= bytes(old);
+		}
+		bytes += bytes(image);
+
+		Iterator<BufferedImage> eldest = images.values().iterator();
+		while (bytes > budget && eldest.hasNext()) {
+			BufferedImage evicted = eldest.next();
+			if (evicted == image) {
+				// keep at least the latest image
+				break;
+			}
+			eldest.remove();
+			bytes -= bytes(evicted);
+			evictions++;
+		}
+	}
+
+	private synchronized void clear() {
+		images.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Get the image for the given key, loading it with the given loader if
+	 * not cached - concurrent loading of the same key is performed only once.
+	 */
+	private BufferedImage get(final String key,
+			Callable<BufferedImage> loader, boolean wait) throws IOException {
+
+		FutureTask<BufferedImage> task;
+		boolean submit = false;
+		synchronized (this) {
+			BufferedImage image = get(key);
+			if (image != null) {
+				return image;
+			}
+
+			task = loading.get(key);
+			if (task == null) {
+				task = new FutureTask<BufferedImage>(loader) {
+					@Override
+					protected void done() {
+						synchronized (ImageCache.this) {
+							loading.remove(key);
+						}
+					}
+				};
+				loading.put(key, task);
+				submit = true;
+			}
+		}
+
+		if (!wait) {
+			if (submit) {
+				getWorkers().execute(task);
+			}
+			return null;
+		}
+
+		// run it ourselves unless already running, so waiting workers cannot
+		// starve the pool
+		task.run();
+
+		try {
+			return task.get();
+		} catch (InterruptedException ex) {
+			throw new IOException(ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
 
-	private static BufferedImage get(String key) {
-		Reference<BufferedImage> reference = images.get(key);
-		if (reference != null) {
-			return reference.get();
+	private synchronized ExecutorService getWorkers() {
+		if (workers == null) {
+			workers = Executors.newFixedThreadPool(Runtime.getRuntime()
+					.availableProcessors(), new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "ImageCache");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
 		}
-		return null;
+		return workers;
 	}
 
-	private static void put(String key, BufferedImage image) {
-		Reference<BufferedImage> reference = new SoftReference<BufferedImage>(
-				image);
-		images.put(key, reference);
+	private BufferedImage getImage(final URL url, final float scale,
+			boolean wait) throws IOException {
+		final String key = "" + scale + ":" + url.toString();
+
+		return get(key, new Callable<BufferedImage>() {
+			public BufferedImage call() throws Exception {
+				BufferedImage image = deriveImage(getImage(url, true), scale);
+				put(key, image);
+				return image;
+			}
+		}, wait);
+	}
+
+	private BufferedImage getImage(final URL url, boolean wait)
+			throws IOException {
+		final String key = url.toString();
+
+		return get(key, new Callable<BufferedImage>() {
+			public BufferedImage call() throws Exception {
+				BufferedImage image = ImageIO.read(url);
+				if (image == null) {
+					throw new IOException("unsupported image " + url);
+				}
+				put(key, image);
+				return image;
+			}
+		}, wait);
 	}
 
 	/**
 	 * Flush all cached images.
 	 */
 	public static void flush() {
-		images.clear();
+		cache.clear();
 	}
 
 	/**
-	 * Get an image for the given URL.
+	 * Get an image.
 	 * 
 	 * @param url
-	 *            url to get image for
+	 *            url of image
 	 * @param scale
-	 *            scale
-	 * @return image
+	 *            scale of image
+	 * @return the scaled image
+	 * @throws IOException
+	 *             if the image cannot be read
 	 */
 	public static BufferedImage getImage(URL url, float scale)
 			throws IOException {
-		String key = "" + scale + ":" + url.toString();
+		return cache.getImage(url, scale, true);
+	}
 
-		BufferedImage image = get(key);
-		if (image == null) {
-			image = deriveImage(getImage(url), scale);
-			put(key, image);
+	/**
+	 * Load an image in the background, so a following
+	 * {@link #getImage(URL, float)} is satisfied from the cache.
+	 * 
+	 * @param url
+	 *            url of image
+	 * @param scale
+	 *            scale of image
+	 */
+	public static void prefetch(URL url, float scale) {
+		try {
+			cache.getImage(url, scale, false);
+		} catch (IOException cannotHappen) {
+			throw new Error(cannotHappen);
 		}
-		return image;
 	}
 
-	private static BufferedImage getImage(URL url) throws IOException {
-		String key = url.toString();
-		BufferedImage image = get(key);
-		if (image == null) {
-			image = ImageIO.read(url);
-			put(key, image);
+	/**
+	 * Read an image in the background, so it is available for scaling.
+	 * 
+	 * @param url
+	 *            url of image
+	 */
+	public static void prefetch(URL url) {
+		try {
+			cache.getImage(url, false);
+		} catch (IOException cannotHappen) {
+			throw new Error(cannotHappen);
 		}
-		return image;
+	}
+
+	/**
+	 * Log the statistics of this cache.
+	 */
+	public static void log() {
+		if (!logger.isLoggable(Level.FINE)) {
+			return;
+		}
+
+		synchronized (cache) {
+			logger.log(Level.FINE, String.format(
+					"%d images, %d of %d bytes, %d hits, %d misses,"
+							+ " %d evictions", cache.images.size(),
+					cache.bytes, cache.budget, cache.hits, cache.misses,
+					cache.evictions));
+		}
+	}
+
+	private static long bytes(BufferedImage image) {
+		DataBuffer buffer = image.getRaster().getDataBuffer();
+
+		return (long) buffer.getSize() * buffer.getNumBanks()
+				* DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
 	}
 
 	private static BufferedImage deriveImage(BufferedImage image, float scale) {
@@ -119,4 +335,4 @@ public class ImageCache {
 		return configuration.createCompatibleImage(width, height,
 				Transparency.TRANSLUCENT);
 	}
-}
\ No newline at end of file
+}
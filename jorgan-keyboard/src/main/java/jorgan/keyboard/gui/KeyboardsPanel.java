@@ -15,6 +15,7 @@ import javax.swing.border.EmptyBorder;
 
 import jorgan.disposition.Elements;
 import jorgan.disposition.Keyboard;
+import jorgan.gui.EventBridge;
 import jorgan.midi.mpl.ProcessingException;
 import jorgan.play.KeyboardPlayer;
 import jorgan.play.OrganPlay;
@@ -22,13 +23,16 @@ import jorgan.play.Player;
 import jorgan.play.OrganPlay.Playing;
 import jorgan.play.event.KeyListener;
 import jorgan.swing.RowHeader;
-import spin.Spin;
 
 /**
  * A keyboard.
  */
 public class KeyboardsPanel extends JPanel implements Scrollable {
 
+	static {
+		EventBridge.coalesce(KeyListener.class, 2, "keyPressed", "keyReleased");
+	}
+
 	private RowHeader header = new RowHeader(this);
 
 	private Listener listener = new Listener();
@@ -53,11 +57,12 @@ public class KeyboardsPanel extends JPanel implements Scrollable {
 			header.add(label);
 		}
 
-		play.addKeyListener((KeyListener) Spin.over(listener));
+		play.addKeyListener((KeyListener) EventBridge.over(listener));
 	}
 
 	public void destroy() {
-		play.removeKeyListener((KeyListener) Spin.over(listener));
+		play.removeKeyListener((KeyListener) EventBridge.over(listener));
+		EventBridge.cancel(listener);
 	}
 
 	public void addNotify() {
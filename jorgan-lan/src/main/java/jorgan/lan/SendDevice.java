@@ -30,28 +30,54 @@ import javax.sound.midi.ShortMessage;
 
 import jorgan.lan.net.MessageSender;
 import jorgan.midi.Loopback;
+import bias.Configuration;
 
 /**
  * A remote {@link MidiDevice} over LAN.
  */
 public class SendDevice extends Loopback {
 
+	private static Configuration config = Configuration.getRoot().get(
+			SendDevice.class);
+
 	private Logger log = Logger.getLogger(SendDevice.class.getName());
 
 	private int index;
 
 	private MessageSender sender;
 
+	private int window;
+
 	public SendDevice(int index, Info info) {
 		super(info, true, false);
 
 		this.index = index;
+
+		config.read(this);
+	}
+
+	/**
+	 * Set the microseconds to coalesce messages into a single datagram,
+	 * effective on next open.
+	 */
+	public void setWindow(int window) {
+		this.window = window;
+	}
+
+	public int getWindow() {
+		return window;
 	}
 
 	@Override
 	protected synchronized void openImpl() throws MidiUnavailableException {
 		try {
-			sender = new MessageSender(IpMidi.GROUP, IpMidi.port(index));
+			sender = new MessageSender(IpMidi.GROUP, IpMidi.port(index),
+					window) {
+				@Override
+				protected void onException(Exception ex) {
+					log.log(Level.WARNING, "exception sending message", ex);
+				}
+			};
 
 			probe();
 		} catch (Exception ex) {
@@ -48,8 +48,13 @@ public class LanCategory extends JOrganCategory {
 	private Model<Integer> receiverCount = getModel(new Property(
 			LanDeviceProvider.class, "receiverCount"));
 
+	private Model<Integer> window = getModel(new Property(SendDevice.class,
+			"window"));
+
 	private JSpinner senderCountSpinner;
 
+	private JSpinner windowSpinner;
+
 	private JSpinner receiverCountSpinner;
 
 	public LanCategory() {
@@ -74,6 +79,11 @@ public class LanCategory extends JOrganCategory {
 		senderCountSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 256, 1));
 		column.definition(senderCountSpinner);
 
+		column.term(config.get("window").read(new JLabel()));
+
+		windowSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 10000, 100));
+		column.definition(windowSpinner);
+
 		column.term(config.get("receiverCount").read(new JLabel()));
 
 		receiverCountSpinner = new JSpinner(
@@ -86,12 +96,14 @@ public class LanCategory extends JOrganCategory {
 	@Override
 	protected void read() {
 		senderCountSpinner.setValue(senderCount.getValue());
+		windowSpinner.setValue(window.getValue());
 		receiverCountSpinner.setValue(receiverCount.getValue());
 	}
 
 	@Override
 	protected void write() {
 		senderCount.setValue((Integer) senderCountSpinner.getValue());
+		window.setValue((Integer) windowSpinner.getValue());
 		receiverCount.setValue((Integer) receiverCountSpinner.getValue());
 	}
 }
\ No newline at end of file
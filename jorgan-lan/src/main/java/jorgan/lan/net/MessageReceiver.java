@@ -19,35 +19,40 @@
 package jorgan.lan.net;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
-import java.net.MulticastSocket;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Enumeration;
 
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiMessage;
+import javax.sound.midi.SysexMessage;
 
 import jorgan.midi.MessageUtils;
 
+/**
+ * A receiver of {@link MidiMessage}s in ipMIDI datagrams.
+ * <p>
+ * A datagram may hold several messages, possibly using running status.
+ */
 public class MessageReceiver {
 
-	private MulticastSocket socket;
-
-	private InetAddress group;
-
-	private int port;
+	private DatagramChannel channel;
 
 	private Thread thread;
 
-	private byte[] bytes = new byte[256];
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
 
 	public MessageReceiver(InetAddress group, int port) throws IOException {
-		this.port = port;
-		this.group = group;
-
 		try {
-			socket = new MulticastSocket(this.port);
-			socket.joinGroup(this.group);
+			channel = DatagramChannel.open(StandardProtocolFamily.INET);
+			channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+			channel.bind(new InetSocketAddress(port));
+			join(group);
 		} catch (IOException e) {
 			close();
 
@@ -58,7 +63,7 @@ public class MessageReceiver {
 			public void run() {
 				while (thread != null) {
 					try {
-						receive(socket);
+						receive();
 					} catch (IOException ex) {
 						if (thread != null) {
 							onException(ex);
@@ -71,32 +76,141 @@ public class MessageReceiver {
 		thread.start();
 	}
 
+	/**
+	 * Join the group on all multicast interfaces.
+	 */
+	private void join(InetAddress group) throws IOException {
+		IOException exception = null;
+		boolean joined = false;
+
+		Enumeration<NetworkInterface> interfaces = NetworkInterface
+				.getNetworkInterfaces();
+		while (interfaces.hasMoreElements()) {
+			NetworkInterface candidate = interfaces.nextElement();
+			try {
+				if (candidate.isUp() && candidate.supportsMulticast()) {
+					channel.join(group, candidate);
+					joined = true;
+				}
+			} catch (IOException ex) {
+				exception = ex;
+			}
+		}
+
+		if (!joined) {
+			if (exception == null) {
+				exception = new IOException("no multicast interface");
+			}
+			throw exception;
+		}
+	}
+
 	protected void onException(Exception ex) {
 	}
 
 	public void close() {
-		if (thread != null) {
+		if (channel != null) {
 			thread = null;
 
-			socket.close();
+			try {
+				channel.close();
+			} catch (IOException ignore) {
+			}
 		}
 	}
 
-	private void receive(DatagramSocket socket) throws IOException {
-		DatagramPacket packet = new DatagramPacket(bytes, 0, bytes.length);
-		socket.receive(packet);
+	private void receive() throws IOException {
+		buffer.clear();
+		channel.receive(buffer);
+		buffer.flip();
 
-		MidiMessage message;
-		try {
-			message = MessageUtils.createMessage(bytes, packet.getLength());
-		} catch (InvalidMidiDataException ex) {
-			onException(ex);
-			return;
+		dispatch(buffer);
+	}
+
+	/**
+	 * Dispatch all messages contained in the given buffer.
+	 */
+	void dispatch(ByteBuffer buffer) {
+		int runningStatus = 0;
+
+		while (buffer.hasRemaining()) {
+			int status = buffer.get(buffer.position()) & 0xff;
+			if (status < 0x80) {
+				if (runningStatus == 0) {
+					onException(new InvalidMidiDataException("missing status"));
+					return;
+				}
+				status = runningStatus;
+			} else {
+				buffer.get();
+			}
+
+			MidiMessage message;
+			try {
+				if (status == SysexMessage.SYSTEM_EXCLUSIVE) {
+					message = createSysexMessage(buffer);
+					runningStatus = 0;
+				} else {
+					int length = getDataLength(status);
+					if (buffer.remaining() < length) {
+						throw new InvalidMidiDataException("incomplete message");
+					}
+					int data1 = length > 0 ? buffer.get() & 0xff : 0;
+					int data2 = length > 1 ? buffer.get() & 0xff : 0;
+
+					if (status < 0xf0) {
+						runningStatus = status;
+					} else if (status < 0xf8) {
+						runningStatus = 0;
+					}
+
+					message = MessageUtils.createMessage(status, data1, data2);
+				}
+			} catch (InvalidMidiDataException ex) {
+				onException(ex);
+				return;
+			}
+
+			onReceived(message);
 		}
+	}
+
+	private MidiMessage createSysexMessage(ByteBuffer buffer)
+			throws InvalidMidiDataException {
+		int end = buffer.position();
+		while (end < buffer.limit()
+				&& (buffer.get(end) & 0xff) != SysexMessage.SPECIAL_SYSTEM_EXCLUSIVE) {
+			end++;
+		}
+		end = Math.min(end + 1, buffer.limit());
+
+		byte[] datas = new byte[1 + end - buffer.position()];
+		datas[0] = (byte) SysexMessage.SYSTEM_EXCLUSIVE;
+		buffer.get(datas, 1, datas.length - 1);
 
-		onReceived(message);
+		return MessageUtils.createMessage(datas);
+	}
+
+	private static int getDataLength(int status) {
+		switch (status & 0xf0) {
+		case 0xc0:
+		case 0xd0:
+			return 1;
+		case 0xf0:
+			switch (status) {
+			case 0xf1:
+			case 0xf3:
+				return 1;
+			case 0xf2:
+				return 2;
+			default:
+				return 0;
+			}
+		default:
+			return 2;
+		}
 	}
 
 	protected void onReceived(MidiMessage message) {
 	}
-}
\ No newline at end of file
+}
@@ -19,47 +19,218 @@
 package jorgan.lan.net;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
 import java.net.InetAddress;
-import java.net.MulticastSocket;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.sound.midi.MidiMessage;
+import javax.sound.midi.ShortMessage;
 
+/**
+ * A sender of {@link MidiMessage}s in ipMIDI datagrams.
+ * <p>
+ * With a window greater than zero, all messages sent within that window are
+ * coalesced into a single datagram, using running status as in any MIDI byte
+ * stream. Otherwise each message is sent in its own datagram immediately.
+ */
 public class MessageSender {
 
-	private MulticastSocket socket;
+	/**
+	 * Maximum length of a datagram, well below common MTUs.
+	 */
+	static final int MAX_LENGTH = 1024;
+
+	private DatagramChannel channel;
+
+	private InetSocketAddress target;
+
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_LENGTH);
+
+	/**
+	 * The running status in {@link #buffer}.
+	 */
+	private int runningStatus;
+
+	private long window;
 
-	private InetAddress group;
+	/**
+	 * When to send {@link #buffer} at the latest.
+	 */
+	private long deadline;
 
-	private int port;
+	private Thread thread;
 
 	public MessageSender(InetAddress group, int port) throws IOException {
-		this.port = port;
-		this.group = group;
+		this(group, port, 0);
+	}
+
+	/**
+	 * Create a sender.
+	 * 
+	 * @param group
+	 *            group to send to
+	 * @param port
+	 *            port to send to
+	 * @param window
+	 *            microseconds to coalesce messages into one datagram
+	 */
+	public MessageSender(InetAddress group, int port, int window)
+			throws IOException {
+		this.target = new InetSocketAddress(group, port);
+		this.window = window * 1000L;
 
 		try {
-			socket = new MulticastSocket();
+			channel = DatagramChannel.open(StandardProtocolFamily.INET);
 		} catch (IOException e) {
 			close();
 
 			throw e;
 		}
+
+		if (this.window > 0) {
+			thread = new Thread(new Runnable() {
+				public void run() {
+					coalesce();
+				}
+			}, "LAN sender");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	protected void onException(Exception ex) {
 	}
 
 	public void close() {
-		if (socket != null) {
-			socket.close();
-			socket = null;
+		Thread thread;
+		synchronized (this) {
+			if (channel != null) {
+				try {
+					flush();
+				} catch (IOException ignore) {
+				}
+
+				try {
+					channel.close();
+				} catch (IOException ignore) {
+				}
+				channel = null;
+			}
+
+			thread = this.thread;
+			this.thread = null;
+		}
+
+		if (thread != null) {
+			LockSupport.unpark(thread);
 		}
 	}
 
-	public void send(MidiMessage message) throws IOException {
-		if (socket == null) {
+	public synchronized void send(MidiMessage message) throws IOException {
+		if (channel == null) {
 			throw new IllegalStateException("not open");
 		}
 
-		DatagramPacket packet = new DatagramPacket(message.getMessage(),
-				message.getLength(), group, port);
-		socket.send(packet);
+		int length = message.getLength();
+		if (buffer.position() + length > buffer.capacity()) {
+			flush();
+
+			if (length > buffer.capacity()) {
+				// oversized system exclusive
+				channel.send(ByteBuffer.wrap(message.getMessage(), 0, length),
+						target);
+				return;
+			}
+		}
+
+		boolean empty = buffer.position() == 0;
+
+		if (message instanceof ShortMessage) {
+			put((ShortMessage) message);
+		} else {
+			buffer.put(message.getMessage(), 0, length);
+			runningStatus = 0;
+		}
+
+		if (window == 0) {
+			flush();
+		} else if (empty) {
+			deadline = System.nanoTime() + window;
+
+			LockSupport.unpark(thread);
+		}
+	}
+
+	private void put(ShortMessage message) {
+		int status = message.getStatus();
+
+		if (status >= 0xf8) {
+			// real time does not affect running status
+			buffer.put((byte) status);
+			return;
+		}
+
+		if (status != runningStatus) {
+			buffer.put((byte) status);
+		}
+		runningStatus = status < 0xf0 ? status : 0;
+
+		int length = message.getLength();
+		if (length > 1) {
+			buffer.put((byte) message.getData1());
+		}
+		if (length > 2) {
+			buffer.put((byte) message.getData2());
+		}
+	}
+
+	/**
+	 * Send all coalesced messages.
+	 */
+	private void flush() throws IOException {
+		if (buffer.position() > 0) {
+			buffer.flip();
+			channel.send(buffer, target);
+			buffer.clear();
+		}
+		runningStatus = 0;
+	}
+
+	/**
+	 * Flush on expiration of the window.
+	 */
+	private void coalesce() {
+		while (true) {
+			long remaining;
+
+			synchronized (this) {
+				if (thread == null) {
+					return;
+				}
+
+				if (buffer.position() == 0) {
+					remaining = -1;
+				} else {
+					remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						try {
+							flush();
+						} catch (IOException ex) {
+							onException(ex);
+						}
+						continue;
+					}
+				}
+			}
+
+			if (remaining < 0) {
+				LockSupport.park(this);
+			} else {
+				LockSupport.parkNanos(this, remaining);
+			}
+		}
 	}
 }
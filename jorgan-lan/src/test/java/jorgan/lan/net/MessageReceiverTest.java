@@ -18,7 +18,12 @@
  */
 package jorgan.lan.net;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.sound.midi.MidiMessage;
+import javax.sound.midi.ShortMessage;
 
 import jorgan.lan.IpMidi;
 import junit.framework.TestCase;
@@ -57,4 +62,34 @@ public class MessageReceiverTest extends TestCase {
 		assertFalse(received);
 		assertFalse(exception);
 	}
+
+	public void testDispatch() throws Exception {
+		final List<MidiMessage> messages = new ArrayList<MidiMessage>();
+
+		MessageReceiver receiver = new MessageReceiver(IpMidi.GROUP, IpMidi
+				.port(1)) {
+			@Override
+			protected void onReceived(MidiMessage message) {
+				messages.add(message);
+			}
+
+			@Override
+			protected void onException(Exception ex) {
+				exception = true;
+			}
+		};
+		receiver.close();
+
+		// running status, real time in between, sysex and program change
+		receiver.dispatch(ByteBuffer.wrap(new byte[] { (byte) 144, 60, 100,
+				(byte) 0xfe, 64, 100, (byte) 0xf0, 1, 2, (byte) 0xf7,
+				(byte) 192, 5 }));
+
+		assertFalse(exception);
+		assertEquals(5, messages.size());
+		assertEquals(64, ((ShortMessage) messages.get(2)).getData1());
+		assertEquals(144, ((ShortMessage) messages.get(2)).getStatus());
+		assertEquals(4, messages.get(3).getLength());
+		assertEquals(5, ((ShortMessage) messages.get(4)).getData1());
+	}
 }
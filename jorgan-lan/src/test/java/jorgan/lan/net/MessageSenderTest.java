@@ -18,6 +18,12 @@
  */
 package jorgan.lan.net;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.ShortMessage;
+
 import jorgan.lan.IpMidi;
 import jorgan.midi.MessageUtils;
 import junit.framework.TestCase;
@@ -33,4 +39,37 @@ public class MessageSenderTest extends TestCase {
 
 		sender.send(MessageUtils.createMessage(144, 64, 100));
 	}
+
+	public void testCoalesce() throws Exception {
+		final List<MidiMessage> messages = new ArrayList<MidiMessage>();
+
+		MessageReceiver receiver = new MessageReceiver(IpMidi.GROUP, IpMidi
+				.port(2)) {
+			@Override
+			protected void onReceived(MidiMessage message) {
+				synchronized (messages) {
+					messages.add(message);
+				}
+			}
+		};
+
+		MessageSender sender = new MessageSender(IpMidi.GROUP,
+				IpMidi.port(2), 1000);
+		for (int pitch = 60; pitch < 70; pitch++) {
+			sender.send(MessageUtils.createMessage(144, pitch, 100));
+		}
+
+		Thread.sleep(500);
+
+		sender.close();
+		receiver.close();
+
+		synchronized (messages) {
+			assertEquals(10, messages.size());
+			for (int m = 0; m < 10; m++) {
+				assertEquals(60 + m, ((ShortMessage) messages.get(m))
+						.getData1());
+			}
+		}
+	}
 }
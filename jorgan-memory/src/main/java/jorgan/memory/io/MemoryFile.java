@@ -0,0 +1,415 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.memory.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import jorgan.memory.state.CombinationState;
+import jorgan.memory.state.ContinuousReferenceState;
+import jorgan.memory.state.MemoryState;
+import jorgan.memory.state.ReferenceState;
+import jorgan.memory.state.SwitchReferenceState;
+import jorgan.util.IOUtils;
+
+/**
+ * A binary random access file of a {@link MemoryState}.
+ * <p>
+ * The header holds the layout of combinations and references, followed by an
+ * index with the offset of each level's block. A block holds the values of
+ * all references for its level, followed by the level's title in a slot with
+ * some spare room. Files are read into a single buffer, on writing only the
+ * levels changed since the last read or write are updated in place, as long
+ * as the file is still the one the state was read from or written to and its
+ * layout is unchanged. Otherwise a new file replaces the previous one.
+ */
+public class MemoryFile {
+
+	private static final byte[] MAGIC = { 'j', 'O', 'r', 'g', 'a', 'n', 'B',
+			'M' };
+
+	private static final int VERSION = 1;
+
+	/**
+	 * Offset of the generation in the header.
+	 */
+	private static final int GENERATION_OFFSET = MAGIC.length + 4;
+
+	private static final byte SWITCH = 0;
+
+	private static final byte CONTINUOUS = 1;
+
+	/**
+	 * Spare room for titles.
+	 */
+	private static final int TITLE_CAPACITY = 32;
+
+	private static final Charset ENCODING = Charset.forName("UTF-8");
+
+	private static final Random random = new Random();
+
+	/**
+	 * Is the given file a binary memory file.
+	 */
+	public static boolean isBinary(File file) throws IOException {
+		if (file.length() < MAGIC.length) {
+			return false;
+		}
+
+		FileInputStream input = new FileInputStream(file);
+		try {
+			ByteBuffer magic = read(input.getChannel(), 0, MAGIC.length);
+
+			return Arrays.equals(magic.array(), MAGIC);
+		} finally {
+			IOUtils.closeQuietly(input);
+		}
+	}
+
+	public static MemoryState read(File file) throws IOException {
+		ByteBuffer buffer = IOUtils.read(file);
+
+		try {
+			return read(buffer);
+		} catch (RuntimeException ex) {
+			IOException io = new IOException("invalid memory file");
+			io.initCause(ex);
+			throw io;
+		}
+	}
+
+	private static MemoryState read(ByteBuffer buffer) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		buffer.get(magic);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("not a binary memory");
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported binary version " + version);
+		}
+
+		long generation = buffer.getLong();
+		int levels = buffer.getInt();
+
+		List<CombinationState> combinations = new ArrayList<CombinationState>();
+		List<boolean[]> actives = new ArrayList<boolean[]>();
+		List<float[]> values = new ArrayList<float[]>();
+		List<Object> layout = new ArrayList<Object>();
+
+		int count = buffer.getInt();
+		for (int c = 0; c < count; c++) {
+			long id = buffer.getLong();
+
+			List<ReferenceState<?>> references = new ArrayList<ReferenceState<?>>();
+			int referenceCount = buffer.getInt();
+			for (int r = 0; r < referenceCount; r++) {
+				byte type = buffer.get();
+				long referenceId = buffer.getLong();
+				if (type == SWITCH) {
+					boolean[] array = new boolean[levels];
+					actives.add(array);
+					layout.add(array);
+					references.add(new SwitchReferenceState(referenceId, array));
+				} else if (type == CONTINUOUS) {
+					float[] array = new float[levels];
+					values.add(array);
+					layout.add(array);
+					references.add(new ContinuousReferenceState(referenceId,
+							array));
+				} else {
+					throw new IOException("unknown reference type " + type);
+				}
+			}
+
+			combinations.add(new CombinationState(id, references));
+		}
+
+		List<String> titles = new ArrayList<String>(levels);
+
+		int index = buffer.position();
+		for (int level = 0; level < levels; level++) {
+			int offset = (int) buffer.getLong(index + level * 12);
+
+			buffer.position(offset);
+			for (Object array : layout) {
+				if (array instanceof boolean[]) {
+					((boolean[]) array)[level] = buffer.get() != 0;
+				} else {
+					((float[]) array)[level] = buffer.getFloat();
+				}
+			}
+
+			int length = buffer.getInt();
+			if (length == 0) {
+				titles.add(null);
+			} else {
+				byte[] bytes = new byte[length];
+				buffer.get(bytes);
+				titles.add(new String(bytes, ENCODING));
+			}
+		}
+
+		MemoryState state = new MemoryState(titles, combinations);
+		state.setGeneration(generation);
+		return state;
+	}
+
+	/**
+	 * Write the given state - only changed levels are written if the file
+	 * was read from or written to by the state before.
+	 */
+	public static void write(MemoryState state, File file) throws IOException {
+		long generation = nextGeneration();
+
+		if (!file.exists() || !isBinary(file) || !update(state, file, generation)) {
+			writeAll(state, file, generation);
+		}
+
+		state.setGeneration(generation);
+	}
+
+	private static boolean update(MemoryState state, File file,
+			long generation) throws IOException {
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = access.getChannel();
+
+			ByteBuffer header = read(channel, 0, GENERATION_OFFSET + 12);
+			header.position(MAGIC.length);
+			if (header.getInt() != VERSION) {
+				return false;
+			}
+			if (header.getLong() != state.getGeneration()) {
+				return false;
+			}
+			int levels = header.getInt();
+			if (levels < state.getLevels()) {
+				return false;
+			}
+
+			byte[] layout = layout(state);
+			if (!Arrays.equals(layout, read(channel, header.limit(),
+					layout.length).array())) {
+				return false;
+			}
+
+			long index = header.limit() + layout.length;
+			for (int level = 0; level < levels; level++) {
+				if (!state.isChanged(level)) {
+					continue;
+				}
+
+				ByteBuffer entry = read(channel, index + level * 12, 12);
+				long offset = entry.getLong();
+				int capacity = entry.getInt();
+
+				byte[] title = title(state, level);
+				if (title.length > capacity) {
+					offset = channel.size();
+					capacity = title.length + TITLE_CAPACITY;
+
+					entry.clear();
+					entry.putLong(offset);
+					entry.putInt(capacity);
+					write(channel, index + level * 12, entry);
+				}
+
+				write(channel, offset, block(state, level, title, capacity));
+			}
+
+			// blocks must be durable before the header refers to them
+			channel.force(false);
+
+			ByteBuffer buffer = ByteBuffer.allocate(8);
+			buffer.putLong(generation);
+			write(channel, GENERATION_OFFSET, buffer);
+
+			return true;
+		} finally {
+			IOUtils.closeQuietly(access);
+		}
+	}
+
+	private static void writeAll(MemoryState state, File file, long generation)
+			throws IOException {
+		int levels = state.getLevels();
+		byte[] layout = layout(state);
+
+		byte[][] titles = new byte[levels][];
+		for (int level = 0; level < levels; level++) {
+			titles[level] = title(state, level);
+		}
+
+		File temp = new File(file.getAbsoluteFile().getParentFile(), "."
+				+ file.getName());
+
+		DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			output.write(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(generation);
+			output.writeInt(levels);
+			output.write(layout);
+
+			long offset = output.size() + levels * 12;
+			for (int level = 0; level < levels; level++) {
+				int capacity = titles[level].length + TITLE_CAPACITY;
+
+				output.writeLong(offset);
+				output.writeInt(capacity);
+
+				offset += blockLength(state, capacity);
+			}
+
+			for (int level = 0; level < levels; level++) {
+				ByteBuffer block = block(state, level, titles[level],
+						titles[level].length + TITLE_CAPACITY);
+				output.write(block.array());
+			}
+		} finally {
+			output.close();
+		}
+
+		if (file.exists() && !file.delete()) {
+			throw new IOException("unable to delete previous version");
+		}
+
+		if (!temp.renameTo(file)) {
+			throw new IOException("unable to rename new version");
+		}
+	}
+
+	/**
+	 * Get the layout of the given state, i.e. the count of combinations
+	 * followed by the references of each combination.
+	 */
+	private static byte[] layout(MemoryState state) {
+		List<CombinationState> combinations = state.getCombinations();
+
+		int length = 4;
+		for (CombinationState combination : combinations) {
+			length += 12 + combination.getReferences().size() * 9;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.putInt(combinations.size());
+		for (CombinationState combination : combinations) {
+			buffer.putLong(combination.getId());
+			buffer.putInt(combination.getReferences().size());
+			for (ReferenceState<?> reference : combination.getReferences()) {
+				if (reference instanceof SwitchReferenceState) {
+					buffer.put(SWITCH);
+				} else {
+					buffer.put(CONTINUOUS);
+				}
+				buffer.putLong(reference.getId());
+			}
+		}
+		return buffer.array();
+	}
+
+	private static int blockLength(MemoryState state, int capacity) {
+		int length = 4 + capacity;
+		for (CombinationState combination : state.getCombinations()) {
+			for (ReferenceState<?> reference : combination.getReferences()) {
+				if (reference instanceof SwitchReferenceState) {
+					length += 1;
+				} else {
+					length += 4;
+				}
+			}
+		}
+		return length;
+	}
+
+	private static ByteBuffer block(MemoryState state, int level,
+			byte[] title, int capacity) {
+		ByteBuffer buffer = ByteBuffer.allocate(blockLength(state, capacity));
+
+		for (CombinationState combination : state.getCombinations()) {
+			for (ReferenceState<?> reference : combination.getReferences()) {
+				if (reference instanceof SwitchReferenceState) {
+					buffer.put((byte) (((SwitchReferenceState) reference)
+							.isActive(level) ? 1 : 0));
+				} else {
+					buffer.putFloat(((ContinuousReferenceState) reference)
+							.getValue(level));
+				}
+			}
+		}
+
+		buffer.putInt(title.length);
+		buffer.put(title);
+
+		// spare room stays unused
+		buffer.position(buffer.capacity());
+		return buffer;
+	}
+
+	private static byte[] title(MemoryState state, int level) {
+		return state.getTitle(level).getBytes(ENCODING);
+	}
+
+	private static long nextGeneration() {
+		synchronized (random) {
+			long generation;
+			do {
+				generation = random.nextLong();
+			} while (generation == 0);
+			return generation;
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position,
+			int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) == -1) {
+				throw new IOException("unexpected end of file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Write the given buffer up to its position.
+	 */
+	private static void write(FileChannel channel, long position,
+			ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+}
@@ -29,9 +29,19 @@ import jorgan.util.IOUtils;
 
 /**
  * A {@link MemoryState} streamer.
+ * <p>
+ * Files are written as XML unless their name ends with {@link #BINARY_SUFFIX},
+ * in which case a {@link MemoryFile} is used. On reading, the format is
+ * detected from the header of the file, so XML can be imported from and
+ * exported to by reading in one format and writing in the other.
  */
 public class MemoryStateStream {
 
+	/**
+	 * The file suffix of binary memory files.
+	 */
+	public static final String BINARY_SUFFIX = ".bmemory";
+
 	private static final String ENCODING = "UTF-8";
 
 	private XStream xstream = new XStream(new KXml2Driver());
@@ -61,6 +71,10 @@ public class MemoryStateStream {
 	}
 
 	public MemoryState read(File file) throws IOException {
+		if (MemoryFile.isBinary(file)) {
+			return MemoryFile.read(file);
+		}
+
 		InputStream input = new FileInputStream(file);
 
 		try {
@@ -85,6 +99,10 @@ public class MemoryStateStream {
 	}
 
 	public void write(MemoryState memoryState, File file) throws IOException {
+		if (file.getName().endsWith(BINARY_SUFFIX)) {
+			MemoryFile.write(memoryState, file);
+			return;
+		}
 
 		FileOutputStream output = new FileOutputStream(file);
 		try {
@@ -19,7 +19,10 @@
 package jorgan.memory.state;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import jorgan.disposition.Combination;
 import jorgan.disposition.Continuous;
@@ -35,14 +38,43 @@ public class CombinationState {
 
 	private List<ReferenceState<?>> references = new ArrayList<ReferenceState<?>>();
 
+	/**
+	 * {@link #references} by id, not persisted thus created lazily.
+	 */
+	private transient Map<Long, ReferenceState<?>> index;
+
 	public CombinationState(Combination combination) {
 		this.id = combination.getId();
 	}
 
+	public CombinationState(long id, List<ReferenceState<?>> references) {
+		this.id = id;
+		this.references = references;
+	}
+
+	public long getId() {
+		return id;
+	}
+
 	public boolean isFor(Combination combination) {
 		return this.id == combination.getId();
 	}
 
+	public List<ReferenceState<?>> getReferences() {
+		return Collections.unmodifiableList(references);
+	}
+
+	/**
+	 * Get the count of stored levels.
+	 */
+	public int getLevels() {
+		int levels = 0;
+		for (ReferenceState<?> state : references) {
+			levels = Math.max(levels, state.getLevels());
+		}
+		return levels;
+	}
+
 	public void clear(int index) {
 		for (ReferenceState<?> state : references) {
 			state.clear(index);
@@ -56,13 +88,18 @@ public class CombinationState {
 	}
 
 	private ReferenceState<?> getState(Reference<?> reference) {
-		for (ReferenceState<?> state : references) {
-			if (state.isFor(reference.getElement())) {
-				return state;
+		if (index == null) {
+			index = new HashMap<Long, ReferenceState<?>>();
+			for (ReferenceState<?> state : references) {
+				index.put(state.getId(), state);
 			}
 		}
 
-		ReferenceState<?> state;
+		ReferenceState<?> state = index.get(reference.getElement().getId());
+		if (state != null) {
+			return state;
+		}
+
 		if (reference.getElement() instanceof Switch) {
 			state = new SwitchReferenceState((Switch) reference.getElement());
 		} else if (reference.getElement() instanceof Continuous) {
@@ -72,6 +109,7 @@ public class CombinationState {
 			throw new Error();
 		}
 		references.add(state);
+		index.put(state.getId(), state);
 
 		return state;
 	}
@@ -18,6 +18,8 @@
  */
 package jorgan.memory.state;
 
+import java.util.Arrays;
+
 import jorgan.disposition.Continuous;
 import jorgan.disposition.Reference;
 import jorgan.disposition.Combination.ContinuousReference;
@@ -33,25 +35,36 @@ public class ContinuousReferenceState extends ReferenceState<Continuous> {
 		super(element);
 	}
 
-	protected void ensureIndex(int index) {
-		if (values.length <= index) {
-			float[] temp = new float[index + 1];
+	public ContinuousReferenceState(long id, float[] values) {
+		super(id);
 
-			System.arraycopy(values, 0, temp, 0, values.length);
+		this.values = values;
+	}
 
-			values = temp;
+	@Override
+	public int getLevels() {
+		return values.length;
+	}
+
+	protected void ensureIndex(int index) {
+		if (values.length <= index) {
+			values = Arrays.copyOf(values, index + 1);
 		}
 	}
 
 	@Override
 	public void clear(int index) {
-		ensureIndex(index);
-
-		values[index] = 0.0f;
+		// beyond length is cleared already
+		if (index < values.length) {
+			values[index] = 0.0f;
+		}
 	}
 
 	@Override
 	public void swap(int index1, int index2) {
+		if (index1 >= values.length && index2 >= values.length) {
+			return;
+		}
 		ensureIndex(Math.max(index1, index2));
 
 		float value1 = values[index1];
@@ -70,17 +83,20 @@ public class ContinuousReferenceState extends ReferenceState<Continuous> {
 
 	@Override
 	public void write(Reference<?> reference, int index) {
-		ensureIndex(index);
-
 		ContinuousReference temp = (ContinuousReference) reference;
 
-		temp.setValue(values[index]);
+		temp.setValue(getValue(index));
 	}
 
 	@Override
 	public Object get(int index) {
-		ensureIndex(index);
+		return getValue(index);
+	}
 
-		return values[index];
+	public float getValue(int index) {
+		if (index < values.length) {
+			return values[index];
+		}
+		return 0.0f;
 	}
 }
\ No newline at end of file
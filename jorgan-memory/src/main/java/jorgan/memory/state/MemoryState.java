@@ -19,7 +19,11 @@
 package jorgan.memory.state;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import jorgan.disposition.Combination;
 import jorgan.disposition.Reference;
@@ -34,9 +38,72 @@ public class MemoryState {
 
 	private List<CombinationState> combinations = new ArrayList<CombinationState>();
 
+	/**
+	 * {@link #combinations} by id, not persisted thus created lazily.
+	 */
+	private transient Map<Long, CombinationState> index;
+
+	/**
+	 * Levels changed since the last {@link #setGeneration(long)}.
+	 */
+	private transient BitSet changes;
+
+	/**
+	 * Generation of the file this state was last read from or written to.
+	 */
+	private transient long generation;
+
 	public MemoryState() {
 	}
 
+	public MemoryState(List<String> titles, List<CombinationState> combinations) {
+		this.titles = titles;
+		this.combinations = combinations;
+	}
+
+	public List<CombinationState> getCombinations() {
+		return Collections.unmodifiableList(combinations);
+	}
+
+	/**
+	 * Get the count of stored levels.
+	 */
+	public int getLevels() {
+		int levels = titles.size();
+		for (CombinationState state : combinations) {
+			levels = Math.max(levels, state.getLevels());
+		}
+		return levels;
+	}
+
+	/**
+	 * Is the given level changed since the last
+	 * {@link #setGeneration(long)}.
+	 */
+	public boolean isChanged(int index) {
+		return changes != null && changes.get(index);
+	}
+
+	private void changed(int index) {
+		if (changes == null) {
+			changes = new BitSet();
+		}
+		changes.set(index);
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * This state is now in sync with a file of the given generation.
+	 */
+	public void setGeneration(long generation) {
+		this.generation = generation;
+
+		changes = null;
+	}
+
 	private void ensureIndex(List<?> list, int index) {
 		while (list.size() <= index) {
 			list.add(null);
@@ -44,22 +111,29 @@ public class MemoryState {
 	}
 
 	private CombinationState getState(Combination combination) {
-		for (CombinationState state : combinations) {
-			if (state.isFor(combination)) {
-				return state;
+		if (index == null) {
+			index = new HashMap<Long, CombinationState>();
+			for (CombinationState state : combinations) {
+				index.put(state.getId(), state);
 			}
 		}
 
-		CombinationState state = new CombinationState(combination);
-		combinations.add(state);
+		CombinationState state = index.get(combination.getId());
+		if (state == null) {
+			state = new CombinationState(combination);
+			combinations.add(state);
+			index.put(state.getId(), state);
+		}
 
 		return state;
 	}
 
 	public String getTitle(int index) {
-		ensureIndex(titles, index);
+		String title = null;
+		if (index < titles.size()) {
+			title = titles.get(index);
+		}
 
-		String title = titles.get(index);
 		if (title == null) {
 			title = "";
 		}
@@ -71,24 +145,36 @@ public class MemoryState {
 		ensureIndex(titles, index);
 
 		titles.set(index, title);
+
+		changed(index);
 	}
 
 	public void clear(int index) {
-		setTitle(index, null);
+		// beyond size is cleared already
+		if (index < titles.size()) {
+			titles.set(index, null);
+		}
 
 		for (CombinationState state : combinations) {
 			state.clear(index);
 		}
+		changed(index);
 	}
 
 	public void swap(int index1, int index2) {
-		String title1 = getTitle(index1);
-		setTitle(index1, getTitle(index2));
-		setTitle(index2, title1);
+		if (index1 < titles.size() || index2 < titles.size()) {
+			ensureIndex(titles, Math.max(index1, index2));
+
+			String title1 = titles.get(index1);
+			titles.set(index1, titles.get(index2));
+			titles.set(index2, title1);
+		}
 
 		for (CombinationState state : combinations) {
 			state.swap(index1, index2);
 		}
+		changed(index1);
+		changed(index2);
 	}
 
 	/**
@@ -110,6 +196,7 @@ public class MemoryState {
 			CombinationState state = getState(combination);
 			state.read(combination, index);
 		}
+		changed(index);
 	}
 
 	/**
@@ -118,6 +205,8 @@ public class MemoryState {
 	public void read(Combination combination, Reference<?> reference, int index) {
 		CombinationState state = getState(combination);
 		state.read(reference, index);
+
+		changed(index);
 	}
 
 	public Object get(Combination combination, Reference<?> reference, int index) {
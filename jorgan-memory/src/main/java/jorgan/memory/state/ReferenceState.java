@@ -26,11 +26,24 @@ public abstract class ReferenceState<T extends Element> {
 	private long id;
 
 	public ReferenceState(T element) {
-		this.id = element.getId();
+		this(element.getId());
+	}
+
+	protected ReferenceState(long id) {
+		this.id = id;
+	}
+
+	public long getId() {
+		return id;
 	}
 
 	protected abstract void ensureIndex(int index);
 
+	/**
+	 * Get the count of stored levels.
+	 */
+	public abstract int getLevels();
+
 	public abstract void read(Reference<?> reference, int index);
 
 	public abstract void write(Reference<?> reference, int index);
@@ -18,6 +18,8 @@
  */
 package jorgan.memory.state;
 
+import java.util.Arrays;
+
 import jorgan.disposition.Reference;
 import jorgan.disposition.Switch;
 import jorgan.disposition.Combination.SwitchReference;
@@ -33,25 +35,36 @@ public class SwitchReferenceState extends ReferenceState<Switch> {
 		super(element);
 	}
 
-	protected void ensureIndex(int index) {
-		if (actives.length <= index) {
-			boolean[] temp = new boolean[index + 1];
+	public SwitchReferenceState(long id, boolean[] actives) {
+		super(id);
 
-			System.arraycopy(actives, 0, temp, 0, actives.length);
+		this.actives = actives;
+	}
 
-			actives = temp;
+	@Override
+	public int getLevels() {
+		return actives.length;
+	}
+
+	protected void ensureIndex(int index) {
+		if (actives.length <= index) {
+			actives = Arrays.copyOf(actives, index + 1);
 		}
 	}
 
 	@Override
 	public void clear(int index) {
-		ensureIndex(index);
-
-		actives[index] = false;
+		// beyond length is cleared already
+		if (index < actives.length) {
+			actives[index] = false;
+		}
 	}
 
 	@Override
 	public void swap(int index1, int index2) {
+		if (index1 >= actives.length && index2 >= actives.length) {
+			return;
+		}
 		ensureIndex(Math.max(index1, index2));
 
 		boolean active1 = actives[index1];
@@ -70,17 +83,20 @@ public class SwitchReferenceState extends ReferenceState<Switch> {
 
 	@Override
 	public void write(Reference<?> reference, int index) {
-		ensureIndex(index);
-
 		SwitchReference temp = (SwitchReference) reference;
 
-		temp.setActive(actives[index]);
+		temp.setActive(isActive(index));
 	}
 
 	@Override
 	public Object get(int index) {
-		ensureIndex(index);
+		return isActive(index);
+	}
 
-		return actives[index];
+	public boolean isActive(int index) {
+		if (index < actives.length) {
+			return actives[index];
+		}
+		return false;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,218 @@
+package jorgan.memory.io;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jorgan.memory.state.CombinationState;
+import jorgan.memory.state.ContinuousReferenceState;
+import jorgan.memory.state.MemoryState;
+import jorgan.memory.state.ReferenceState;
+import jorgan.memory.state.SwitchReferenceState;
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link MemoryFile}.
+ */
+public class MemoryFileTest extends TestCase {
+
+	private File xml;
+
+	private File binary;
+
+	private boolean[] actives;
+
+	private float[] values;
+
+	@Override
+	protected void setUp() throws Exception {
+		xml = File.createTempFile("test", ".memory");
+		binary = File.createTempFile("test", MemoryStateStream.BINARY_SUFFIX);
+		binary.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		xml.delete();
+		binary.delete();
+	}
+
+	public void testRoundTrip() throws Exception {
+		MemoryStateStream stream = new MemoryStateStream();
+
+		MemoryState state = createState(1);
+
+		stream.write(state, xml);
+		MemoryState fromXml = stream.read(xml);
+		assertEquals(state, fromXml);
+
+		stream.write(fromXml, binary);
+		assertTrue(MemoryFile.isBinary(binary));
+		assertFalse(MemoryFile.isBinary(xml));
+		MemoryState fromBinary = stream.read(binary);
+		assertEquals(state, fromBinary);
+
+		stream.write(fromBinary, xml);
+		assertFalse(MemoryFile.isBinary(xml));
+		assertEquals(state, stream.read(xml));
+	}
+
+	public void testUpdate() throws Exception {
+		MemoryState state = createState(1);
+		MemoryFile.write(state, binary);
+
+		// alter level 0 behind the back of the state
+		replace(binary, "level0", "LEVEL0");
+
+		actives[1] = false;
+		values[1] = 0.5f;
+		state.setTitle(1, state.getTitle(1));
+		long length = binary.length();
+		MemoryFile.write(state, binary);
+		assertEquals(length, binary.length());
+
+		MemoryState read = MemoryFile.read(binary);
+		assertEquals("LEVEL0", read.getTitle(0));
+		assertEquals("level1", read.getTitle(1));
+		assertEquals(Boolean.TRUE, getReference(read, 0).get(0));
+		assertEquals(Boolean.FALSE, getReference(read, 0).get(1));
+		assertEquals(0.1f, getReference(read, 1).get(0));
+		assertEquals(0.5f, getReference(read, 1).get(1));
+		assertEquals(state.getGeneration(), read.getGeneration());
+	}
+
+	public void testRelocateTitle() throws Exception {
+		MemoryState state = createState(1);
+		MemoryFile.write(state, binary);
+
+		replace(binary, "level0", "LEVEL0");
+
+		char[] chars = new char[100];
+		Arrays.fill(chars, 'x');
+		String title = new String(chars);
+		state.setTitle(1, title);
+		long length = binary.length();
+		MemoryFile.write(state, binary);
+		assertTrue(binary.length() > length);
+
+		MemoryState read = MemoryFile.read(binary);
+		assertEquals("LEVEL0", read.getTitle(0));
+		assertEquals(title, read.getTitle(1));
+		assertEquals("level2", read.getTitle(2));
+		assertEquals(0.2f, getReference(read, 1).get(1));
+
+		// relocated slot is reused
+		state.setTitle(1, "short");
+		length = binary.length();
+		MemoryFile.write(state, binary);
+		assertEquals(length, binary.length());
+		assertEquals("short", MemoryFile.read(binary).getTitle(1));
+	}
+
+	public void testOtherGeneration() throws Exception {
+		MemoryFile.write(createState(1), binary);
+
+		MemoryState state = createState(2);
+		state.setTitle(1, "changed");
+		MemoryFile.write(state, binary);
+
+		// full write of unchanged levels too
+		MemoryState read = MemoryFile.read(binary);
+		assertEquals(state, read);
+	}
+
+	public void testOtherLayout() throws Exception {
+		MemoryFile.write(createState(1), binary);
+		MemoryState read = MemoryFile.read(binary);
+
+		List<ReferenceState<?>> references = new ArrayList<ReferenceState<?>>();
+		references.add(new SwitchReferenceState(30, new boolean[] { true,
+				false, true }));
+		List<CombinationState> combinations = new ArrayList<CombinationState>();
+		combinations.add(new CombinationState(3, references));
+		MemoryState state = new MemoryState(titles(), combinations);
+		state.setGeneration(read.getGeneration());
+		state.setTitle(1, "changed");
+
+		MemoryFile.write(state, binary);
+
+		assertEquals(state, MemoryFile.read(binary));
+	}
+
+	private MemoryState createState(int id) {
+		actives = new boolean[] { true, true, false };
+		values = new float[] { 0.1f, 0.2f, 0.3f };
+
+		List<ReferenceState<?>> references = new ArrayList<ReferenceState<?>>();
+		references.add(new SwitchReferenceState(id * 10, actives));
+		references.add(new ContinuousReferenceState(id * 10 + 1, values));
+
+		List<CombinationState> combinations = new ArrayList<CombinationState>();
+		combinations.add(new CombinationState(id, references));
+
+		return new MemoryState(titles(), combinations);
+	}
+
+	private List<String> titles() {
+		List<String> titles = new ArrayList<String>();
+		titles.add("level0");
+		titles.add("level1");
+		titles.add("level2");
+		return titles;
+	}
+
+	private void replace(File file, String search, String replacement)
+			throws Exception {
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+		try {
+			byte[] bytes = new byte[(int) access.length()];
+			access.readFully(bytes);
+
+			byte[] pattern = search.getBytes("UTF-8");
+			for (int b = 0; b <= bytes.length - pattern.length; b++) {
+				if (Arrays.equals(pattern, Arrays.copyOfRange(bytes, b, b
+						+ pattern.length))) {
+					access.seek(b);
+					access.write(replacement.getBytes("UTF-8"));
+					return;
+				}
+			}
+			fail(search + " not found");
+		} finally {
+			access.close();
+		}
+	}
+
+	private void assertEquals(MemoryState expected, MemoryState actual) {
+		assertEquals(expected.getLevels(), actual.getLevels());
+		for (int level = 0; level < expected.getLevels(); level++) {
+			assertEquals(expected.getTitle(level), actual.getTitle(level));
+		}
+
+		List<CombinationState> combinations = expected.getCombinations();
+		assertEquals(combinations.size(), actual.getCombinations().size());
+		for (int c = 0; c < combinations.size(); c++) {
+			CombinationState combination = combinations.get(c);
+			assertEquals(combination.getId(), actual.getCombinations().get(c)
+					.getId());
+
+			List<ReferenceState<?>> references = combination.getReferences();
+			for (int r = 0; r < references.size(); r++) {
+				ReferenceState<?> reference = references.get(r);
+				ReferenceState<?> other = actual.getCombinations().get(c)
+						.getReferences().get(r);
+				assertEquals(reference.getClass(), other.getClass());
+				assertEquals(reference.getId(), other.getId());
+				for (int level = 0; level < expected.getLevels(); level++) {
+					assertEquals(reference.get(level), other.get(level));
+				}
+			}
+		}
+	}
+
+	private ReferenceState<?> getReference(MemoryState state, int index) {
+		return state.getCombinations().get(0).getReferences().get(index);
+	}
+}
@@ -0,0 +1,179 @@
+package jorgan.memory.state;
+
+import jorgan.disposition.Combination;
+import jorgan.disposition.Combination.ContinuousReference;
+import jorgan.disposition.Combination.SwitchReference;
+import jorgan.disposition.Continuous;
+import jorgan.disposition.Organ;
+import jorgan.disposition.Switch;
+import jorgan.memory.disposition.Memory;
+import junit.framework.TestCase;
+
+/**
+ * A test for {@link MemoryState} and {@link CombinationState}.
+ */
+public class MemoryStateTest extends TestCase {
+
+	private Organ organ;
+
+	private Memory memory;
+
+	private Combination combination;
+
+	private Switch switch1;
+
+	private Continuous continuous;
+
+	private MemoryState state;
+
+	@Override
+	protected void setUp() throws Exception {
+		organ = new Organ();
+
+		switch1 = new Switch();
+		organ.addElement(switch1);
+
+		continuous = new Continuous();
+		organ.addElement(continuous);
+
+		combination = new Combination();
+		organ.addElement(combination);
+		combination.reference(switch1);
+		combination.reference(continuous);
+
+		memory = new Memory();
+		organ.addElement(memory);
+		memory.reference(combination);
+
+		state = new MemoryState();
+	}
+
+	public void testAdd() throws Exception {
+		store(0, true, 0.5f);
+
+		assertEquals(1, state.getCombinations().size());
+		assertEquals(Boolean.TRUE, get(switch1, 0));
+		assertEquals(0.5f, get(continuous, 0));
+
+		Combination other = new Combination();
+		organ.addElement(other);
+		other.reference(switch1);
+		memory.reference(other);
+
+		getReference(other, switch1).setActive(true);
+		state.read(memory, 1);
+
+		assertEquals(2, state.getCombinations().size());
+		assertEquals(Boolean.TRUE, state.get(other,
+				getReference(other, switch1), 1));
+		assertEquals(Boolean.FALSE, state.get(other,
+				getReference(other, switch1), 0));
+	}
+
+	public void testRemove() throws Exception {
+		store(0, true, 0.5f);
+
+		combination.unreference(switch1);
+		getReference(combination, continuous).setValue(0.25f);
+		state.read(memory, 1);
+		assertEquals(2, state.getCombinations().get(0).getReferences().size());
+
+		combination.reference(switch1);
+		assertEquals(Boolean.TRUE, get(switch1, 0));
+		assertEquals(2, state.getCombinations().get(0).getReferences().size());
+
+		memory.unreference(combination);
+		memory.reference(combination);
+		assertEquals(Boolean.TRUE, get(switch1, 0));
+		assertEquals(0.25f, get(continuous, 1));
+		assertEquals(1, state.getCombinations().size());
+	}
+
+	public void testRename() throws Exception {
+		store(0, true, 0.5f);
+
+		combination.setName("renamed");
+		switch1.setName("renamed");
+
+		assertEquals(Boolean.TRUE, get(switch1, 0));
+		assertEquals(1, state.getCombinations().size());
+		assertEquals(2, state.getCombinations().get(0).getReferences().size());
+	}
+
+	public void testBeyondLevels() throws Exception {
+		store(1, true, 0.5f);
+		assertEquals(2, state.getLevels());
+
+		assertEquals(Boolean.FALSE, get(switch1, 5));
+		assertEquals(0.0f, get(continuous, 5));
+		assertEquals("", state.getTitle(5));
+
+		getReference(combination, switch1).setActive(true);
+		getReference(combination, continuous).setValue(1.0f);
+		state.write(memory, 5);
+		assertFalse(getReference(combination, switch1).isActive());
+		assertEquals(0.0f, getReference(combination, continuous).getValue());
+
+		state.clear(5);
+		assertEquals(2, state.getLevels());
+		assertEquals(2, state.getCombinations().get(0).getLevels());
+
+		state.clear(1);
+		assertEquals(Boolean.FALSE, get(switch1, 1));
+		assertEquals(0.0f, get(continuous, 1));
+		assertEquals(2, state.getLevels());
+	}
+
+	public void testSwapUnallocated() throws Exception {
+		store(1, true, 0.5f);
+		state.setTitle(1, "one");
+
+		state.swap(5, 6);
+		assertEquals(2, state.getLevels());
+		assertEquals(2, state.getCombinations().get(0).getLevels());
+
+		state.swap(1, 4);
+		assertEquals(5, state.getLevels());
+		assertEquals(Boolean.FALSE, get(switch1, 1));
+		assertEquals(0.0f, get(continuous, 1));
+		assertEquals("", state.getTitle(1));
+		assertEquals(Boolean.TRUE, get(switch1, 4));
+		assertEquals(0.5f, get(continuous, 4));
+		assertEquals("one", state.getTitle(4));
+
+		state.swap(4, 1);
+		assertEquals(5, state.getLevels());
+		assertEquals(Boolean.TRUE, get(switch1, 1));
+		assertEquals("one", state.getTitle(1));
+
+		assertTrue(state.isChanged(1));
+		assertTrue(state.isChanged(4));
+	}
+
+	private void store(int level, boolean active, float value) {
+		getReference(combination, switch1).setActive(active);
+		getReference(combination, continuous).setValue(value);
+
+		state.read(memory, level);
+	}
+
+	private Object get(Switch element, int level) {
+		return state.get(combination, getReference(combination, element),
+				level);
+	}
+
+	private Object get(Continuous element, int level) {
+		return state.get(combination, getReference(combination, element),
+				level);
+	}
+
+	private SwitchReference getReference(Combination combination,
+			Switch element) {
+		return (SwitchReference) combination.getReference(element);
+	}
+
+	private ContinuousReference getReference(Combination combination,
+			Continuous element) {
+		return (ContinuousReference) combination.getReference(element);
+	}
+}
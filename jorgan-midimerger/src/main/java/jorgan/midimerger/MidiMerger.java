@@ -19,7 +19,11 @@
 package jorgan.midimerger;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiDevice;
@@ -31,18 +35,37 @@ import javax.sound.midi.ShortMessage;
 import jorgan.midi.DevicePool;
 import jorgan.midi.Direction;
 import jorgan.midi.Loopback;
-import jorgan.midi.MidiGate;
+import jorgan.midi.MessageQueue;
+import jorgan.midi.MessageUtils;
 import bias.Configuration;
 
 /**
  * <code>MidiDevice</code> for merging of mutiple other devices.
+ * <p>
+ * Inputs deliver without locking: either directly on their own threads, or
+ * - if a queue is configured - through a lock-free queue drained by a single
+ * thread. A message sent to a receiver is never altered afterwards, thus
+ * receivers may hold on to it.
  */
 public class MidiMerger extends Loopback {
 
 	private static Configuration config = Configuration.getRoot().get(
 			MidiMerger.class);
 
-	private MidiGate gate = new MidiGate();
+	/**
+	 * Are inputs allowed to enter.
+	 */
+	private volatile boolean entrance;
+
+	/**
+	 * Count of currently entered inputs.
+	 */
+	private final AtomicInteger entered = new AtomicInteger();
+
+	/**
+	 * The thread closing, waiting for entered inputs to leave.
+	 */
+	private volatile Thread closing;
 
 	/**
 	 * The list of inputs to merge.
@@ -51,6 +74,22 @@ public class MidiMerger extends Loopback {
 
 	private List<Merger> mergers = new ArrayList<Merger>();
 
+	/**
+	 * Capacity of the queue or <code>0</code> for direct delivery.
+	 */
+	private int queue;
+
+	private MessageQueue messageQueue;
+
+	private volatile Thread drain;
+
+	private volatile boolean draining;
+
+	/**
+	 * Is the drain waiting for messages.
+	 */
+	private volatile boolean waiting;
+
 	/**
 	 * Create a new midiMerger.
 	 * 
@@ -83,15 +122,53 @@ public class MidiMerger extends Loopback {
 		this.inputs = inputs;
 	}
 
+	public int getQueue() {
+		return queue;
+	}
+
+	/**
+	 * Set the capacity of the queue, <code>0</code> for direct delivery. <br>
+	 * This change is delayed until the next opening.
+	 * 
+	 * @param queue
+	 *            capacity of queue
+	 */
+	public void setQueue(int queue) {
+		this.queue = queue;
+	}
+
+	/**
+	 * Get the counters of the currently merged inputs.
+	 * 
+	 * @return counters
+	 */
+	public synchronized List<Counter> getCounters() {
+		return Collections.<Counter> unmodifiableList(new ArrayList<Merger>(
+				mergers));
+	}
+
 	@Override
 	public void open() throws MidiUnavailableException {
 		super.open();
 
-		gate.open();
+		entrance = true;
 	}
 
 	@Override
 	protected synchronized void openImpl() throws MidiUnavailableException {
+		if (queue > 0) {
+			messageQueue = new MessageQueue(queue);
+
+			draining = true;
+			drain = new Thread(new Runnable() {
+				public void run() {
+					drain();
+				}
+			}, "MidiMerger");
+			drain.setDaemon(true);
+			drain.start();
+		}
+
 		for (MergeInput input : inputs) {
 			mergers.add(new Merger(input.getDevice(), input.getChannel()));
 		}
@@ -99,7 +176,20 @@ public class MidiMerger extends Loopback {
 
 	@Override
 	public void close() {
-		gate.close();
+		closing = Thread.currentThread();
+		entrance = false;
+
+		boolean interrupted = false;
+		while (entered.get() > 0) {
+			LockSupport.park(this);
+			if (Thread.interrupted()) {
+				interrupted = true;
+			}
+		}
+		closing = null;
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
 
 		super.close();
 	}
@@ -111,10 +201,62 @@ public class MidiMerger extends Loopback {
 		}
 		mergers.clear();
 
+		if (drain != null) {
+			draining = false;
+			LockSupport.unpark(drain);
+			drain = null;
+
+			messageQueue = null;
+		}
+
 		super.closeImpl();
 	}
 
-	private class Merger implements Receiver {
+	/**
+	 * Loop out all queued messages.
+	 */
+	private void drain() {
+		MessageQueue messageQueue = this.messageQueue;
+
+		while (draining) {
+			MidiMessage message = messageQueue.poll();
+			if (message != null) {
+				loopOut(message);
+				continue;
+			}
+
+			waiting = true;
+			if (messageQueue.isEmpty()) {
+				LockSupport.park(this);
+			}
+			waiting = false;
+		}
+	}
+
+	/**
+	 * The counters of an input.
+	 */
+	public static interface Counter {
+
+		/**
+		 * Get the name of the input device.
+		 */
+		public String getDevice();
+
+		/**
+		 * Get the count of received messages.
+		 */
+		public long getReceived();
+
+		/**
+		 * Get the count of messages dropped because the queue was full.
+		 */
+		public long getDropped();
+	}
+
+	private class Merger implements Receiver, Counter {
+
+		private String name;
 
 		/**
 		 * The input device to receive messages from.
@@ -127,6 +269,10 @@ public class MidiMerger extends Loopback {
 		 */
 		private int channel;
 
+		private final AtomicLong received = new AtomicLong();
+
+		private final AtomicLong dropped = new AtomicLong();
+
 		/**
 		 * Create a new receiver for the given input.
 		 * 
@@ -140,21 +286,86 @@ public class MidiMerger extends Loopback {
 		public Merger(String device, int channel)
 				throws MidiUnavailableException {
 
+			this.name = device;
+
 			this.device = DevicePool.instance().getMidiDevice(device,
 					Direction.IN);
 			this.device.open();
 
-			this.device.getTransmitter().setReceiver(gate.guard(this));
+			this.device.getTransmitter().setReceiver(this);
 
 			this.channel = channel;
 		}
 
+		public String getDevice() {
+			return name;
+		}
+
+		public long getReceived() {
+			return received.get();
+		}
+
+		public long getDropped() {
+			return dropped.get();
+		}
+
 		@Override
 		public void send(MidiMessage message, long timestamp) {
+			if (!entrance) {
+				return;
+			}
+
+			entered.incrementAndGet();
+			try {
+				if (entrance) {
+					received.incrementAndGet();
+
+					merge(message);
+				}
+			} finally {
+				if (entered.decrementAndGet() == 0 && !entrance) {
+					Thread closing = MidiMerger.this.closing;
+					if (closing != null) {
+						LockSupport.unpark(closing);
+					}
+				}
+			}
+		}
+
+		private void merge(MidiMessage message) {
+			MessageQueue messageQueue = MidiMerger.this.messageQueue;
+
 			if (message instanceof ShortMessage) {
-				message = mapChannel((ShortMessage) message);
+				ShortMessage shortMessage = (ShortMessage) message;
+
+				int command = shortMessage.getCommand();
+				if (command < 0xF0 && channel != -1) {
+					if (messageQueue == null) {
+						message = mapChannel(shortMessage);
+					} else {
+						offer(messageQueue.offer(command | channel,
+								shortMessage.getData1(), shortMessage
+										.getData2()));
+						return;
+					}
+				}
+			}
+
+			if (messageQueue == null) {
+				loopOut(message);
+			} else {
+				offer(messageQueue.offer(message));
+			}
+		}
+
+		private void offer(boolean offered) {
+			if (offered) {
+				if (waiting) {
+					LockSupport.unpark(drain);
+				}
+			} else {
+				dropped.incrementAndGet();
 			}
-			loopOut(message);
 		}
 
 		/**
@@ -165,22 +376,13 @@ public class MidiMerger extends Loopback {
 		 * @return new message with mapped channel
 		 */
 		private MidiMessage mapChannel(ShortMessage message) {
-
-			int command = message.getCommand();
-			int data1 = message.getData1();
-			int data2 = message.getData2();
-
-			if (command < 0xF0 && channel != -1) {
-				try {
-					ShortMessage mapped = new ShortMessage();
-					mapped.setMessage(command, channel, data1, data2);
-					message = mapped;
-				} catch (InvalidMidiDataException ex) {
-					throw new Error(
-							"unexpected invalid data in MidiMerger channel mapping");
-				}
+			try {
+				return MessageUtils.createMessage(message.getCommand()
+						| channel, message.getData1(), message.getData2());
+			} catch (InvalidMidiDataException ex) {
+				throw new Error(
+						"unexpected invalid data in MidiMerger channel mapping");
 			}
-			return message;
 		}
 
 		@Override
@@ -188,4 +390,4 @@ public class MidiMerger extends Loopback {
 			device.close();
 		}
 	}
-}
\ No newline at end of file
+}
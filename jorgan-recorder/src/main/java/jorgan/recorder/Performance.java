@@ -34,11 +34,13 @@ import jorgan.disposition.Element;
 import jorgan.disposition.event.OrganAdapter;
 import jorgan.midi.MessageUtils;
 import jorgan.play.OrganPlay;
+import jorgan.play.metrics.Histogram;
 import jorgan.problem.ElementProblems;
 import jorgan.problem.Problem;
 import jorgan.problem.Severity;
 import jorgan.recorder.disposition.Recorder;
 import jorgan.recorder.io.MidiStream;
+import jorgan.recorder.midi.EventStore;
 import jorgan.recorder.midi.Sequencer;
 import jorgan.recorder.midi.SequencerListener;
 import jorgan.recorder.spi.TrackerRegistry;
@@ -140,9 +142,9 @@ public abstract class Performance {
 				try {
 					File file = resolve(performance);
 
-					Sequence sequence = new MidiStream().read(file);
+					EventStore store = new MidiStream().readStore(file);
 
-					initSequencer(sequence);
+					initSequencer(store);
 				} catch (Exception ex) {
 					problems.addProblem(new Problem(Severity.ERROR, recorder,
 							"performance", createMessage("load", performance)));
@@ -161,9 +163,7 @@ public abstract class Performance {
 		writeTrackers();
 
 		String performance = recorder.getPerformance();
-		Sequence sequence = this.sequencer.getSequence();
-
-		new MidiStream().write(sequence, resolve(performance));
+		new MidiStream().write(sequencer.getStore(), resolve(performance));
 
 		modified = false;
 	}
@@ -219,7 +219,7 @@ public abstract class Performance {
 		modified = true;
 	}
 
-	private void initSequencer(Sequence sequence) {
+	private void initSequencer(EventStore store) {
 		if (this.sequencer != null) {
 			for (Tracker tracker : trackers) {
 				tracker.detach();
@@ -229,8 +229,8 @@ public abstract class Performance {
 			this.sequencer = null;
 		}
 
-		if (sequence != null) {
-			sequencer = new Sequencer(sequence, listener);
+		if (store != null) {
+			sequencer = new Sequencer(store, listener);
 
 			trackers = new ArrayList<Tracker>();
 			for (int track = 0; track < sequencer.getTrackCount(); track++) {
@@ -266,6 +266,7 @@ public abstract class Performance {
 				for (Tracker tracker : trackers) {
 					writeTracker(sequencer, tracker);
 				}
+				sequence = sequencer.getSequence();
 			}
 		} catch (InvalidMidiDataException ex) {
 			throw new Error(ex);
@@ -285,6 +286,8 @@ public abstract class Performance {
 			state = STATE_STOP;
 
 			fireStateChanged();
+
+			fireJitterChanged();
 		}
 	}
 
@@ -417,6 +420,16 @@ public abstract class Performance {
 		return sequencer.getSpeed();
 	}
 
+	/**
+	 * Get the jitter of the current or last playback.
+	 * 
+	 * @return jitter in nanoseconds
+	 * @see Sequencer#getJitter()
+	 */
+	public Histogram getJitter() {
+		return sequencer.getJitter();
+	}
+
 	public void setLoop(boolean loop) {
 		this.loop = loop;
 	}
@@ -460,13 +473,13 @@ public abstract class Performance {
 
 		writeTrackers();
 
-		Sequence sequence = sequencer.getSequence();
-		sequence.deleteTrack(sequence.getTracks()[track]);
-		if (sequence.getTracks().length == 0) {
-			sequence.createTrack();
+		EventStore store = sequencer.getStore();
+		store.removeTrack(track);
+		if (store.getTrackCount() == 0) {
+			store.addTrack();
 		}
 
-		initSequencer(sequence);
+		initSequencer(store);
 
 		markModified();
 
@@ -477,10 +490,10 @@ public abstract class Performance {
 
 		writeTrackers();
 
-		Sequence sequence = sequencer.getSequence();
-		sequence.createTrack();
+		EventStore store = sequencer.getStore();
+		store.addTrack();
 
-		initSequencer(sequence);
+		initSequencer(store);
 
 		markModified();
 
@@ -496,6 +509,13 @@ public abstract class Performance {
 		}
 	}
 
+	private void fireJitterChanged() {
+		Histogram jitter = getJitter();
+		for (PerformanceListener listener : listeners) {
+			listener.jitterChanged(jitter);
+		}
+	}
+
 	private void fireSpeedChanged(float speed) {
 		for (PerformanceListener listener : listeners) {
 			listener.speedChanged(speed);
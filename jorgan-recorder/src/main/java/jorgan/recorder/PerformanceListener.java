@@ -18,6 +18,8 @@
  */
 package jorgan.recorder;
 
+import jorgan.play.metrics.Histogram;
+
 /**
  * A listener of a {@link Performance}.
  */
@@ -40,5 +42,13 @@ public interface PerformanceListener {
 	 */
 	public void stateChanged(int state);
 
+	/**
+	 * Notification of the jitter when playback stopped, i.e. the deviation of
+	 * actual from scheduled dispatch of events in nanoseconds.
+	 * 
+	 * @see Performance#getJitter()
+	 */
+	public void jitterChanged(Histogram jitter);
+
 	public void changed();
 }
\ No newline at end of file
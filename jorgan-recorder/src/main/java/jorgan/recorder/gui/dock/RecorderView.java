@@ -38,6 +38,7 @@ import javax.swing.JToggleButton;
 import javax.swing.Timer;
 
 import jorgan.gui.dock.AbstractView;
+import jorgan.play.metrics.Histogram;
 import jorgan.recorder.Performance;
 import jorgan.recorder.PerformanceListener;
 import jorgan.recorder.gui.TracksPanel;
@@ -381,6 +382,13 @@ public class RecorderView extends AbstractView {
 			recordAction.update();
 		}
 
+		@Override
+		public void jitterChanged(Histogram jitter) {
+			if (jitter.getCount() > 0) {
+				logger.log(Level.FINE, "playback jitter " + jitter);
+			}
+		}
+
 		@Override
 		public void itemStateChanged(ItemEvent e) {
 			if (performance != null) {
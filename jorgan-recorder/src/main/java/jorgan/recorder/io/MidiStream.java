@@ -22,13 +22,14 @@ import java.io.File;
 import java.io.IOException;
 
 import javax.sound.midi.InvalidMidiDataException;
-import javax.sound.midi.MidiSystem;
 import javax.sound.midi.Sequence;
 
+import jorgan.recorder.midi.EventStore;
+import jorgan.recorder.midi.MidiFile;
 import bias.Configuration;
 
 /**
- * A {@link Sequence} streamer.
+ * A {@link Sequence} and {@link EventStore} streamer.
  */
 public class MidiStream {
 
@@ -43,16 +44,29 @@ public class MidiStream {
 
 	public Sequence read(File file) throws IOException,
 			InvalidMidiDataException {
-		Sequence sequence = MidiSystem.getSequence(file);
+		return readStore(file).toSequence();
+	}
+
+	public EventStore readStore(File file) throws IOException,
+			InvalidMidiDataException {
+		EventStore store = MidiFile.read(file);
 
 		changeRecentDirectory(file);
 
-		return sequence;
+		return store;
 	}
 
 	public void write(Sequence sequence, File file) throws IOException {
+		write(new EventStore(sequence), file);
+	}
+
+	/**
+	 * Write the given store - if it was read from or written to the same file
+	 * before, only changed tracks are written.
+	 */
+	public void write(EventStore store, File file) throws IOException {
 
-		MidiSystem.write(sequence, 1, file);
+		MidiFile.write(store, file);
 
 		changeRecentDirectory(file);
 	}
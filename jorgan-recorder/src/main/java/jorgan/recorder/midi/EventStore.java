@@ -0,0 +1,611 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.recorder.midi;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+/**
+ * A store of events in tracks, an alternative to {@link Sequence} optimized
+ * for seeking, merged playback and appending.
+ * <p>
+ * The events of each track are kept ordered by tick in primitive arrays: short
+ * messages are packed into an int, all other messages are kept in a side table
+ * referenced by a negative index.
+ */
+public class EventStore {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private float divisionType;
+
+	private int resolution;
+
+	private Events[] tracks;
+
+	/**
+	 * The file this store was last read from or written to.
+	 * 
+	 * @see MidiFile
+	 */
+	File file;
+
+	/**
+	 * The length of {@link #file} after the last read or write.
+	 */
+	long fileLength;
+
+	/**
+	 * The count of tracks in {@link #file}.
+	 */
+	int fileTracks;
+
+	/**
+	 * Count of modifications, for {@link Cursor}s to detect changes.
+	 */
+	private int modifications;
+
+	public EventStore(float divisionType, int resolution, int tracks) {
+		this.divisionType = divisionType;
+		this.resolution = resolution;
+
+		this.tracks = new Events[tracks];
+		for (int t = 0; t < tracks; t++) {
+			this.tracks[t] = new Events();
+		}
+	}
+
+	/**
+	 * Create a store holding the events of the given sequence.
+	 * 
+	 * @param sequence
+	 *            sequence to copy events from
+	 * @see #toSequence()
+	 */
+	public EventStore(Sequence sequence) {
+		this(sequence.getDivisionType(), sequence.getResolution(), sequence
+				.getTracks().length);
+
+		Track[] tracks = sequence.getTracks();
+		for (int t = 0; t < tracks.length; t++) {
+			Events events = this.tracks[t];
+
+			for (int e = 0; e < tracks[t].size(); e++) {
+				MidiEvent event = tracks[t].get(e);
+
+				if (SequenceUtils.isEndOfTrack(event.getMessage())) {
+					events.end = Math.max(events.end, event.getTick());
+				} else {
+					events.add(event.getTick(), event.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create a sequence holding the events of this store.
+	 * 
+	 * @return new sequence
+	 */
+	public Sequence toSequence() {
+		Sequence sequence;
+		try {
+			sequence = new Sequence(divisionType, resolution, tracks.length);
+		} catch (InvalidMidiDataException ex) {
+			throw new IllegalStateException(ex);
+		}
+
+		Track[] tracks = sequence.getTracks();
+		for (int t = 0; t < tracks.length; t++) {
+			Events events = this.tracks[t];
+
+			for (int e = 0; e < events.size; e++) {
+				tracks[t].add(new MidiEvent(events.getMessage(e),
+						events.ticks[e]));
+			}
+
+			// end of track
+			tracks[t].get(tracks[t].size() - 1).setTick(events.getEnd());
+		}
+
+		return sequence;
+	}
+
+	public float getDivisionType() {
+		return divisionType;
+	}
+
+	public int getResolution() {
+		return resolution;
+	}
+
+	public int getTrackCount() {
+		return tracks.length;
+	}
+
+	/**
+	 * Add an empty track.
+	 */
+	public void addTrack() {
+		modifications++;
+
+		tracks = Arrays.copyOf(tracks, tracks.length + 1);
+		tracks[tracks.length - 1] = new Events();
+	}
+
+	/**
+	 * Remove a track.
+	 * 
+	 * @param track
+	 *            the track to remove
+	 */
+	public void removeTrack(int track) {
+		modifications++;
+
+		Events[] tracks = new Events[this.tracks.length - 1];
+		System.arraycopy(this.tracks, 0, tracks, 0, track);
+		System.arraycopy(this.tracks, track + 1, tracks, track,
+				tracks.length - track);
+		this.tracks = tracks;
+
+		// following tracks are no longer at their position in the file
+		for (int t = track; t < tracks.length; t++) {
+			tracks[t].chunk = -1;
+		}
+	}
+
+	Events getEvents(int track) {
+		return tracks[track];
+	}
+
+	/**
+	 * Get the count of events in the given track.
+	 */
+	public int size(int track) {
+		return tracks[track].size;
+	}
+
+	public long getTick(int track, int index) {
+		Events events = tracks[track];
+		if (index >= events.size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return events.ticks[index];
+	}
+
+	public MidiMessage getMessage(int track, int index) {
+		Events events = tracks[track];
+		if (index >= events.size) {
+			throw new IndexOutOfBoundsException();
+		}
+		return events.getMessage(index);
+	}
+
+	/**
+	 * Get the index of the first event in the given track at or after the
+	 * given tick.
+	 * 
+	 * @param track
+	 *            the track
+	 * @param tick
+	 *            the tick
+	 * @return index
+	 */
+	public int getIndex(int track, long tick) {
+		return tracks[track].indexOf(tick);
+	}
+
+	/**
+	 * Add an event, following all events at the same tick.
+	 * 
+	 * @param track
+	 *            track to add to
+	 * @param tick
+	 *            tick of event
+	 * @param message
+	 *            message of event
+	 * @return index of the added event
+	 */
+	public int add(int track, long tick, MidiMessage message) {
+		modifications++;
+
+		return tracks[track].add(tick, message);
+	}
+
+	/**
+	 * Remove an event.
+	 * 
+	 * @param track
+	 *            track to remove from
+	 * @param index
+	 *            index of event to remove
+	 */
+	public void remove(int track, int index) {
+		modifications++;
+
+		tracks[track].remove(index);
+	}
+
+	/**
+	 * Get the length in ticks, i.e. the maximum end of all tracks.
+	 */
+	public long getTickLength() {
+		long length = 0;
+		for (Events events : tracks) {
+			length = Math.max(length, events.getEnd());
+		}
+		return length;
+	}
+
+	/**
+	 * Shrink all tracks, so each one ends with its last event.
+	 */
+	public void shrink() {
+		for (Events events : tracks) {
+			events.end = 0;
+		}
+	}
+
+	/**
+	 * Create a cursor over all events at or after the given tick.
+	 * 
+	 * @param tick
+	 *            the tick to start at
+	 * @return cursor
+	 */
+	public Cursor cursor(long tick) {
+		return new Cursor(tick);
+	}
+
+	/**
+	 * A cursor merging the events of all tracks in order of their ticks.
+	 * <p>
+	 * Tracks are kept in a heap by the tick of their next event. If events are
+	 * added or removed, the heap is rebuilt on the next access.
+	 */
+	public class Cursor {
+
+		private int[] indices;
+
+		private int[] heap;
+
+		private int size;
+
+		private int modifications;
+
+		private Cursor(long tick) {
+			indices = new int[tracks.length];
+			for (int t = 0; t < tracks.length; t++) {
+				indices[t] = tracks[t].indexOf(tick);
+			}
+
+			heap = new int[tracks.length];
+
+			rebuild();
+		}
+
+		/**
+		 * The track of the next event.
+		 * 
+		 * @return track or <code>-1</code> if there is no next event
+		 */
+		public int track() {
+			check();
+
+			if (size == 0) {
+				return -1;
+			}
+			return heap[0];
+		}
+
+		/**
+		 * The tick of the next event.
+		 * 
+		 * @return tick or {@link Long#MAX_VALUE} if there is no next event
+		 */
+		public long tick() {
+			check();
+
+			if (size == 0) {
+				return Long.MAX_VALUE;
+			}
+			return key(heap[0]);
+		}
+
+		/**
+		 * The message of the next event.
+		 */
+		public MidiMessage message() {
+			int track = track();
+
+			return tracks[track].getMessage(indices[track]);
+		}
+
+		/**
+		 * Move to the next event.
+		 */
+		public void next() {
+			int track = track();
+
+			indices[track]++;
+			if (indices[track] < tracks[track].size) {
+				down(0);
+			} else {
+				size--;
+				heap[0] = heap[size];
+				down(0);
+			}
+		}
+
+		/**
+		 * Skip an event added in front of the next event of the given track.
+		 * 
+		 * @param track
+		 *            the track an event was added to
+		 */
+		public void skip(int track) {
+			indices[track]++;
+
+			rebuild();
+		}
+
+		private void check() {
+			if (modifications != EventStore.this.modifications) {
+				rebuild();
+			}
+		}
+
+		private void rebuild() {
+			modifications = EventStore.this.modifications;
+
+			size = 0;
+			for (int t = 0; t < tracks.length; t++) {
+				if (indices[t] < tracks[t].size) {
+					heap[size++] = t;
+				}
+			}
+
+			for (int h = size / 2 - 1; h >= 0; h--) {
+				down(h);
+			}
+		}
+
+		private long key(int track) {
+			return tracks[track].ticks[indices[track]];
+		}
+
+		private boolean less(int h1, int h2) {
+			long key1 = key(heap[h1]);
+			long key2 = key(heap[h2]);
+
+			// keep order of tracks for equal ticks
+			return key1 < key2 || (key1 == key2 && heap[h1] < heap[h2]);
+		}
+
+		private void down(int h) {
+			while (true) {
+				int smallest = h;
+				int left = 2 * h + 1;
+				int right = left + 1;
+				if (left < size && less(left, smallest)) {
+					smallest = left;
+				}
+				if (right < size && less(right, smallest)) {
+					smallest = right;
+				}
+				if (smallest == h) {
+					break;
+				}
+
+				int temp = heap[h];
+				heap[h] = heap[smallest];
+				heap[smallest] = temp;
+
+				h = smallest;
+			}
+		}
+	}
+
+	/**
+	 * The events of a single track.
+	 */
+	static class Events {
+
+		long[] ticks = new long[INITIAL_CAPACITY];
+
+		/**
+		 * Packed short messages, or negative index into {@link #others}.
+		 */
+		int[] messages = new int[INITIAL_CAPACITY];
+
+		private List<MidiMessage> others = new ArrayList<MidiMessage>();
+
+		int size;
+
+		/**
+		 * The end of this track, at least the tick of the last event.
+		 */
+		long end;
+
+		/**
+		 * Offset of the chunk of this track in {@link EventStore#file}, or
+		 * <code>-1</code> if unknown.
+		 */
+		long chunk = -1;
+
+		/**
+		 * Offset of the end of track event in the chunk.
+		 */
+		long endOffset;
+
+		/**
+		 * Offset following the chunk.
+		 */
+		long next;
+
+		/**
+		 * The end written to the chunk.
+		 */
+		long writtenEnd;
+
+		/**
+		 * Count of events written to the chunk.
+		 */
+		int written;
+
+		/**
+		 * Count of leading events unchanged since written.
+		 */
+		int unchanged;
+
+		public long getEnd() {
+			if (size > 0) {
+				return Math.max(end, ticks[size - 1]);
+			}
+			return end;
+		}
+
+		/**
+		 * Binary search for the first event at or after the given tick.
+		 */
+		public int indexOf(long tick) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (ticks[middle] < tick) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		public int add(long tick, MidiMessage message) {
+			return add(tick, pack(message));
+		}
+
+		public int add(long tick, int packed) {
+			int index;
+			if (size == 0 || ticks[size - 1] <= tick) {
+				// appending while recording
+				index = size;
+			} else {
+				// following all events at the same tick
+				index = indexOf(tick + 1);
+			}
+
+			if (size == ticks.length) {
+				ticks = Arrays.copyOf(ticks, size * 2);
+				messages = Arrays.copyOf(messages, size * 2);
+			}
+
+			System.arraycopy(ticks, index, ticks, index + 1, size - index);
+			System.arraycopy(messages, index, messages, index + 1, size
+					- index);
+
+			ticks[index] = tick;
+			messages[index] = packed;
+			size++;
+
+			unchanged = Math.min(unchanged, index);
+
+			return index;
+		}
+
+		public void remove(int index) {
+			if (index >= size) {
+				throw new IndexOutOfBoundsException();
+			}
+
+			if (messages[index] < 0) {
+				others.set(~messages[index], null);
+			}
+
+			System.arraycopy(ticks, index + 1, ticks, index, size - index - 1);
+			System.arraycopy(messages, index + 1, messages, index, size
+					- index - 1);
+			size--;
+
+			unchanged = Math.min(unchanged, index);
+		}
+
+		/**
+		 * Is this track changed since written.
+		 */
+		public boolean isChanged() {
+			return chunk == -1 || unchanged < written || size > written
+					|| getEnd() != writtenEnd;
+		}
+
+		/**
+		 * Can this track be written by appending to its chunk.
+		 */
+		public boolean isAppendable() {
+			return chunk != -1 && unchanged == written;
+		}
+
+		public MidiMessage getOther(int packed) {
+			return others.get(~packed);
+		}
+
+		public MidiMessage getMessage(int index) {
+			int packed = messages[index];
+			if (packed < 0) {
+				return others.get(~packed);
+			}
+
+			try {
+				return new ShortMessage(packed & 0xff, (packed >> 8) & 0xff,
+						(packed >> 16) & 0xff);
+			} catch (InvalidMidiDataException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+
+		private int pack(MidiMessage message) {
+			if (message instanceof ShortMessage) {
+				ShortMessage shortMessage = (ShortMessage) message;
+
+				return EventStore.pack(shortMessage.getStatus(), shortMessage
+						.getData1(), shortMessage.getData2());
+			}
+
+			others.add(message);
+			return ~(others.size() - 1);
+		}
+	}
+
+	/**
+	 * Pack a short message.
+	 */
+	static int pack(int status, int data1, int data2) {
+		return status | (data1 << 8) | (data2 << 16);
+	}
+}
@@ -0,0 +1,477 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.recorder.midi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.SysexMessage;
+
+import jorgan.midi.MessageUtils;
+import jorgan.recorder.midi.EventStore.Events;
+import jorgan.util.IOUtils;
+
+/**
+ * Standard MIDI file I/O working directly on an {@link EventStore}.
+ * <p>
+ * Files are read into a single buffer, short messages are packed into
+ * the store without creating {@link MidiMessage}s. On writing, tracks unchanged
+ * since the last read or write are left untouched in the file, a track with
+ * appended events only is extended in place and all following tracks are
+ * rewritten.
+ */
+public class MidiFile {
+
+	private static final int HEADER = 0x4d546864;
+
+	private static final int TRACK = 0x4d54726b;
+
+	private static final int HEADER_LENGTH = 14;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Read a store from the given file.
+	 * 
+	 * @param file
+	 *            file to read
+	 * @return store
+	 */
+	public static EventStore read(File file) throws IOException,
+			InvalidMidiDataException {
+		ByteBuffer buffer = IOUtils.read(file);
+
+		try {
+			return read(buffer, file);
+		} catch (RuntimeException ex) {
+			InvalidMidiDataException invalid = new InvalidMidiDataException(
+					"invalid MIDI file");
+			invalid.initCause(ex);
+			throw invalid;
+		}
+	}
+
+	private static EventStore read(ByteBuffer buffer, File file)
+			throws InvalidMidiDataException {
+		if (buffer.getInt() != HEADER) {
+			throw new InvalidMidiDataException("not a MIDI file");
+		}
+		int length = buffer.getInt();
+		buffer.getShort();
+		int count = buffer.getShort() & 0xffff;
+		int division = buffer.getShort();
+		buffer.position(8 + length);
+
+		float divisionType;
+		int resolution;
+		if (division >= 0) {
+			divisionType = Sequence.PPQ;
+			resolution = division;
+		} else {
+			int frames = -(division >> 8);
+			if (frames == 29) {
+				divisionType = Sequence.SMPTE_30DROP;
+			} else {
+				divisionType = frames;
+			}
+			resolution = division & 0xff;
+		}
+
+		EventStore store = new EventStore(divisionType, resolution, count);
+
+		int track = 0;
+		while (track < count && buffer.remaining() >= 8) {
+			int chunk = buffer.position();
+			int id = buffer.getInt();
+			int next = buffer.getInt() + buffer.position();
+			if (id == TRACK) {
+				Events events = store.getEvents(track);
+				events.chunk = chunk;
+				events.next = next;
+
+				readTrack(buffer, next, events);
+
+				events.written = events.size;
+				events.unchanged = events.size;
+				events.writtenEnd = events.getEnd();
+
+				track++;
+			}
+			buffer.position(next);
+		}
+
+		store.file = file.getAbsoluteFile();
+		store.fileLength = buffer.limit();
+		store.fileTracks = track;
+
+		return store;
+	}
+
+	private static void readTrack(ByteBuffer buffer, int next, Events events)
+			throws InvalidMidiDataException {
+		long tick = 0;
+		int running = 0;
+
+		events.endOffset = next;
+		while (buffer.position() < next) {
+			int offset = buffer.position();
+
+			tick += readVariable(buffer);
+
+			int status = buffer.get(buffer.position()) & 0xff;
+			if (status < 0x80) {
+				if (running == 0) {
+					throw new InvalidMidiDataException("missing status");
+				}
+				status = running;
+			} else {
+				buffer.get();
+			}
+
+			if (status == MetaMessage.META) {
+				int type = buffer.get() & 0xff;
+				byte[] data = new byte[readVariable(buffer)];
+				buffer.get(data);
+
+				if (type == MessageUtils.META_END_OF_TRACK) {
+					events.end = tick;
+					events.endOffset = offset;
+					break;
+				}
+				events.add(tick, new MetaMessage(type, data, data.length));
+			} else if (status == SysexMessage.SYSTEM_EXCLUSIVE
+					|| status == SysexMessage.SPECIAL_SYSTEM_EXCLUSIVE) {
+				byte[] data = new byte[1 + readVariable(buffer)];
+				data[0] = (byte) status;
+				buffer.get(data, 1, data.length - 1);
+
+				events.add(tick, new SysexMessage(data, data.length));
+			} else {
+				running = status;
+
+				int length = getDataLength(status);
+				int data1 = length > 0 ? buffer.get() & 0x7f : 0;
+				int data2 = length > 1 ? buffer.get() & 0x7f : 0;
+
+				events.add(tick, EventStore.pack(status, data1, data2));
+			}
+		}
+		events.end = Math.max(events.end, tick);
+	}
+
+	/**
+	 * Write a store to the given file.
+	 * 
+	 * @param store
+	 *            store to write
+	 * @param file
+	 *            file to write to
+	 */
+	public static void write(EventStore store, File file) throws IOException {
+		file = file.getAbsoluteFile();
+
+		boolean known = file.equals(store.file)
+				&& file.length() == store.fileLength;
+
+		int count = store.getTrackCount();
+
+		int first = 0;
+		if (known) {
+			while (first < count && !store.getEvents(first).isChanged()) {
+				first++;
+			}
+
+			if (first == count && store.fileTracks == count) {
+				return;
+			}
+		}
+
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+		try {
+			Output output = new Output(access.getChannel());
+
+			writeHeader(output, store);
+
+			long position = HEADER_LENGTH;
+			if (first > 0) {
+				position = store.getEvents(first - 1).next;
+			}
+
+			for (int track = first; track < count; track++) {
+				Events events = store.getEvents(track);
+
+				if (track == first && known && events.isAppendable()) {
+					appendTrack(output, events);
+				} else {
+					writeTrack(output, position, events);
+				}
+				position = events.next;
+			}
+
+			output.flush();
+			access.getChannel().truncate(position);
+
+			store.file = file;
+			store.fileLength = position;
+			store.fileTracks = count;
+		} finally {
+			IOUtils.closeQuietly(access);
+		}
+	}
+
+	private static void writeHeader(Output output, EventStore store)
+			throws IOException {
+		int division;
+		if (store.getDivisionType() == Sequence.PPQ) {
+			division = store.getResolution();
+		} else {
+			int frames;
+			if (store.getDivisionType() == Sequence.SMPTE_30DROP) {
+				// 29.97 is stored as 29, see read
+				frames = 29;
+			} else {
+				frames = Math.round(store.getDivisionType());
+			}
+			division = ((-frames) << 8) | (store.getResolution() & 0xff);
+		}
+
+		output.seek(0);
+		output.putInt(HEADER);
+		output.putInt(6);
+		output.putShort(1);
+		output.putShort(store.getTrackCount());
+		output.putShort(division);
+	}
+
+	private static void writeTrack(Output output, long position, Events events)
+			throws IOException {
+		output.seek(position);
+
+		events.chunk = position;
+		output.putInt(TRACK);
+		output.putInt(0);
+
+		writeEvents(output, events, 0);
+	}
+
+	private static void appendTrack(Output output, Events events)
+			throws IOException {
+		output.seek(events.endOffset);
+
+		writeEvents(output, events, events.written);
+	}
+
+	/**
+	 * Write the events starting with the given index, followed by end of
+	 * track.
+	 */
+	private static void writeEvents(Output output, Events events, int from)
+			throws IOException {
+		long tick = from > 0 ? events.ticks[from - 1] : 0;
+
+		for (int e = from; e < events.size; e++) {
+			output.putVariable(events.ticks[e] - tick);
+			tick = events.ticks[e];
+
+			int packed = events.messages[e];
+			if (packed < 0) {
+				writeMessage(output, events.getOther(packed));
+			} else {
+				int status = packed & 0xff;
+				output.put(status);
+
+				int length = getDataLength(status);
+				if (length > 0) {
+					output.put((packed >> 8) & 0xff);
+				}
+				if (length > 1) {
+					output.put((packed >> 16) & 0xff);
+				}
+			}
+		}
+
+		events.endOffset = output.position();
+		output.putVariable(events.getEnd() - tick);
+		output.put(MetaMessage.META);
+		output.put(MessageUtils.META_END_OF_TRACK);
+		output.put(0);
+
+		events.next = output.position();
+		output.patchInt(events.chunk + 4, (int) (events.next - events.chunk - 8));
+
+		events.written = events.size;
+		events.unchanged = events.size;
+		events.writtenEnd = events.getEnd();
+	}
+
+	private static void writeMessage(Output output, MidiMessage message)
+			throws IOException {
+		byte[] bytes = message.getMessage();
+
+		if (message instanceof MetaMessage) {
+			MetaMessage meta = (MetaMessage) message;
+			byte[] data = meta.getData();
+
+			output.put(MetaMessage.META);
+			output.put(meta.getType());
+			output.putVariable(data.length);
+			output.put(data, 0, data.length);
+		} else if (message instanceof SysexMessage) {
+			output.put(bytes[0] & 0xff);
+			output.putVariable(message.getLength() - 1);
+			output.put(bytes, 1, message.getLength() - 1);
+		} else {
+			output.put(bytes, 0, message.getLength());
+		}
+	}
+
+	private static int getDataLength(int status) {
+		switch (status & 0xf0) {
+		case 0xc0:
+		case 0xd0:
+			return 1;
+		case 0xf0:
+			switch (status) {
+			case 0xf1:
+			case 0xf3:
+				return 1;
+			case 0xf2:
+				return 2;
+			default:
+				return 0;
+			}
+		default:
+			return 2;
+		}
+	}
+
+	private static int readVariable(ByteBuffer buffer) {
+		int value = 0;
+		int b;
+		do {
+			b = buffer.get() & 0xff;
+			value = (value << 7) | (b & 0x7f);
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * A buffered output to a channel.
+	 */
+	private static class Output {
+
+		private FileChannel channel;
+
+		private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		/**
+		 * Position in the channel of the start of the buffer.
+		 */
+		private long position;
+
+		public Output(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		public long position() {
+			return position + buffer.position();
+		}
+
+		public void seek(long position) throws IOException {
+			flush();
+
+			this.position = position;
+		}
+
+		public void put(int b) throws IOException {
+			ensure(1);
+			buffer.put((byte) b);
+		}
+
+		public void put(byte[] bytes, int offset, int length)
+				throws IOException {
+			while (length > 0) {
+				ensure(1);
+				int chunk = Math.min(length, buffer.remaining());
+				buffer.put(bytes, offset, chunk);
+				offset += chunk;
+				length -= chunk;
+			}
+		}
+
+		public void putShort(int value) throws IOException {
+			ensure(2);
+			buffer.putShort((short) value);
+		}
+
+		public void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		public void putVariable(long value) throws IOException {
+			if (value < 0 || value > 0x0fffffff) {
+				throw new IOException("invalid delta " + value);
+			}
+
+			ensure(4);
+			int shift = 21;
+			while (shift > 0 && (value >> shift) == 0) {
+				shift -= 7;
+			}
+			while (shift > 0) {
+				buffer.put((byte) (0x80 | ((value >> shift) & 0x7f)));
+				shift -= 7;
+			}
+			buffer.put((byte) (value & 0x7f));
+		}
+
+		public void patchInt(long offset, int value) throws IOException {
+			flush();
+
+			ByteBuffer patch = ByteBuffer.allocate(4);
+			patch.putInt(value);
+			patch.flip();
+			while (patch.hasRemaining()) {
+				channel.write(patch, offset + patch.position());
+			}
+		}
+
+		private void ensure(int length) throws IOException {
+			if (buffer.remaining() < length) {
+				flush();
+			}
+		}
+
+		public void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				position += channel.write(buffer, position);
+			}
+			buffer.clear();
+		}
+	}
+}
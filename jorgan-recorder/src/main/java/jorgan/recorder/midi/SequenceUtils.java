@@ -38,14 +38,17 @@ public class SequenceUtils {
 	 * @see MidiEvent#getTick()
 	 */
 	public static int getIndex(Track track, long tick) {
-		int index;
-		for (index = 0; index < track.size(); index++) {
-			MidiEvent event = track.get(index);
-			if (event.getTick() >= tick) {
-				break;
+		int low = 0;
+		int high = track.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (track.get(middle).getTick() < tick) {
+				low = middle + 1;
+			} else {
+				high = middle;
 			}
 		}
-		return index;
+		return low;
 	}
 
 	public static boolean isEndOfTrack(MidiMessage message) {
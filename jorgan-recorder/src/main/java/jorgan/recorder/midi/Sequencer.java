@@ -18,14 +18,14 @@
  */
 package jorgan.recorder.midi;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.sound.midi.MidiEvent;
 import javax.sound.midi.MidiMessage;
 import javax.sound.midi.Sequence;
-import javax.sound.midi.Track;
 
+import jorgan.play.metrics.Histogram;
 import jorgan.util.AbstractIterator;
 
 public class Sequencer {
@@ -34,11 +34,21 @@ public class Sequencer {
 
 	public static final long MINUTE = 60 * SECOND;
 
-	private SequencerListener listener;
+	/**
+	 * Events due within this window are dispatched in a single batch.
+	 */
+	private static final long LOOKAHEAD_NANOS = 1000 * 1000;
 
-	private Sequence sequence;
+	/**
+	 * Deadlines closer than this are awaited spinning instead of parking.
+	 */
+	private static final long SPIN_NANOS = 500 * 1000;
+
+	private static final double NANOS_PER_SECOND = 1000.0 * 1000.0 * 1000.0;
 
-	private Track[] tracks;
+	private SequencerListener listener;
+
+	private EventStore store;
 
 	private long currentTick;
 
@@ -46,6 +56,11 @@ public class Sequencer {
 
 	private State state;
 
+	/**
+	 * Deviation of actual from scheduled dispatch in nanoseconds.
+	 */
+	private Histogram jitter = new Histogram();
+
 	public Sequencer(Sequence sequence) {
 		this(sequence, new SequencerListener() {
 			@Override
@@ -67,21 +82,36 @@ public class Sequencer {
 	}
 
 	public Sequencer(Sequence sequence, SequencerListener listener) {
-		this.sequence = sequence;
+		this(new EventStore(sequence), listener);
+	}
+
+	public Sequencer(EventStore store, SequencerListener listener) {
+		this.store = store;
 		this.listener = listener;
 
-		tracks = sequence.getTracks();
 		currentTick = 0;
 
 		new Stopped();
 	}
 
+	/**
+	 * Get a sequence of all events.
+	 * 
+	 * @return new sequence, changes are not reflected in this sequencer
+	 * @see EventStore#toSequence()
+	 */
 	public Sequence getSequence() {
-		return sequence;
+		synchronized (store) {
+			return store.toSequence();
+		}
+	}
+
+	public EventStore getStore() {
+		return store;
 	}
 
 	public int getTrackCount() {
-		return tracks.length;
+		return store.getTrackCount();
 	}
 
 	public long getTime() {
@@ -101,7 +131,7 @@ public class Sequencer {
 	}
 
 	private void setTick(long tick) {
-		synchronized (sequence) {
+		synchronized (store) {
 			stop();
 
 			this.currentTick = Math.min(tick, getTotalTicks() + 1);
@@ -121,15 +151,15 @@ public class Sequencer {
 	}
 
 	public void last() {
-		setTick(sequence.getTickLength() + 1);
+		setTick(store.getTickLength() + 1);
 	}
 
 	public boolean isLast() {
-		return currentTick == sequence.getTickLength() + 1;
+		return currentTick == store.getTickLength() + 1;
 	}
 
 	public void start() {
-		synchronized (sequence) {
+		synchronized (store) {
 			stop();
 
 			new Running();
@@ -145,7 +175,7 @@ public class Sequencer {
 	}
 
 	public void stop() {
-		synchronized (sequence) {
+		synchronized (store) {
 			if (state instanceof Stopped) {
 				// already stopped
 				return;
@@ -171,7 +201,7 @@ public class Sequencer {
 	 */
 	public void record(int track, MidiMessage message) {
 
-		if (track >= tracks.length) {
+		if (track >= store.getTrackCount()) {
 			throw new IllegalArgumentException("invalid track");
 		}
 
@@ -179,29 +209,50 @@ public class Sequencer {
 			throw new IllegalArgumentException("endOfTrack is invalid");
 		}
 
-		synchronized (sequence) {
+		synchronized (store) {
 			state.record(track, message);
 		}
 	}
 
 	public long millisToTick(long millis) {
-		float division = sequence.getDivisionType();
+		float division = store.getDivisionType();
 		if (division == Sequence.PPQ) {
 			// default tempo is 120 beats per minute -> 2 beats per seconds
 			division = 2.0f;
 		}
 
-		return Math.round(millis * division * sequence.getResolution() / 1000);
+		return Math.round(millis * division * store.getResolution() / 1000);
 	}
 
 	public long tickToMillis(long tick) {
-		float division = sequence.getDivisionType();
+		float division = store.getDivisionType();
 		if (division == Sequence.PPQ) {
 			// default tempo is 120 beats per minute -> 2 beats per seconds
 			division = 2.0f;
 		}
 
-		return Math.round(tick * 1000.0f / division / sequence.getResolution());
+		return Math.round(tick * 1000.0f / division / store.getResolution());
+	}
+
+	/**
+	 * Ticks per nanosecond at normal speed.
+	 */
+	private double ticksPerNano() {
+		float division = store.getDivisionType();
+		if (division == Sequence.PPQ) {
+			// default tempo is 120 beats per minute -> 2 beats per seconds
+			division = 2.0f;
+		}
+
+		return division * store.getResolution() / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * Get the jitter of playback, i.e. the deviation of actual from scheduled
+	 * dispatch of events in nanoseconds since the last start.
+	 */
+	public Histogram getJitter() {
+		return jitter;
 	}
 
 	public Iterable<MidiEvent> eventsAtTick(final int track, final long tick) {
@@ -228,33 +279,35 @@ public class Sequencer {
 	private Iterable<MidiEvent> events(final int track, final long fromTick,
 			final long toTick) {
 
-		synchronized (sequence) {
+		synchronized (store) {
 			return new AbstractIterator<MidiEvent>() {
-				private int index = SequenceUtils.getIndex(tracks[track],
-						fromTick) - 1;
+				private int index = store.getIndex(track, fromTick) - 1;
 
 				public boolean hasNext() {
-					if (index == tracks[track].size() - 1) {
-						return false;
-					}
+					synchronized (store) {
+						if (index + 1 >= store.size(track)) {
+							return false;
+						}
 
-					MidiEvent event = tracks[track].get(index + 1);
-					return !SequenceUtils.isEndOfTrack(event.getMessage())
-							&& event.getTick() < toTick;
+						return store.getTick(track, index + 1) < toTick;
+					}
 				}
 
 				public MidiEvent next() {
-					index++;
-
-					MidiEvent event = tracks[track].get(index);
+					synchronized (store) {
+						index++;
 
-					return event;
+						return new MidiEvent(store.getMessage(track, index),
+								store.getTick(track, index));
+					}
 				}
 
 				@Override
 				public void remove() {
-					tracks[track].remove(tracks[track].get(index));
-					index--;
+					synchronized (store) {
+						store.remove(track, index);
+						index--;
+					}
 				}
 			};
 		}
@@ -274,6 +327,9 @@ public class Sequencer {
 		public void stopping() {
 			listener.onStopping();
 		}
+
+		public void speedChanged() {
+		}
 	}
 
 	private class Stopped extends State {
@@ -284,41 +340,53 @@ public class Sequencer {
 
 		@Override
 		public long totalTicks() {
-			return sequence.getTickLength();
+			return store.getTickLength();
 		}
 
 		@Override
 		public void record(int track, MidiMessage message) {
-			tracks[track].add(new MidiEvent(message, currentTick()));
+			store.add(track, currentTick(), message);
 		}
 	}
 
+	/**
+	 * Playback based on {@link System#nanoTime()}: the runner parks until
+	 * shortly before the next deadline, spins for the remainder and then
+	 * dispatches all events due within {@link #LOOKAHEAD_NANOS}.
+	 */
 	private class Running extends State implements Runnable {
 
+		private double ticksPerNano;
+
 		/*
-		 * speed must not change while running
+		 * speed and anchors are changed together on speed change
 		 */
 		private float speed;
 
-		private long initialTick;
+		private double anchorTick;
+
+		private long anchorNanos;
 
-		private long startMillis;
+		private EventStore.Cursor cursor;
 
-		private int[] indices;
+		private volatile Thread thread;
 
-		private Thread thread;
+		/**
+		 * Batch of the runner, reused for each dispatch.
+		 */
+		private Batch batch = new Batch();
 
 		public Running() {
+			this.ticksPerNano = ticksPerNano();
 			this.speed = Sequencer.this.speed;
 
-			initialTick = currentTick;
+			anchorTick = currentTick;
+			anchorNanos = System.nanoTime();
 
-			indices = new int[tracks.length];
-			for (int t = 0; t < tracks.length; t++) {
-				indices[t] = SequenceUtils.getIndex(tracks[t], initialTick);
-			}
+			cursor = store.cursor(currentTick);
+
+			jitter.reset();
 
-			startMillis = System.currentTimeMillis();
 			thread = new Thread(this, "Sequencer");
 
 			listener.onStarting();
@@ -327,104 +395,114 @@ public class Sequencer {
 		}
 
 		public long currentTick() {
-			return initialTick
-					+ millisToTick(Math
-							.round((System.currentTimeMillis() - startMillis)
-									* speed));
+			return Math.round(tickAt(System.nanoTime()));
+		}
+
+		private double tickAt(long nanos) {
+			return anchorTick + (nanos - anchorNanos) * speed * ticksPerNano;
+		}
+
+		private long nanosAt(long tick) {
+			return anchorNanos
+					+ Math.round((tick - anchorTick) / ticksPerNano / speed);
 		}
 
 		@Override
 		public long totalTicks() {
-			return Math.max(sequence.getTickLength(), currentTick());
+			return Math.max(store.getTickLength(), currentTick());
+		}
+
+		@Override
+		public void speedChanged() {
+			long nanos = System.nanoTime();
+
+			anchorTick = tickAt(nanos);
+			anchorNanos = nanos;
+			speed = Sequencer.this.speed;
+
+			// deadline changed
+			Thread thread = this.thread;
+			if (thread != null) {
+				LockSupport.unpark(thread);
+			}
 		}
 
 		public void run() {
 			while (true) {
-				past();
-
-				synchronized (sequence) {
+				long deadline;
+				// dispatch under lock, so events of past() are not overtaken
+				// and none follows onStopping()
+				synchronized (store) {
 					if (thread != Thread.currentThread()) {
 						break;
 					}
 
-					MidiEvent event = nextEvent();
-					if (event == null) {
+					long nanos = System.nanoTime();
+					if (isDue(nanos)) {
+						batch.clear();
+						take(batch, nanos + LOOKAHEAD_NANOS);
+						batch.dispatch(true);
+					}
+
+					long tick = cursor.tick();
+					if (tick == Long.MAX_VALUE) {
 						listener.onLast();
 						break;
-					} else {
-						try {
-							long sleepMillis = startMillis
-									+ Math.round(tickToMillis(event.getTick()
-											- initialTick)
-											/ speed)
-									- System.currentTimeMillis();
-							if (sleepMillis > 0) {
-								sequence.wait(sleepMillis);
-							}
-						} catch (InterruptedException interrupted) {
-						}
 					}
+					deadline = nanosAt(tick);
 				}
-			}
-		}
 
-		private void past() {
-			synchronized (sequence) {
-				currentTick = currentTick();
+				await(deadline);
 			}
+		}
 
-			for (int track = 0; track < tracks.length; track++) {
-				past(track);
+		private void await(long deadline) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining > SPIN_NANOS) {
+				LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+			} else {
+				while (System.nanoTime() < deadline
+						&& thread == Thread.currentThread()) {
+					Thread.onSpinWait();
+				}
 			}
 		}
 
-		private void past(int track) {
-			List<MidiEvent> events = new ArrayList<MidiEvent>();
+		/**
+		 * Is the next event due at the given time.
+		 */
+		private boolean isDue(long nanos) {
+			long tick = cursor.tick();
 
-			synchronized (sequence) {
-				while (indices[track] < tracks[track].size()) {
-					MidiEvent event = tracks[track].get(indices[track]);
+			return tick != Long.MAX_VALUE && nanosAt(tick) - nanos <= 0;
+		}
 
-					if (SequenceUtils.isEndOfTrack(event.getMessage())) {
-						break;
-					}
+		/**
+		 * Take all events due until the given time.
+		 */
+		private void take(Batch batch, long nanos) {
+			currentTick = currentTick();
 
-					if (event.getTick() > currentTick) {
-						break;
-					}
+			while (isDue(nanos)) {
+				batch.add(cursor.track(), cursor.message(), nanosAt(cursor
+						.tick()));
 
-					events.add(event);
-					indices[track]++;
-				}
+				cursor.next();
 			}
-
-			notifyEvents(track, events);
 		}
 
-		private MidiEvent nextEvent() {
-			MidiEvent nextEvent = null;
-
-			for (int t = 0; t < tracks.length; t++) {
-				if (indices[t] < tracks[t].size()) {
-					MidiEvent event = tracks[t].get(indices[t]);
-					if (!SequenceUtils.isEndOfTrack(event.getMessage())) {
-						if (nextEvent == null
-								|| event.getTick() < nextEvent.getTick()) {
-							nextEvent = event;
-						}
-					}
-				}
-			}
-
-			return nextEvent;
+		private void past() {
+			Batch batch = new Batch();
+			take(batch, System.nanoTime());
+			batch.dispatch(false);
 		}
 
 		@Override
 		public void record(int track, MidiMessage message) {
 			past();
 
-			tracks[track].add(new MidiEvent(message, currentTick));
-			indices[track]++;
+			store.add(track, currentTick, message);
+			cursor.skip(track);
 		}
 
 		@Override
@@ -437,16 +515,52 @@ public class Sequencer {
 
 			super.stopping();
 
-			SequenceUtils.shrink(sequence);
+			store.shrink();
 
 			// step behind last tick
-			currentTick = Math.min(currentTick, sequence.getTickLength()) + 1;
+			currentTick = Math.min(currentTick, store.getTickLength()) + 1;
 		}
 	}
 
-	private void notifyEvents(int track, List<MidiEvent> events) {
-		for (MidiEvent event : events) {
-			listener.onEvent(track, event.getMessage());
+	/**
+	 * A batch of events to dispatch.
+	 */
+	private class Batch {
+
+		private int size;
+
+		private int[] tracks = new int[16];
+
+		private MidiMessage[] messages = new MidiMessage[16];
+
+		private long[] deadlines = new long[16];
+
+		public void clear() {
+			Arrays.fill(messages, 0, size, null);
+			size = 0;
+		}
+
+		public void add(int track, MidiMessage message, long deadline) {
+			if (size == tracks.length) {
+				tracks = Arrays.copyOf(tracks, size * 2);
+				messages = Arrays.copyOf(messages, size * 2);
+				deadlines = Arrays.copyOf(deadlines, size * 2);
+			}
+
+			tracks[size] = track;
+			messages[size] = message;
+			deadlines[size] = deadline;
+			size++;
+		}
+
+		public void dispatch(boolean measure) {
+			for (int e = 0; e < size; e++) {
+				if (measure) {
+					jitter.record(Math.abs(System.nanoTime() - deadlines[e]));
+				}
+
+				listener.onEvent(tracks[e], messages[e]);
+			}
 		}
 	}
 
@@ -457,10 +571,16 @@ public class Sequencer {
 		if (speed > 2.0f) {
 			speed = 2.0f;
 		}
-		this.speed = speed;
+
+		synchronized (store) {
+			this.speed = speed;
+
+			// takes effect immediately even if running
+			state.speedChanged();
+		}
 	}
 
 	public float getSpeed() {
 		return speed;
 	}
-}
\ No newline at end of file
+}
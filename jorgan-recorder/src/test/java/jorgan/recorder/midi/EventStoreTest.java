@@ -0,0 +1,147 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.recorder.midi;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link EventStore}.
+ */
+public class EventStoreTest extends TestCase {
+
+	private EventStore store;
+
+	@Override
+	protected void setUp() throws Exception {
+		store = new EventStore(Sequence.PPQ, 50, 2);
+	}
+
+	public void testAdd() throws Exception {
+		store.add(0, 10, note(60));
+		store.add(0, 30, note(62));
+		store.add(0, 20, note(61));
+		store.add(0, 20, note(63));
+
+		assertEquals(4, store.size(0));
+		assertEquals(10, store.getTick(0, 0));
+		assertEquals(20, store.getTick(0, 1));
+		assertEquals(61, ((ShortMessage) store.getMessage(0, 1)).getData1());
+		assertEquals(63, ((ShortMessage) store.getMessage(0, 2)).getData1());
+		assertEquals(30, store.getTick(0, 3));
+
+		assertEquals(30, store.getTickLength());
+	}
+
+	public void testIndex() throws Exception {
+		for (int e = 0; e < 100; e++) {
+			store.add(0, e * 10, note(60));
+		}
+
+		assertEquals(0, store.getIndex(0, 0));
+		assertEquals(1, store.getIndex(0, 1));
+		assertEquals(1, store.getIndex(0, 10));
+		assertEquals(50, store.getIndex(0, 495));
+		assertEquals(100, store.getIndex(0, 10000));
+	}
+
+	public void testRemove() throws Exception {
+		store.add(0, 10, note(60));
+		store.add(0, 20, meta("test"));
+		store.add(0, 30, note(62));
+
+		store.remove(0, 1);
+
+		assertEquals(2, store.size(0));
+		assertEquals(30, store.getTick(0, 1));
+		assertEquals(62, ((ShortMessage) store.getMessage(0, 1)).getData1());
+	}
+
+	public void testSequence() throws Exception {
+		Sequence sequence = new Sequence(Sequence.PPQ, 50, 2);
+		Track track = sequence.getTracks()[0];
+		track.add(new javax.sound.midi.MidiEvent(meta("name"), 0));
+		track.add(new javax.sound.midi.MidiEvent(note(60), 10));
+		track.add(new javax.sound.midi.MidiEvent(note(61), 20));
+		track.get(track.size() - 1).setTick(100);
+
+		store = new EventStore(sequence);
+		assertEquals(3, store.size(0));
+		assertEquals(0, store.size(1));
+		assertEquals(100, store.getTickLength());
+		assertTrue(store.getMessage(0, 0) instanceof MetaMessage);
+
+		Sequence converted = store.toSequence();
+		assertEquals(2, converted.getTracks().length);
+		assertEquals(4, converted.getTracks()[0].size());
+		assertEquals(100, converted.getTickLength());
+		assertEquals(20, converted.getTracks()[0].get(2).getTick());
+
+		store.shrink();
+		assertEquals(20, store.getTickLength());
+	}
+
+	public void testCursor() throws Exception {
+		store.add(0, 10, note(60));
+		store.add(1, 5, note(61));
+		store.add(0, 20, note(62));
+		store.add(1, 20, note(63));
+		store.add(1, 30, note(64));
+
+		EventStore.Cursor cursor = store.cursor(6);
+
+		assertEquals(0, cursor.track());
+		assertEquals(10, cursor.tick());
+		cursor.next();
+
+		assertEquals(0, cursor.track());
+		assertEquals(20, cursor.tick());
+		cursor.next();
+
+		assertEquals(1, cursor.track());
+		assertEquals(20, cursor.tick());
+		cursor.next();
+
+		// added in front of next event
+		store.add(1, 25, note(65));
+		cursor.skip(1);
+
+		assertEquals(1, cursor.track());
+		assertEquals(30, cursor.tick());
+		assertEquals(64, ((ShortMessage) cursor.message()).getData1());
+		cursor.next();
+
+		assertEquals(-1, cursor.track());
+		assertEquals(Long.MAX_VALUE, cursor.tick());
+	}
+
+	private MidiMessage note(int pitch) throws Exception {
+		return new ShortMessage(ShortMessage.NOTE_ON, pitch, 100);
+	}
+
+	private MidiMessage meta(String text) throws Exception {
+		byte[] bytes = text.getBytes();
+		return new MetaMessage(3, bytes, bytes.length);
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * jOrgan - Java Virtual Organ
+ * Copyright (C) 2003 Sven Meier
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package jorgan.recorder.midi;
+
+import java.io.File;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.SysexMessage;
+import javax.sound.midi.Track;
+
+import junit.framework.TestCase;
+
+/**
+ * Test for {@link MidiFile}.
+ */
+public class MidiFileTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("jorgan", ".mid");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testRoundTrip() throws Exception {
+		EventStore store = new EventStore(Sequence.PPQ, 50, 2);
+		store.add(0, 0, new MetaMessage(3, "name".getBytes(), 4));
+		store.add(0, 10, note(60));
+		store.add(0, 20000, note(61));
+		store.add(1, 5, new ShortMessage(ShortMessage.PROGRAM_CHANGE, 1, 7, 0));
+		store.add(1, 6, new SysexMessage(new byte[] { (byte) 0xf0, 1, 2,
+				(byte) 0xf7 }, 4));
+
+		MidiFile.write(store, file);
+
+		Sequence sequence = MidiSystem.getSequence(file);
+		assertEquals(2, sequence.getTracks().length);
+		assertEquals(50, sequence.getResolution());
+		Track track = sequence.getTracks()[0];
+		assertEquals(4, track.size());
+		assertEquals(20000, track.get(2).getTick());
+		assertEquals(61, ((ShortMessage) track.get(2).getMessage()).getData1());
+
+		EventStore read = MidiFile.read(file);
+		assertEquals(2, read.getTrackCount());
+		assertEquals(3, read.size(0));
+		assertEquals(2, read.size(1));
+		assertEquals(20000, read.getTick(0, 2));
+		assertEquals(3, ((MetaMessage) read.getMessage(0, 0)).getType());
+		assertEquals(7, ((ShortMessage) read.getMessage(1, 0)).getData1());
+		assertEquals(4, read.getMessage(1, 1).getLength());
+	}
+
+	public void testSmpte() throws Exception {
+		EventStore store = new EventStore(Sequence.SMPTE_30DROP, 40, 1);
+		store.add(0, 10, note(60));
+		MidiFile.write(store, file);
+
+		assertEquals(Sequence.SMPTE_30DROP, MidiSystem.getSequence(file)
+				.getDivisionType());
+
+		EventStore read = MidiFile.read(file);
+		assertEquals(Sequence.SMPTE_30DROP, read.getDivisionType());
+		assertEquals(40, read.getResolution());
+	}
+
+	public void testRunningStatus() throws Exception {
+		Sequence sequence = new Sequence(Sequence.PPQ, 50, 1);
+		Track track = sequence.getTracks()[0];
+		for (int e = 0; e < 10; e++) {
+			track.add(new MidiEvent(note(60 + e), e));
+		}
+		// writer uses running status
+		MidiSystem.write(sequence, 1, file);
+
+		EventStore read = MidiFile.read(file);
+		assertEquals(10, read.size(0));
+		assertEquals(69, ((ShortMessage) read.getMessage(0, 9)).getData1());
+	}
+
+	public void testAppend() throws Exception {
+		EventStore store = new EventStore(Sequence.PPQ, 50, 2);
+		store.add(0, 10, note(60));
+		store.add(1, 10, note(70));
+		MidiFile.write(store, file);
+		long modified = file.length();
+
+		store = MidiFile.read(file);
+		store.add(1, 20, note(71));
+		store.add(1, 30, note(72));
+		MidiFile.write(store, file);
+
+		// two events with delta, status and data each
+		assertEquals(modified + 2 * 4, file.length());
+
+		Track track = MidiSystem.getSequence(file).getTracks()[1];
+		assertEquals(4, track.size());
+		assertEquals(30, track.get(2).getTick());
+
+		// insertion in first track rewrites all
+		store.add(0, 5, note(59));
+		MidiFile.write(store, file);
+
+		Sequence sequence = MidiSystem.getSequence(file);
+		assertEquals(3, sequence.getTracks()[0].size());
+		assertEquals(4, sequence.getTracks()[1].size());
+	}
+
+	public void testRemoveTrack() throws Exception {
+		EventStore store = new EventStore(Sequence.PPQ, 50, 2);
+		store.add(0, 10, note(60));
+		store.add(1, 10, note(70));
+		MidiFile.write(store, file);
+
+		store.removeTrack(1);
+		MidiFile.write(store, file);
+
+		Sequence sequence = MidiSystem.getSequence(file);
+		assertEquals(1, sequence.getTracks().length);
+		assertEquals(60, ((ShortMessage) sequence.getTracks()[0].get(0)
+				.getMessage()).getData1());
+	}
+
+	private MidiMessage note(int pitch) throws Exception {
+		return new ShortMessage(ShortMessage.NOTE_ON, 0, pitch, 100);
+	}
+}
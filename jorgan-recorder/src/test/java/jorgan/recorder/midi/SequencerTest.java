@@ -93,6 +93,58 @@ public class SequencerTest extends TestCase {
 		}
 	}
 
+	public void testSpeed() throws Exception {
+		EventStore store = new EventStore(Sequence.PPQ, 50, 2);
+		for (int e = 0; e < 20; e++) {
+			store.add(e % 2, e * 5, new ShortMessage(ShortMessage.NOTE_ON,
+					60 + e, 100));
+		}
+
+		final int[] played = new int[1];
+		final Object last = new Object();
+		Sequencer sequencer = new Sequencer(store, new SequencerListener() {
+			@Override
+			public void onEvent(int track, MidiMessage message) {
+				assertEquals(60 + played[0], ((ShortMessage) message)
+						.getData1());
+				played[0]++;
+			}
+
+			@Override
+			public void onStarting() {
+			}
+
+			@Override
+			public void onStopping() {
+			}
+
+			@Override
+			public void onLast() {
+				synchronized (last) {
+					last.notify();
+				}
+			}
+		});
+
+		long start = System.nanoTime();
+		synchronized (last) {
+			sequencer.start();
+			sequencer.setSpeed(2.0f);
+
+			last.wait(5000);
+		}
+		long millis = (System.nanoTime() - start) / 1000000;
+		sequencer.stop();
+
+		// 950ms of events at double speed
+		assertEquals(20, played[0]);
+		assertTrue("played " + millis, millis < 900);
+
+		assertEquals(20, sequencer.getJitter().getCount());
+		assertTrue(sequencer.getJitter().toString(), sequencer.getJitter()
+				.getPercentile(50) < 5 * 1000 * 1000);
+	}
+
 	private void keyPressed(Sequencer recorder, int pitch, int velocity) {
 		ShortMessage message = new ShortMessage();
 		try {
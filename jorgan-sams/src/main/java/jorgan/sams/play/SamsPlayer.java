@@ -275,6 +275,11 @@ public class SamsPlayer extends ConnectorPlayer<Sams> {
 				return wakeUp == this;
 			}
 
+			@Override
+			public Object getKey() {
+				return this;
+			}
+
 			@Override
 			public void trigger() {
 				cancel();
@@ -55,6 +55,14 @@ public class ConnectionSwitchPlayer extends SwitchPlayer<ConnectionSwitch> {
 		return processed;
 	}
 
+	/**
+	 * Received data might be passed on to referenced elements.
+	 */
+	@Override
+	protected boolean receives(int status) {
+		return true;
+	}
+
 	@Override
 	protected void onInput(InputMessage message, Context context) {
 		super.onInput(message, context);